@@ -0,0 +1,67 @@
+package vn.edu.fpt.laboratory.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Header;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+import vn.edu.fpt.laboratory.dto.cache.VerifiedToken;
+import vn.edu.fpt.laboratory.service.impl.TokenServiceImpl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of resolving the authentication of a token, verified on every request against served from the cache.
+ * Run with mvn -P benchmark test-compile exec:java -Dexec.args="TokenServiceBenchmark".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TokenServiceBenchmark {
+
+    private static final String SECRET_KEY = "secret-key-of-the-token-service-benchmark";
+
+    private _TokenService cachingTokenService;
+    private _TokenService verifyingTokenService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        // a cache without room keeps nothing, so every call verifies the signature again
+        cachingTokenService = tokenService(Caffeine.newBuilder().build());
+        verifyingTokenService = tokenService(Caffeine.newBuilder().maximumSize(0).executor(Runnable::run).build());
+        token = Jwts.builder()
+                .setHeaderParam(Header.TYPE, Header.JWT_TYPE)
+                .setId(UUID.randomUUID().toString())
+                .claim("authorities", "ADMIN,USER")
+                .claim("exp", System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1))
+                .signWith(Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+        cachingTokenService.getAuthenticationFromToken(token);
+    }
+
+    @Benchmark
+    public Optional<Authentication> cacheHit() {
+        return cachingTokenService.getAuthenticationFromToken(token);
+    }
+
+    @Benchmark
+    public Optional<Authentication> verify() {
+        return verifyingTokenService.getAuthenticationFromToken(token);
+    }
+
+    private static _TokenService tokenService(Cache<String, VerifiedToken> cache) {
+        _TokenService tokenService = new TokenServiceImpl(cache);
+        ReflectionTestUtils.invokeMethod(tokenService, "setSecretKey", SECRET_KEY);
+        return tokenService;
+    }
+}
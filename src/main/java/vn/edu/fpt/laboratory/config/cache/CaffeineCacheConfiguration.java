@@ -1,11 +1,22 @@
 package vn.edu.fpt.laboratory.config.cache;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import vn.edu.fpt.laboratory.dto.cache.UserInfo;
+import vn.edu.fpt.laboratory.dto.cache.VerifiedToken;
+import vn.edu.fpt.laboratory.dto.response.laboratory.GetLaboratoryAnalyticsResponse;
+import vn.edu.fpt.laboratory.utils.ReservationSegmentTree;
 
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -16,21 +27,146 @@ import java.util.concurrent.TimeUnit;
  * @contact : 0834481768 - hoang.harley.work@gmail.com
  **/
 @Configuration
+@EnableCaching
 public class CaffeineCacheConfiguration {
 
+    public static final String DISPLAY_MESSAGE_CACHE = "displayMessage";
+
+    /**
+     * Caches behind {@code @Cacheable}. Each named cache gets its own size and TTL, missing values are
+     * cached as null so an unknown code doesn't go back to redis either.
+     * The caches record stats, actuator publishes them as {@code cache.gets} by cache name.
+     */
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("displayMessage");
+    public CacheManager cacheManager(@Value("${app.cache.display-message.maximum-size:500}") Long displayMessageMaximumSize,
+                                     @Value("${app.cache.display-message.expiration:3600}") Long displayMessageExpiration) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
         cacheManager.setCaffeine(caffeineCacheBuilder());
+        cacheManager.registerCustomCache(DISPLAY_MESSAGE_CACHE, namedCacheBuilder(displayMessageMaximumSize, displayMessageExpiration).build());
         return cacheManager;
     }
 
+    /**
+     * Near cache of parsed user info in front of redis. Entries are evicted when the account service
+     * publishes an update, the TTL only bounds staleness if such a message is missed.
+     */
+    @Bean
+    public Cache<String, UserInfo> userInfoCache(@Value("${app.cache.user-info.maximum-size:10000}") Long maximumSize,
+                                                 @Value("${app.cache.user-info.expiration:600}") Long expiration,
+                                                 MeterRegistry meterRegistry) {
+        Cache<String, UserInfo> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expiration, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "userInfo");
+    }
+
+    /**
+     * Reservation tree of each material, rebuilt from mongo on the first lookup after an eviction.
+     * Writes on this instance evict the entry, the short TTL bounds staleness of writes from other instances.
+     */
+    @Bean
+    public Cache<String, ReservationSegmentTree> materialReservationCache(@Value("${app.cache.material-reservation.maximum-size:2000}") Long maximumSize,
+                                                                          @Value("${app.cache.material-reservation.expiration:60}") Long expiration,
+                                                                          MeterRegistry meterRegistry) {
+        Cache<String, ReservationSegmentTree> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expiration, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "materialReservation");
+    }
+
+    /**
+     * Analytics of each laboratory, recomputed by one aggregation once the short TTL expired.
+     */
+    @Bean
+    public Cache<String, GetLaboratoryAnalyticsResponse> laboratoryAnalyticsCache(@Value("${app.cache.laboratory-analytics.maximum-size:500}") Long maximumSize,
+                                                                                 @Value("${app.cache.laboratory-analytics.expiration:60}") Long expiration,
+                                                                                 MeterRegistry meterRegistry) {
+        Cache<String, GetLaboratoryAnalyticsResponse> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expiration, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "laboratoryAnalytics");
+    }
+
+    /**
+     * Totals of paged queries counted in CACHED or ESTIMATED mode, keyed by collection and filter.
+     * Turning pages of the same filter reuses the total until the TTL expires.
+     */
+    @Bean
+    public Cache<String, Long> pageTotalCache(@Value("${app.cache.page-total.maximum-size:1000}") Long maximumSize,
+                                              @Value("${app.cache.page-total.expiration:30}") Long expiration,
+                                              MeterRegistry meterRegistry) {
+        Cache<String, Long> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expiration, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "pageTotal");
+    }
+
+    /**
+     * Role of an account in a laboratory or project, empty when the account isn't a member. Membership
+     * writes on this instance evict the laboratory or project, the short TTL bounds staleness of the others.
+     */
+    @Bean
+    public Cache<String, Optional<String>> memberRoleCache(@Value("${app.cache.member-role.maximum-size:10000}") Long maximumSize,
+                                                           @Value("${app.cache.member-role.expiration:30}") Long expiration,
+                                                           MeterRegistry meterRegistry) {
+        Cache<String, Optional<String>> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expiration, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "memberRole");
+    }
+
+    /**
+     * Tokens already verified by the auth filter, keyed by the hash of the token. Every entry expires
+     * at the expiration of its token, so a cached token is never accepted after it expired.
+     */
+    @Bean
+    public Cache<String, VerifiedToken> verifiedTokenCache(@Value("${app.cache.verified-token.maximum-size:10000}") Long maximumSize,
+                                                           MeterRegistry meterRegistry) {
+        Cache<String, VerifiedToken> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, value.getExpiresAt() - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, "verifiedToken");
+    }
+
     Caffeine < Object, Object > caffeineCacheBuilder() {
         return Caffeine.newBuilder()
                 .initialCapacity(100)
                 .maximumSize(500)
                 .expireAfterAccess(10, TimeUnit.MINUTES)
-                .weakKeys()
+                .recordStats();
+    }
+
+    private Caffeine<Object, Object> namedCacheBuilder(Long maximumSize, Long expiration) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expiration, TimeUnit.SECONDS)
                 .recordStats();
     }
 }
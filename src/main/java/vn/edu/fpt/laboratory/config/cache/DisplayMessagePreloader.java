@@ -0,0 +1,43 @@
+package vn.edu.fpt.laboratory.config.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import vn.edu.fpt.laboratory.constant.ResponseStatusEnum;
+import vn.edu.fpt.laboratory.service.DisplayMessageService;
+
+import java.util.List;
+
+/**
+ * Warms the display message cache once the application is ready, so the first responses after a
+ * deploy don't each pay a redis round trip.
+ **/
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DisplayMessagePreloader {
+
+    private final DisplayMessageService displayMessageService;
+
+    @Value("${app.cache.display-message.preload-languages:en}")
+    private List<String> languages;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        try {
+            for (String language : languages) {
+                for (ResponseStatusEnum status : ResponseStatusEnum.values()) {
+                    displayMessageService.getDisplayMessage(status.getCode(), language);
+                }
+            }
+            log.info("Preloaded {} display messages", languages.size() * ResponseStatusEnum.values().length);
+        } catch (Exception ex) {
+            log.error("Can't preload caches: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package vn.edu.fpt.laboratory.config.database;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition;
+import vn.edu.fpt.laboratory.entity.*;
+
+/**
+ * Auto index creation is disabled, indexes used by the services are ensured here on startup.
+ **/
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+public class MongoIndexConfiguration {
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        try {
+            ensureIndex(Project.class, new Index().on("laboratory_id", Sort.Direction.ASC).named("laboratory_id"));
+            ensureIndex(Material.class, new Index().on("laboratory_id", Sort.Direction.ASC).named("laboratory_id"));
+            ensureIndex(Application.class, new Index().on("laboratory_id", Sort.Direction.ASC).named("laboratory_id"));
+            ensureIndex(OrderHistory.class, new Index().on("laboratory_id", Sort.Direction.ASC).named("laboratory_id"));
+            ensureIndex(OrderHistory.class, new Index().on("laboratory_id", Sort.Direction.ASC).on("created_by", Sort.Direction.ASC).on("order_from", Sort.Direction.DESC).named("laboratory_id_created_by_order_from"));
+            ensureIndex(MemberInfo.class, new Index().on("laboratory_id", Sort.Direction.ASC).on("account_id", Sort.Direction.ASC).named("laboratory_id_account_id"));
+            ensureIndex(MemberInfo.class, new Index().on("project_id", Sort.Direction.ASC).on("account_id", Sort.Direction.ASC).named("project_id_account_id"));
+            ensureIndex(AccountMembership.class, new Index().on("account_id", Sort.Direction.ASC).on("laboratory_id", Sort.Direction.ASC).unique().named("account_id_laboratory_id"));
+            ensureIndex(AccountMembership.class, new Index().on("laboratory_id", Sort.Direction.ASC).named("laboratory_id"));
+            ensureIndex(AccountMembership.class, new Index().on("project_ids", Sort.Direction.ASC).named("project_ids"));
+            ensureIndex(MaterialUsageBucket.class, new Index().on("material_id", Sort.Direction.ASC).on("bucket_start", Sort.Direction.ASC).unique().named("material_id_bucket_start"));
+            // one text index per collection for the keyword search, names weigh more than descriptions in the ranking
+            ensureIndex(Laboratory.class, textIndex().onField("laboratory_name", 10F).onField("major", 5F).onField("description").build());
+            ensureIndex(Material.class, textIndex().onField("material_name", 10F).onField("description").build());
+            ensureIndex(Project.class, textIndex().onField("project_name", 10F).onField("description").build());
+        } catch (Exception ex) {
+            log.error("Can't ensure indexes: {}", ex.getMessage());
+        }
+    }
+
+    private void ensureIndex(Class<?> entityClass, IndexDefinition index) {
+        mongoTemplate.indexOps(entityClass).ensureIndex(index);
+    }
+
+    private TextIndexDefinition.TextIndexDefinitionBuilder textIndex() {
+        // names are mostly vietnamese, english stemming and stop words would only drop matches
+        return new TextIndexDefinition.TextIndexDefinitionBuilder()
+                .withDefaultLanguage("none")
+                .named("text_search");
+    }
+}
@@ -0,0 +1,34 @@
+package vn.edu.fpt.laboratory.config.kafka.consumer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Service;
+import vn.edu.fpt.laboratory.service.AppConfigService;
+
+/**
+ * Reloads the app config snapshot when any instance changed a config, the message value is the new version.
+ * Every instance listens with its own group id so the reload reaches all nodes.
+ **/
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AppConfigChangedConsumer extends Consumer {
+
+    private final AppConfigService appConfigService;
+
+    @Override
+    @KafkaListener(id = "appConfigChangedConsumer", topics = "flab.lab.app_config_changed", groupId = "${spring.application.name}-${random.uuid}")
+    public void listen(String value,
+                       @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                       @Header(KafkaHeaders.RECEIVED_MESSAGE_KEY) String key) {
+        super.listen(value, topic, key);
+        try {
+            appConfigService.reloadAppConfig(Long.valueOf(value));
+        } catch (NumberFormatException ex) {
+            log.error("Invalid app config version: {}", value);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package vn.edu.fpt.laboratory.config.kafka.consumer;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Service;
+import vn.edu.fpt.laboratory.service.UserInfoService;
+
+/**
+ * Evicts the local user info cache when the account service updates a user, the message value is the bare account id.
+ * Every instance listens with its own group id so the eviction reaches all nodes. Without a message the cached user
+ * info still expires after app.cache.user-info.expiration.
+ **/
+@Service
+@RequiredArgsConstructor
+public class UpdateUserInfoConsumer extends Consumer {
+
+    private final UserInfoService userInfoService;
+
+    @Override
+    @KafkaListener(id = "updateUserInfoConsumer", topics = "${app.kafka.update-user-info.topic}", groupId = "${spring.application.name}-${random.uuid}")
+    public void listen(String value,
+                       @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                       @Header(KafkaHeaders.RECEIVED_MESSAGE_KEY) String key) {
+        super.listen(value, topic, key);
+        userInfoService.evictUserInfo(value);
+    }
+}
@@ -0,0 +1,25 @@
+package vn.edu.fpt.laboratory.config.kafka.producer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * Tells every instance that the app configs changed, the message value is the new config version.
+ **/
+@Service
+public class AppConfigChangedProducer extends Producer {
+
+    private static final String TOPIC = "flab.lab.app_config_changed";
+
+    @Autowired
+    public AppConfigChangedProducer(KafkaTemplate<String, String> kafkaTemplate) {
+        super(kafkaTemplate);
+    }
+
+    public void sendMessage(Long version) {
+        super.sendMessage(TOPIC, UUID.randomUUID().toString(), String.valueOf(version));
+    }
+}
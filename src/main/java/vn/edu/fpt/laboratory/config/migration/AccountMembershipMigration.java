@@ -0,0 +1,260 @@
+package vn.edu.fpt.laboratory.config.migration;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import vn.edu.fpt.laboratory.constant.ApplicationStatusEnum;
+import vn.edu.fpt.laboratory.constant.LaboratoryReferenceEnum;
+import vn.edu.fpt.laboratory.constant.MembershipStatusEnum;
+import vn.edu.fpt.laboratory.entity.AccountMembership;
+import vn.edu.fpt.laboratory.entity.MigrationCheckpoint;
+import vn.edu.fpt.laboratory.repository.MigrationCheckpointRepository;
+import vn.edu.fpt.laboratory.repository.MigrationLockRepository;
+import vn.edu.fpt.laboratory.utils.DBRefUtils;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the account memberships from the DBRef arrays of the laboratories and their projects.
+ * Laboratories are walked in _id order and checkpointed like the foreign key backfill, memberships are
+ * only inserted and projects added with addToSet, so a batch replayed after a restart is harmless. Until
+ * it completed the laboratory listings keep querying the DBRef arrays. Only the node holding the lease of the
+ * checkpoint runs it, the other nodes learn from the checkpoint when it completed.
+ **/
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AccountMembershipMigration {
+
+    private static final String MIGRATION_ID = "account_membership";
+    private static final String LABORATORY_COLLECTION = "laboratories";
+
+    private final MongoTemplate mongoTemplate;
+    private final MigrationCheckpointRepository migrationCheckpointRepository;
+    private final MigrationLockRepository migrationLockRepository;
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+
+    @Value("${app.migration.account-membership.batch-size:100}")
+    private Integer batchSize;
+
+    public boolean isCompleted() {
+        // another node may hold the lease and complete it, until then its checkpoint is read again
+        if (!completed.get() && migrationCheckpointRepository.findById(MIGRATION_ID).map(MigrationCheckpoint::isCompleted).orElse(false)) {
+            completed.set(true);
+        }
+        return completed.get();
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        if (isCompleted()) {
+            return;
+        }
+        Optional<MigrationCheckpoint> locked = migrationLockRepository.tryLock(MIGRATION_ID);
+        if (locked.isEmpty()) {
+            return;
+        }
+        MigrationCheckpoint checkpoint = locked.get();
+        log.info("Start account membership migration from: {}", checkpoint.getLastProcessedId());
+        try {
+            List<Document> laboratories = findNextBatch(checkpoint.getLastProcessedId());
+            while (!laboratories.isEmpty()) {
+                backfill(laboratories);
+                checkpoint.setLastProcessedId(laboratories.get(laboratories.size() - 1).getObjectId("_id").toHexString());
+                checkpoint.setProcessed(checkpoint.getProcessed() + laboratories.size());
+                if (!migrationLockRepository.saveProgress(checkpoint)) {
+                    log.warn("Account membership migration was taken over by another node at {}", checkpoint.getLastProcessedId());
+                    return;
+                }
+                laboratories = findNextBatch(checkpoint.getLastProcessedId());
+            }
+            checkpoint.setCompleted(true);
+            if (migrationLockRepository.saveProgress(checkpoint)) {
+                completed.set(true);
+                log.info("Account membership migration completed: {} laboratories", checkpoint.getProcessed());
+            }
+        } catch (Exception ex) {
+            log.error("Account membership migration stopped at {}: {}", checkpoint.getLastProcessedId(), ex.getMessage());
+        } finally {
+            migrationLockRepository.unlock(MIGRATION_ID);
+        }
+    }
+
+    private List<Document> findNextBatch(String lastProcessedId) {
+        Query query = new Query();
+        if (Objects.nonNull(lastProcessedId)) {
+            query.addCriteria(Criteria.where("_id").gt(new ObjectId(lastProcessedId)));
+        }
+        query.fields().include(LaboratoryReferenceEnum.MEMBER.getField(), LaboratoryReferenceEnum.APPLICATION.getField(), LaboratoryReferenceEnum.PROJECT.getField());
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(batchSize);
+        return mongoTemplate.find(query, Document.class, LABORATORY_COLLECTION);
+    }
+
+    private void backfill(List<Document> laboratories) {
+        Map<Object, Document> members = findByIds(laboratories, LaboratoryReferenceEnum.MEMBER, "account_id", "role");
+        Map<Object, Document> applications = findByIds(laboratories, LaboratoryReferenceEnum.APPLICATION, "account_id", "status");
+
+        // every membership inserted by this batch carries the same date, a live write replaces it
+        LocalDateTime insertedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        Map<Map.Entry<String, String>, String> memberships = findMemberships(laboratories, members, applications);
+        if (memberships.isEmpty()) {
+            return;
+        }
+        Map<Map.Entry<String, String>, Set<String>> projectMemberships = findProjectMemberships(laboratories);
+        // ordered, the memberships have to exist before their projects are added
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, AccountMembership.class);
+        // only inserts, a membership written by the services in the meantime is newer than the snapshot
+        memberships.forEach((membership, role) -> {
+            Update update = new Update().setOnInsert("last_modified_date", insertedAt);
+            if (Objects.isNull(role)) {
+                update.setOnInsert("status", MembershipStatusEnum.WAITING.getStatus());
+            } else {
+                update.setOnInsert("status", MembershipStatusEnum.MEMBER.getStatus()).setOnInsert("role", role);
+            }
+            bulkOperations.upsert(membership(membership), update);
+        });
+        projectMemberships.forEach((membership, projectIds) -> bulkOperations.updateOne(membership(membership),
+                new Update().addToSet("project_ids").each(projectIds.toArray())));
+        bulkOperations.execute();
+        recheck(laboratories, memberships.keySet(), insertedAt, projectMemberships);
+    }
+
+    /**
+     * A member removed or given another role between the snapshot and the bulk write would come back from
+     * the snapshot. The laboratories are read again and the memberships this batch inserted are corrected,
+     * unless a live write touched them since. Projects the member left in between are pulled again, unless
+     * the membership was written after the laboratories were read again.
+     */
+    private void recheck(List<Document> laboratories, Set<Map.Entry<String, String>> inserted, LocalDateTime insertedAt,
+                         Map<Map.Entry<String, String>, Set<String>> addedProjects) {
+        LocalDateTime recheckedAt = LocalDateTime.now();
+        Query query = Query.query(Criteria.where("_id").in(laboratories.stream().map(v -> v.get("_id")).collect(Collectors.toList())));
+        query.fields().include(LaboratoryReferenceEnum.MEMBER.getField(), LaboratoryReferenceEnum.APPLICATION.getField(), LaboratoryReferenceEnum.PROJECT.getField());
+        List<Document> current = mongoTemplate.find(query, Document.class, LABORATORY_COLLECTION);
+        Map<Map.Entry<String, String>, String> memberships = findMemberships(current,
+                findByIds(current, LaboratoryReferenceEnum.MEMBER, "account_id", "role"),
+                findByIds(current, LaboratoryReferenceEnum.APPLICATION, "account_id", "status"));
+        Map<Map.Entry<String, String>, Set<String>> projectMemberships = findProjectMemberships(current);
+
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, AccountMembership.class);
+        for (Map.Entry<String, String> membership : inserted) {
+            Query insertedQuery = membership(membership).addCriteria(Criteria.where("last_modified_date").is(insertedAt));
+            if (!memberships.containsKey(membership)) {
+                bulkOperations.remove(insertedQuery);
+                continue;
+            }
+            String role = memberships.get(membership);
+            Update update = Objects.isNull(role)
+                    ? new Update().set("status", MembershipStatusEnum.WAITING.getStatus()).unset("role")
+                    : new Update().set("status", MembershipStatusEnum.MEMBER.getStatus()).set("role", role);
+            bulkOperations.updateOne(insertedQuery, update);
+        }
+        addedProjects.forEach((membership, projectIds) -> {
+            Set<String> stale = new HashSet<>(projectIds);
+            stale.removeAll(projectMemberships.getOrDefault(membership, Set.of()));
+            if (!stale.isEmpty()) {
+                bulkOperations.updateOne(membership(membership).addCriteria(Criteria.where("last_modified_date").lt(recheckedAt)),
+                        new Update().pullAll("project_ids", stale.toArray()));
+            }
+        });
+        bulkOperations.execute();
+    }
+
+    /**
+     * (account id, laboratory id) of the members with their role and of the pending applications with a null role.
+     */
+    private Map<Map.Entry<String, String>, String> findMemberships(List<Document> laboratories, Map<Object, Document> members, Map<Object, Document> applications) {
+        Map<Map.Entry<String, String>, String> memberships = new HashMap<>();
+        for (Document laboratory : laboratories) {
+            String laboratoryId = laboratory.getObjectId("_id").toHexString();
+            for (Object applicationId : DBRefUtils.getReferenceIds(laboratory, LaboratoryReferenceEnum.APPLICATION.getField())) {
+                Document application = applications.get(applicationId);
+                if (Objects.nonNull(application) && Objects.nonNull(application.getString("account_id"))
+                        && ApplicationStatusEnum.WAITING_FOR_APPROVE.name().equals(application.getString("status"))) {
+                    memberships.put(Map.entry(application.getString("account_id"), laboratoryId), null);
+                }
+            }
+            for (Object memberId : DBRefUtils.getReferenceIds(laboratory, LaboratoryReferenceEnum.MEMBER.getField())) {
+                Document member = members.get(memberId);
+                if (Objects.nonNull(member) && Objects.nonNull(member.getString("account_id"))) {
+                    memberships.put(Map.entry(member.getString("account_id"), laboratoryId), member.getString("role"));
+                }
+            }
+        }
+        return memberships;
+    }
+
+    /**
+     * (account id, laboratory id) of the project members with the ids of their projects.
+     */
+    private Map<Map.Entry<String, String>, Set<String>> findProjectMemberships(List<Document> laboratories) {
+        Map<Object, Document> projects = findByIds(laboratories, LaboratoryReferenceEnum.PROJECT, "members");
+        List<Object> projectMemberIds = new ArrayList<>();
+        projects.values().forEach(v -> projectMemberIds.addAll(DBRefUtils.getReferenceIds(v, "members")));
+        Map<Object, Document> projectMembers = findByIds(projectMemberIds, LaboratoryReferenceEnum.MEMBER.getCollection(), "account_id");
+
+        Map<Map.Entry<String, String>, Set<String>> projectMemberships = new HashMap<>();
+        for (Document laboratory : laboratories) {
+            String laboratoryId = laboratory.getObjectId("_id").toHexString();
+            for (Object projectId : DBRefUtils.getReferenceIds(laboratory, LaboratoryReferenceEnum.PROJECT.getField())) {
+                Document project = projects.get(projectId);
+                if (Objects.isNull(project)) {
+                    continue;
+                }
+                for (Object memberId : DBRefUtils.getReferenceIds(project, "members")) {
+                    Document member = projectMembers.get(memberId);
+                    if (Objects.nonNull(member) && Objects.nonNull(member.getString("account_id"))) {
+                        projectMemberships.computeIfAbsent(Map.entry(member.getString("account_id"), laboratoryId), v -> new HashSet<>())
+                                .add(project.getObjectId("_id").toHexString());
+                    }
+                }
+            }
+        }
+        return projectMemberships;
+    }
+
+    private Map<Object, Document> findByIds(List<Document> laboratories, LaboratoryReferenceEnum reference, String... fields) {
+        List<Object> ids = new ArrayList<>();
+        laboratories.forEach(v -> ids.addAll(DBRefUtils.getReferenceIds(v, reference.getField())));
+        return findByIds(ids, reference.getCollection(), fields);
+    }
+
+    private Map<Object, Document> findByIds(List<Object> ids, String collection, String... fields) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Query query = Query.query(Criteria.where("_id").in(ids));
+        query.fields().include(fields);
+        return mongoTemplate.find(query, Document.class, collection).stream()
+                .collect(Collectors.toMap(v -> v.get("_id"), Function.identity(), (first, second) -> first));
+    }
+
+    private Query membership(Map.Entry<String, String> membership) {
+        return Query.query(Criteria.where("account_id").is(membership.getKey()).and("laboratory_id").is(membership.getValue()));
+    }
+}
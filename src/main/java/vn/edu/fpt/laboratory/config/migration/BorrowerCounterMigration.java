@@ -0,0 +1,118 @@
+package vn.edu.fpt.laboratory.config.migration;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import vn.edu.fpt.laboratory.constant.LaboratoryReferenceEnum;
+import vn.edu.fpt.laboratory.constant.OrderStatusEnum;
+import vn.edu.fpt.laboratory.entity.MigrationCheckpoint;
+import vn.edu.fpt.laboratory.entity.OrderHistory;
+import vn.edu.fpt.laboratory.repository.BorrowerCounterRepository;
+import vn.edu.fpt.laboratory.repository.MigrationCheckpointRepository;
+import vn.edu.fpt.laboratory.utils.DBRefUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Adds the borrowers of the orders completed before the distinct borrower counters existed. Adding the
+ * same borrower twice to a HyperLogLog changes nothing, so a batch replayed after a restart is harmless.
+ * Orders without a laboratory_id yet are counted for the laboratory referencing them.
+ **/
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BorrowerCounterMigration {
+
+    private static final String MIGRATION_ID = "borrower_counter";
+    private static final String LABORATORY_COLLECTION = "laboratories";
+
+    private final MongoTemplate mongoTemplate;
+    private final MigrationCheckpointRepository migrationCheckpointRepository;
+    private final BorrowerCounterRepository borrowerCounterRepository;
+
+    @Value("${app.migration.borrower-counter.batch-size:500}")
+    private Integer batchSize;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        MigrationCheckpoint checkpoint = migrationCheckpointRepository.findById(MIGRATION_ID)
+                .orElseGet(() -> MigrationCheckpoint.builder().migrationId(MIGRATION_ID).build());
+        if (checkpoint.isCompleted()) {
+            return;
+        }
+        log.info("Start borrower counter migration from: {}", checkpoint.getLastProcessedId());
+        try {
+            List<OrderHistory> orders = findNextBatch(checkpoint.getLastProcessedId());
+            while (!orders.isEmpty()) {
+                Map<Object, String> laboratoryIds = findLaboratoryIds(orders);
+                for (OrderHistory order : orders) {
+                    LocalDateTime completedAt = Objects.requireNonNullElse(order.getActuallyReturn(), order.getCreatedDate());
+                    if (Objects.nonNull(order.getCreatedBy()) && Objects.nonNull(completedAt)) {
+                        String laboratoryId = Objects.requireNonNullElse(order.getLaboratoryId(), laboratoryIds.get(new ObjectId(order.getOrderId())));
+                        borrowerCounterRepository.add(laboratoryId, completedAt.toLocalDate(), order.getCreatedBy());
+                    }
+                }
+                checkpoint.setLastProcessedId(orders.get(orders.size() - 1).getOrderId());
+                checkpoint.setProcessed(checkpoint.getProcessed() + orders.size());
+                checkpoint.setLastModifiedDate(LocalDateTime.now());
+                migrationCheckpointRepository.save(checkpoint);
+                orders = findNextBatch(checkpoint.getLastProcessedId());
+            }
+            checkpoint.setCompleted(true);
+            checkpoint.setLastModifiedDate(LocalDateTime.now());
+            migrationCheckpointRepository.save(checkpoint);
+            log.info("Borrower counter migration completed: {} orders", checkpoint.getProcessed());
+        } catch (Exception ex) {
+            log.error("Borrower counter migration stopped at {}: {}", checkpoint.getLastProcessedId(), ex.getMessage());
+        }
+    }
+
+    /**
+     * The laboratory foreign key migration may not have reached the older orders yet, their laboratory
+     * is read from the order DBRefs of the laboratory documents instead.
+     */
+    private Map<Object, String> findLaboratoryIds(List<OrderHistory> orders) {
+        List<ObjectId> orderIds = orders.stream()
+                .filter(v -> Objects.isNull(v.getLaboratoryId()))
+                .map(v -> new ObjectId(v.getOrderId()))
+                .collect(Collectors.toList());
+        if (orderIds.isEmpty()) {
+            return Map.of();
+        }
+        String field = LaboratoryReferenceEnum.ORDER.getField();
+        Query query = Query.query(Criteria.where(field + ".$id").in(orderIds));
+        query.fields().include(field);
+        Map<Object, String> laboratoryIds = new HashMap<>();
+        for (Document laboratory : mongoTemplate.find(query, Document.class, LABORATORY_COLLECTION)) {
+            String laboratoryId = laboratory.getObjectId("_id").toHexString();
+            DBRefUtils.getReferenceIds(laboratory, field).forEach(v -> laboratoryIds.put(v, laboratoryId));
+        }
+        return laboratoryIds;
+    }
+
+    private List<OrderHistory> findNextBatch(String lastProcessedId) {
+        Query query = Query.query(Criteria.where("status").is(OrderStatusEnum.COMPLETED.getStatus()));
+        if (Objects.nonNull(lastProcessedId)) {
+            query.addCriteria(Criteria.where("_id").gt(new ObjectId(lastProcessedId)));
+        }
+        query.fields().include("created_by", "laboratory_id", "actually_return", "created_date");
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(batchSize);
+        return mongoTemplate.find(query, OrderHistory.class);
+    }
+}
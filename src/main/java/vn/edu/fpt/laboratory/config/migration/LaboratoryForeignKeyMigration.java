@@ -0,0 +1,142 @@
+package vn.edu.fpt.laboratory.config.migration;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import vn.edu.fpt.laboratory.constant.LaboratoryReferenceEnum;
+import vn.edu.fpt.laboratory.entity.MigrationCheckpoint;
+import vn.edu.fpt.laboratory.repository.MigrationCheckpointRepository;
+import vn.edu.fpt.laboratory.utils.DBRefUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Backfills laboratory_id (and project_id on project members) from the DBRef arrays of the
+ * laboratory documents. Laboratories are walked in _id order in small batches and the last
+ * processed id is checkpointed, so a restart resumes where the previous run stopped. Updates
+ * only touch documents without the field, which keeps the run idempotent and safe to execute
+ * on several nodes at the same time.
+ **/
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LaboratoryForeignKeyMigration {
+
+    private static final String MIGRATION_ID = "laboratory_foreign_key";
+    private static final String LABORATORY_COLLECTION = "laboratories";
+
+    private final MongoTemplate mongoTemplate;
+    private final MigrationCheckpointRepository migrationCheckpointRepository;
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+
+    @Value("${app.migration.laboratory-foreign-key.batch-size:100}")
+    private Integer batchSize;
+
+    public boolean isCompleted() {
+        return completed.get();
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        MigrationCheckpoint checkpoint = migrationCheckpointRepository.findById(MIGRATION_ID)
+                .orElseGet(() -> MigrationCheckpoint.builder().migrationId(MIGRATION_ID).build());
+        if (checkpoint.isCompleted()) {
+            completed.set(true);
+            return;
+        }
+        log.info("Start laboratory foreign key migration from: {}", checkpoint.getLastProcessedId());
+        try {
+            List<Document> laboratories = findNextBatch(checkpoint.getLastProcessedId());
+            while (!laboratories.isEmpty()) {
+                backfill(laboratories);
+                checkpoint.setLastProcessedId(laboratories.get(laboratories.size() - 1).getObjectId("_id").toHexString());
+                checkpoint.setProcessed(checkpoint.getProcessed() + laboratories.size());
+                checkpoint.setLastModifiedDate(LocalDateTime.now());
+                migrationCheckpointRepository.save(checkpoint);
+                laboratories = findNextBatch(checkpoint.getLastProcessedId());
+            }
+            checkpoint.setCompleted(true);
+            checkpoint.setLastModifiedDate(LocalDateTime.now());
+            migrationCheckpointRepository.save(checkpoint);
+            completed.set(true);
+            log.info("Laboratory foreign key migration completed: {} laboratories", checkpoint.getProcessed());
+        } catch (Exception ex) {
+            log.error("Laboratory foreign key migration stopped at {}: {}", checkpoint.getLastProcessedId(), ex.getMessage());
+        }
+    }
+
+    private List<Document> findNextBatch(String lastProcessedId) {
+        Query query = new Query();
+        if (Objects.nonNull(lastProcessedId)) {
+            query.addCriteria(Criteria.where("_id").gt(new ObjectId(lastProcessedId)));
+        }
+        for (LaboratoryReferenceEnum reference : LaboratoryReferenceEnum.values()) {
+            query.fields().include(reference.getField());
+        }
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(batchSize);
+        return mongoTemplate.find(query, Document.class, LABORATORY_COLLECTION);
+    }
+
+    private void backfill(List<Document> laboratories) {
+        for (LaboratoryReferenceEnum reference : LaboratoryReferenceEnum.values()) {
+            BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, reference.getCollection());
+            boolean hasUpdate = false;
+            for (Document laboratory : laboratories) {
+                List<Object> ids = DBRefUtils.getReferenceIds(laboratory, reference.getField());
+                if (!ids.isEmpty()) {
+                    bulkOperations.updateMulti(
+                            Query.query(Criteria.where("_id").in(ids).and("laboratory_id").exists(false)),
+                            Update.update("laboratory_id", laboratory.getObjectId("_id").toHexString()));
+                    hasUpdate = true;
+                }
+            }
+            if (hasUpdate) {
+                bulkOperations.execute();
+            }
+        }
+        backfillProjectMembers(laboratories);
+    }
+
+    private void backfillProjectMembers(List<Document> laboratories) {
+        List<Object> projectIds = new ArrayList<>();
+        laboratories.forEach(v -> projectIds.addAll(DBRefUtils.getReferenceIds(v, LaboratoryReferenceEnum.PROJECT.getField())));
+        if (projectIds.isEmpty()) {
+            return;
+        }
+        Query query = Query.query(Criteria.where("_id").in(projectIds));
+        query.fields().include("members");
+        List<Document> projects = mongoTemplate.find(query, Document.class, LaboratoryReferenceEnum.PROJECT.getCollection());
+
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LaboratoryReferenceEnum.MEMBER.getCollection());
+        boolean hasUpdate = false;
+        for (Document project : projects) {
+            List<Object> memberIds = DBRefUtils.getReferenceIds(project, "members");
+            if (!memberIds.isEmpty()) {
+                bulkOperations.updateMulti(
+                        Query.query(Criteria.where("_id").in(memberIds).and("project_id").exists(false)),
+                        Update.update("project_id", project.getObjectId("_id").toHexString()));
+                hasUpdate = true;
+            }
+        }
+        if (hasUpdate) {
+            bulkOperations.execute();
+        }
+    }
+}
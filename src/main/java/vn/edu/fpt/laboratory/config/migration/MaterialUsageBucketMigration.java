@@ -0,0 +1,87 @@
+package vn.edu.fpt.laboratory.config.migration;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import vn.edu.fpt.laboratory.entity.MigrationCheckpoint;
+import vn.edu.fpt.laboratory.repository.MigrationLockRepository;
+import vn.edu.fpt.laboratory.service.MaterialCalendarService;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Builds the hourly usage buckets of the reservations approved before the buckets existed. Only
+ * materials with a borrow time are rebuilt, the run is checkpointed like the laboratory foreign key
+ * migration and rebuilding a material twice gives the same buckets. Only the node holding the lease
+ * of the checkpoint runs it, so the rebuilds of two nodes never overlap.
+ **/
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MaterialUsageBucketMigration {
+
+    private static final String MIGRATION_ID = "material_usage_bucket";
+    private static final String MATERIAL_COLLECTION = "materials";
+
+    private final MongoTemplate mongoTemplate;
+    private final MigrationLockRepository migrationLockRepository;
+    private final MaterialCalendarService materialCalendarService;
+
+    @Value("${app.migration.material-usage-bucket.batch-size:100}")
+    private Integer batchSize;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        Optional<MigrationCheckpoint> locked = migrationLockRepository.tryLock(MIGRATION_ID);
+        if (locked.isEmpty()) {
+            return;
+        }
+        MigrationCheckpoint checkpoint = locked.get();
+        log.info("Start material usage bucket migration from: {}", checkpoint.getLastProcessedId());
+        try {
+            List<Document> materials = findNextBatch(checkpoint.getLastProcessedId());
+            while (!materials.isEmpty()) {
+                for (Document material : materials) {
+                    materialCalendarService.rebuild(material.getObjectId("_id").toHexString());
+                }
+                checkpoint.setLastProcessedId(materials.get(materials.size() - 1).getObjectId("_id").toHexString());
+                checkpoint.setProcessed(checkpoint.getProcessed() + materials.size());
+                if (!migrationLockRepository.saveProgress(checkpoint)) {
+                    log.warn("Material usage bucket migration was taken over by another node at {}", checkpoint.getLastProcessedId());
+                    return;
+                }
+                materials = findNextBatch(checkpoint.getLastProcessedId());
+            }
+            checkpoint.setCompleted(true);
+            migrationLockRepository.saveProgress(checkpoint);
+            log.info("Material usage bucket migration completed: {} materials", checkpoint.getProcessed());
+        } catch (Exception ex) {
+            log.error("Material usage bucket migration stopped at {}: {}", checkpoint.getLastProcessedId(), ex.getMessage());
+        } finally {
+            migrationLockRepository.unlock(MIGRATION_ID);
+        }
+    }
+
+    private List<Document> findNextBatch(String lastProcessedId) {
+        Query query = Query.query(Criteria.where("borrow_time.0").exists(true));
+        if (Objects.nonNull(lastProcessedId)) {
+            query.addCriteria(Criteria.where("_id").gt(new ObjectId(lastProcessedId)));
+        }
+        query.fields().include("_id");
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(batchSize);
+        return mongoTemplate.find(query, Document.class, MATERIAL_COLLECTION);
+    }
+}
@@ -0,0 +1,142 @@
+package vn.edu.fpt.laboratory.config.migration;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import vn.edu.fpt.laboratory.constant.OrderStatusEnum;
+import vn.edu.fpt.laboratory.constant.StatisticMetricEnum;
+import vn.edu.fpt.laboratory.entity.MigrationCheckpoint;
+import vn.edu.fpt.laboratory.entity.StatisticBucket;
+import vn.edu.fpt.laboratory.repository.MigrationLockRepository;
+import vn.edu.fpt.laboratory.service.StatisticService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Fills the daily statistic buckets from the documents written before the buckets were maintained by
+ * statistic events. Everything is counted up to a cutoff fixed by the first run, the statistic events
+ * count what comes after it. Days before the cutoff day are overwritten so a rerun gives the same
+ * buckets, the cutoff day gets the part before the cutoff added once since it also holds events.
+ * Only the node holding the lease of the checkpoint runs it.
+ **/
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StatisticBucketMigration {
+
+    private static final String MIGRATION_ID = "statistic_bucket";
+    private static final long MILLIS_PER_HOUR = 3600000L;
+
+    private final MongoTemplate mongoTemplate;
+    private final MigrationLockRepository migrationLockRepository;
+    private final StatisticService statisticService;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        Optional<MigrationCheckpoint> locked = migrationLockRepository.tryLock(MIGRATION_ID);
+        if (locked.isEmpty()) {
+            return;
+        }
+        MigrationCheckpoint checkpoint = locked.get();
+        try {
+            if (Objects.isNull(checkpoint.getCutoffDate())) {
+                // kept for the reruns, events only cover what happened after the first run started
+                checkpoint.setCutoffDate(LocalDateTime.now());
+                if (!migrationLockRepository.saveProgress(checkpoint)) {
+                    return;
+                }
+            }
+            LocalDateTime cutoff = checkpoint.getCutoffDate();
+            log.info("Start statistic bucket migration before: {}", cutoff);
+            long processed = 0;
+            processed += write(StatisticMetricEnum.LABORATORY, sumByDay("laboratories", new Criteria(), "created_date", 1, cutoff), cutoff);
+            processed += write(StatisticMetricEnum.PROJECT, sumByDay("projects", new Criteria(), "created_date", 1, cutoff), cutoff);
+            processed += write(StatisticMetricEnum.PROJECT_HOURS, sumByDay("projects", new Criteria(), "created_date", projectHours(), cutoff), cutoff);
+            processed += write(StatisticMetricEnum.MATERIAL, sumByDay("materials", new Criteria(), "created_date", 1, cutoff), cutoff);
+            processed += write(StatisticMetricEnum.MEMBER, sumByDay("member_info", new Criteria(), "created_date", 1, cutoff), cutoff);
+            processed += write(StatisticMetricEnum.MATERIAL_BORROWED, sumByDay("borrow_histories",
+                    Criteria.where("status").is(OrderStatusEnum.COMPLETED.getStatus()), "actually_return", "$amount", cutoff), cutoff);
+            checkpoint.setProcessed(processed);
+            checkpoint.setCompleted(true);
+            migrationLockRepository.saveProgress(checkpoint);
+            statisticService.refreshSnapshot();
+            log.info("Statistic bucket migration completed: {} buckets", processed);
+        } catch (Exception ex) {
+            log.error("Statistic bucket migration stopped: {}", ex.getMessage());
+        } finally {
+            migrationLockRepository.unlock(MIGRATION_ID);
+        }
+    }
+
+    private Map<String, Long> sumByDay(String collection, Criteria criteria, String dateField, Object value, LocalDateTime cutoff) {
+        Date before = Date.from(cutoff.atZone(ZoneId.systemDefault()).toInstant());
+        AggregationOperation group = context -> new Document("$group", new Document("_id",
+                new Document("$dateToString", new Document("format", "%Y-%m-%d")
+                        .append("date", "$" + dateField)
+                        .append("timezone", ZoneId.systemDefault().getId())))
+                .append("value", new Document("$sum", value)));
+        List<Document> days = mongoTemplate.aggregate(Aggregation.newAggregation(
+                Aggregation.match(new Criteria().andOperator(criteria, Criteria.where(dateField).lt(before))),
+                group), collection, Document.class).getMappedResults();
+        return days.stream().collect(Collectors.toMap(v -> v.getString("_id"), v -> ((Number) v.get("value")).longValue(), Long::sum, HashMap::new));
+    }
+
+    private Document projectHours() {
+        Document hours = new Document("$divide", List.of(new Document("$subtract", List.of("$to_date", "$start_date")), MILLIS_PER_HOUR));
+        Document hasDates = new Document("$and", List.of(
+                new Document("$gt", Arrays.asList("$start_date", null)),
+                new Document("$gt", Arrays.asList("$to_date", null))));
+        return new Document("$cond", List.of(hasDates, new Document("$max", List.of(0, hours)), 0));
+    }
+
+    private long write(StatisticMetricEnum metric, Map<String, Long> values, LocalDateTime cutoff) {
+        String cutoffDay = cutoff.toLocalDate().toString();
+        Long cutoffDayValue = values.remove(cutoffDay);
+        if (!values.isEmpty()) {
+            BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StatisticBucket.class);
+            values.forEach((day, value) -> bulkOperations.upsert(Query.query(Criteria.where("_id").is(day)), new Update()
+                    .setOnInsert("day", LocalDate.parse(day))
+                    .set(metric.getField(), value)));
+            bulkOperations.execute();
+        }
+        if (Objects.isNull(cutoffDayValue)) {
+            return values.size();
+        }
+        // the cutoff day also holds the events recorded after the cutoff, only the part before it is added
+        // and the marker makes sure a rerun does not add it again
+        Query query = Query.query(Criteria.where("_id").is(cutoffDay).and("backfilled_metrics").ne(metric.getField()));
+        Update update = new Update()
+                .setOnInsert("day", cutoff.toLocalDate())
+                .inc(metric.getField(), cutoffDayValue)
+                .addToSet("backfilled_metrics", metric.getField());
+        try {
+            mongoTemplate.upsert(query, update, StatisticBucket.class);
+        } catch (DuplicateKeyException ex) {
+            log.debug("Statistic bucket {} already has the backfill of {}", cutoffDay, metric.getField());
+        }
+        return values.size() + 1L;
+    }
+}
@@ -0,0 +1,17 @@
+package vn.edu.fpt.laboratory.constant;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.temporal.ChronoUnit;
+
+@RequiredArgsConstructor
+@Getter
+public enum AvailabilityGranularityEnum {
+
+    HOUR("HOUR", ChronoUnit.HOURS),
+    DAY("DAY", ChronoUnit.DAYS);
+
+    private final String granularity;
+    private final ChronoUnit unit;
+}
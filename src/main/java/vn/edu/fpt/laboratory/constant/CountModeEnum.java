@@ -0,0 +1,20 @@
+package vn.edu.fpt.laboratory.constant;
+
+/**
+ * How the total of a paged query is computed.
+ */
+public enum CountModeEnum {
+
+    /**
+     * Counted with the page in the same aggregation.
+     */
+    EXACT,
+    /**
+     * Counted exactly once, then reused from a short lived cache while the filter stays the same.
+     */
+    CACHED,
+    /**
+     * Read from the collection metadata when nothing is filtered, cached otherwise.
+     */
+    ESTIMATED
+}
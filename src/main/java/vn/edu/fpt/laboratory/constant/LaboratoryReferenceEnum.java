@@ -0,0 +1,22 @@
+package vn.edu.fpt.laboratory.constant;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Documents owned by a laboratory: the legacy DBRef array on the laboratory document and the
+ * collection holding the referenced documents, which carry a laboratory_id.
+ **/
+@RequiredArgsConstructor
+@Getter
+public enum LaboratoryReferenceEnum {
+
+    PROJECT("projects", "projects"),
+    MEMBER("members", "member_info"),
+    MATERIAL("materials", "materials"),
+    APPLICATION("application", "application"),
+    ORDER("order", "borrow_histories");
+
+    private final String field;
+    private final String collection;
+}
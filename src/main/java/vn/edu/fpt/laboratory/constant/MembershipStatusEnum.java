@@ -0,0 +1,14 @@
+package vn.edu.fpt.laboratory.constant;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+@Getter
+public enum MembershipStatusEnum {
+
+    MEMBER("MEMBER"),
+    WAITING("WAITING");
+
+    private final String status;
+}
@@ -0,0 +1,21 @@
+package vn.edu.fpt.laboratory.constant;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Counters kept per day in the statistic buckets, the field is the counter in the bucket document.
+ **/
+@RequiredArgsConstructor
+@Getter
+public enum StatisticMetricEnum {
+
+    LABORATORY("num_of_lab"),
+    PROJECT("num_of_project"),
+    PROJECT_HOURS("total_time_of_project"),
+    MATERIAL("num_of_material"),
+    MEMBER("num_of_member"),
+    MATERIAL_BORROWED("num_of_material_borrowed");
+
+    private final String field;
+}
@@ -0,0 +1,15 @@
+package vn.edu.fpt.laboratory.constant;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+@Getter
+public enum TypeaheadTypeEnum {
+
+    LABORATORY("LABORATORY"),
+    MATERIAL("MATERIAL"),
+    PROJECT("PROJECT");
+
+    private final String type;
+}
@@ -47,6 +47,7 @@ public interface AppConfigController {
             @RequestParam(name = "last-modified-date-from", required = false) String lastModifiedDateFrom,
             @RequestParam(name = "last-modified-date-to", required = false) String lastModifiedDateTo,
             @RequestParam(name = "page", required = false) Integer page,
-            @RequestParam(name = "size", required = false) Integer size
+            @RequestParam(name = "size", required = false) Integer size,
+            @RequestParam(name = "cursor", required = false) String cursor
             );
 }
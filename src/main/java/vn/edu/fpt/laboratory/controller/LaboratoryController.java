@@ -9,6 +9,7 @@ import vn.edu.fpt.laboratory.dto.request.laboratory.CreateLaboratoryRequest;
 import vn.edu.fpt.laboratory.dto.request.laboratory.ReviewApplicationRequest;
 import vn.edu.fpt.laboratory.dto.request.laboratory.UpdateLaboratoryRequest;
 import vn.edu.fpt.laboratory.dto.request.material.CreateMaterialRequest;
+import vn.edu.fpt.laboratory.dto.request.material.OrderCartRequest;
 import vn.edu.fpt.laboratory.dto.request.material.OrderMaterialRequest;
 import vn.edu.fpt.laboratory.dto.request.material.UpdateMaterialRequest;
 import vn.edu.fpt.laboratory.dto.request.member.AddMemberToLaboratoryRequest;
@@ -20,6 +21,8 @@ import vn.edu.fpt.laboratory.dto.response.member.GetMemberNotInLabResponse;
 import vn.edu.fpt.laboratory.dto.response.member.GetMemberNotInProjectResponse;
 import vn.edu.fpt.laboratory.dto.response.project.CreateProjectResponse;
 
+import java.util.List;
+
 /**
  * @author : Hoang Lam
  * @product : Charity Management System
@@ -67,8 +70,10 @@ public interface LaboratoryController {
             @RequestParam(name = "lab-name-sort-by", required = false) String labNameSortBy,
             @RequestParam(name = "major", required = false) String major,
             @RequestParam(name = "major-sort-by", required = false) String majorSortBy,
+            @RequestParam(name = "keyword", required = false) String keyword,
             @RequestParam(name = "page", required = false) Integer page,
-            @RequestParam(name = "size", required = false) Integer size
+            @RequestParam(name = "size", required = false) Integer size,
+            @RequestParam(name = "cursor", required = false) String cursor
     );
 
     @GetMapping("/suggestion")
@@ -79,8 +84,10 @@ public interface LaboratoryController {
             @RequestParam(name = "lab-name-sort-by", required = false) String labNameSortBy,
             @RequestParam(name = "major", required = false) String major,
             @RequestParam(name = "major-sort-by", required = false) String majorSortBy,
+            @RequestParam(name = "keyword", required = false) String keyword,
             @RequestParam(name = "page", required = false) Integer page,
-            @RequestParam(name = "size", required = false) Integer size
+            @RequestParam(name = "size", required = false) Integer size,
+            @RequestParam(name = "cursor", required = false) String cursor
     );
 
     @GetMapping("/{lab-id}")
@@ -94,6 +101,7 @@ public interface LaboratoryController {
             @RequestParam(name = "description", required = false) String description,
             @RequestParam(name = "status", required = false) String status,
             @RequestParam(name = "status-sort-by", required = false) String statusSortBy,
+            @RequestParam(name = "keyword", required = false) String keyword,
             @RequestParam(name = "created-by", required = false) String createdBy,
             @RequestParam(name = "created-date-from", required = false) String createdDateFrom,
             @RequestParam(name = "created-date-to", required = false) String createdDateTo,
@@ -104,8 +112,21 @@ public interface LaboratoryController {
             @RequestParam(name = "last-modified-date-sort-by", required = false) String lastModifiedDateSortBy,
             @RequestParam(name = "page", required = false) Integer page,
             @RequestParam(name = "size", required = false) Integer size,
+            @RequestParam(name = "cursor", required = false) String cursor,
             @PathVariable(name = "lab-id", required = false) String labId
     );
+    @GetMapping("/{lab-id}/materials/availability")
+    ResponseEntity<GeneralResponse<List<GetMaterialAvailabilityResponse>>> getLaboratoryAvailability(@PathVariable(name = "lab-id") String labId,
+                                                                                                     @RequestParam(name = "from") String from,
+                                                                                                     @RequestParam(name = "to") String to,
+                                                                                                     @RequestParam(name = "granularity", required = false) String granularity);
+
+    @GetMapping("/{lab-id}/materials/trending")
+    ResponseEntity<GeneralResponse<List<GetTrendingMaterialResponse>>> getTrendingMaterials(@PathVariable(name = "lab-id") String labId);
+
+    @GetMapping("/{lab-id}/analytics")
+    ResponseEntity<GeneralResponse<GetLaboratoryAnalyticsResponse>> getLaboratoryAnalytics(@PathVariable(name = "lab-id") String labId);
+
     @GetMapping("/{lab-id}/members")
     ResponseEntity<GeneralResponse<PageableResponse<GetMemberResponse>>> getMemberInLaboratory(
             @PathVariable(name = "lab-id") String labId,
@@ -121,7 +142,8 @@ public interface LaboratoryController {
             @RequestParam(name = "last-modified-to", required = false) String lastModifiedDateTo,
             @RequestParam(name = "last-modified-date-sort-by", required = false) String lastModifiedDateSortBy,
             @RequestParam(name = "page", required = false) Integer page,
-            @RequestParam(name = "size", required = false) Integer size);
+            @RequestParam(name = "size", required = false) Integer size,
+            @RequestParam(name = "cursor", required = false) String cursor);
 
     @DeleteMapping("/{lab-id}/members/{member-id}")
     ResponseEntity<GeneralResponse<Object>> removeMemberFromLaboratory(@PathVariable(name = "lab-id") String labId, @PathVariable(name = "member-id") String memberId);
@@ -147,7 +169,8 @@ public interface LaboratoryController {
             @RequestParam(name = "last-modified-to", required = false) String lastModifiedDateTo,
             @RequestParam(name = "last-modified-date-sort-by", required = false) String lastModifiedDateSortBy,
             @RequestParam(name = "page", required = false) Integer page,
-            @RequestParam(name = "size", required = false) Integer size);
+            @RequestParam(name = "size", required = false) Integer size,
+            @RequestParam(name = "cursor", required = false) String cursor);
 
     @GetMapping("/applications/{application-id}")
     ResponseEntity<GeneralResponse<GetApplicationDetailResponse>> getApplicationByApplicationId(@PathVariable(name = "application-id") String applicationId);
@@ -163,6 +186,10 @@ public interface LaboratoryController {
                                                                          @PathVariable(name = "material-id") String materialId,
                                                                          @RequestBody OrderMaterialRequest request);
 
+    @PostMapping("/{lab-id}/orders")
+    ResponseEntity<GeneralResponse<OrderCartResponse>> orderCart(@PathVariable(name = "lab-id") String labId,
+                                                                 @RequestBody OrderCartRequest request);
+
     @GetMapping("/{lab-id}/orders")
     ResponseEntity<GeneralResponse<PageableResponse<GetOrderedResponse>>> getOrderByLabId(
             @PathVariable(name = "lab-id") String labId,
@@ -180,12 +207,18 @@ public interface LaboratoryController {
             @RequestParam(name = "last-modified-date-to", required = false) String lastModifiedDateTo,
             @RequestParam(name = "last-modified-date-sort-by", required = false) String lastModifiedDateSortBy,
             @RequestParam(name = "page", required = false) Integer page,
-            @RequestParam(name = "size", required = false) Integer size);
+            @RequestParam(name = "size", required = false) Integer size,
+            @RequestParam(name = "cursor", required = false) String cursor);
 
     @GetMapping("/{lab-id}/{account-id}/materials")
     ResponseEntity<GeneralResponse<PageableResponse<GetOrderedMaterialResponse>>> getOrderedMaterialInLabByAccountId(
             @PathVariable(name = "lab-id") String labId,
-            @PathVariable(name = "account-id") String accountId);
+            @PathVariable(name = "account-id") String accountId,
+            @RequestParam(name = "status", required = false) String status,
+            @RequestParam(name = "order-from-sort-by", required = false) String orderFromSortBy,
+            @RequestParam(name = "page", required = false) Integer page,
+            @RequestParam(name = "size", required = false) Integer size,
+            @RequestParam(name = "cursor", required = false) String cursor);
 
     @GetMapping("/{lab-id}/members/not-in")
     ResponseEntity<GeneralResponse<PageableResponse<GetMemberNotInLabResponse>>> getMemberNotInLab(@PathVariable(name = "lab-id") String labId,
@@ -210,6 +243,7 @@ public interface LaboratoryController {
             @RequestParam(name = "major", required = false) String major,
             @RequestParam(name = "major-sort-by", required = false) String majorSortBy,
             @RequestParam(name = "page", required = false) Integer page,
-            @RequestParam(name = "size", required = false) Integer size
+            @RequestParam(name = "size", required = false) Integer size,
+            @RequestParam(name = "cursor", required = false) String cursor
     );
 }
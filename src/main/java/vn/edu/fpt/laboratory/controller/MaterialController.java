@@ -7,6 +7,8 @@ import vn.edu.fpt.laboratory.dto.common.PageableResponse;
 import vn.edu.fpt.laboratory.dto.request.material.*;
 import vn.edu.fpt.laboratory.dto.response.material.*;
 
+import java.util.List;
+
 /**
  * @author : Hoang Lam
  * @product : Charity Management System
@@ -26,10 +28,22 @@ public interface MaterialController {
     @GetMapping("/{material-id}")
     ResponseEntity<GeneralResponse<GetMaterialDetailResponse>> getMaterialId(@PathVariable(name = "material-id") String materialId);
 
+    @GetMapping("/trending")
+    ResponseEntity<GeneralResponse<List<GetTrendingMaterialResponse>>> getTrendingMaterials();
+
+    @GetMapping("/{material-id}/availability")
+    ResponseEntity<GeneralResponse<GetMaterialAvailabilityResponse>> getMaterialAvailability(@PathVariable(name = "material-id") String materialId,
+                                                                                             @RequestParam(name = "from") String from,
+                                                                                             @RequestParam(name = "to") String to,
+                                                                                             @RequestParam(name = "granularity", required = false) String granularity);
+
     @PostMapping("/orders/{order-id}")
     ResponseEntity<GeneralResponse<Object>> returnMaterial(@PathVariable(name = "order-id") String orderId);
 
 
+    @PutMapping("/orders")
+    ResponseEntity<GeneralResponse<BulkResponseOrderResponse>> responseOrders(@RequestBody BulkResponseOrderRequest request);
+
     @PutMapping("/{order-id}")
     ResponseEntity<GeneralResponse<Object>> responseOrder(@PathVariable(name = "order-id") String orderId, @RequestBody ResponseOrderRequest request);
 
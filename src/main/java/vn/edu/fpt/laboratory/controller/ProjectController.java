@@ -25,6 +25,7 @@ public interface ProjectController {
             @RequestParam(name = "project-name", required = false) String projectName,
             @RequestParam(name = "project-name-sort-by", required = false) String projectNameSortBy,
             @RequestParam(name = "description", required = false) String description,
+            @RequestParam(name = "keyword", required = false) String keyword,
             @RequestParam(name = "start-date-from", required = false) String startDateFrom,
             @RequestParam(name = "start-date-to", required = false) String startDateTo,
             @RequestParam(name = "start-date-sort-by", required = false) String startDateSortBy,
@@ -40,7 +41,8 @@ public interface ProjectController {
             @RequestParam(name = "last-modified-date-to", required = false) String lastModifiedDateTo,
             @RequestParam(name = "last-modified-date-sort-by", required = false) String lastModifiedDateSortBy,
             @RequestParam(name = "page", required = false) Integer page,
-            @RequestParam(name = "size", required = false) Integer size
+            @RequestParam(name = "size", required = false) Integer size,
+            @RequestParam(name = "cursor", required = false) String cursor
 
     );
 
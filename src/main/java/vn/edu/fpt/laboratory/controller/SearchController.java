@@ -0,0 +1,20 @@
+package vn.edu.fpt.laboratory.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import vn.edu.fpt.laboratory.dto.common.GeneralResponse;
+import vn.edu.fpt.laboratory.dto.response.search.GetTypeaheadResponse;
+
+import java.util.List;
+
+@RequestMapping("${app.application-context}/public/api/v1/search")
+public interface SearchController {
+
+    @GetMapping("/typeahead")
+    ResponseEntity<GeneralResponse<List<GetTypeaheadResponse>>> getTypeahead(@RequestParam(name = "keyword") String keyword,
+                                                                            @RequestParam(name = "type", required = false) String type,
+                                                                            @RequestParam(name = "laboratory-id", required = false) String laboratoryId,
+                                                                            @RequestParam(name = "size", required = false) Integer size);
+}
@@ -1,15 +1,28 @@
 package vn.edu.fpt.laboratory.controller;
 
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import vn.edu.fpt.laboratory.dto.common.GeneralResponse;
+import vn.edu.fpt.laboratory.dto.response.dashboard.GetDailyStatisticResponse;
+import vn.edu.fpt.laboratory.dto.response.dashboard.GetDistinctBorrowerResponse;
 import vn.edu.fpt.laboratory.dto.response.dashboard.GetStatisticsResponse;
+
+import java.util.List;
+
 @RequestMapping("${app.application-context}/public/api/v1/statistics")
 public interface StatisticController {
 
     @GetMapping
     ResponseEntity<GeneralResponse<GetStatisticsResponse>> getLabStatistic();
+
+    @GetMapping("/daily")
+    ResponseEntity<GeneralResponse<List<GetDailyStatisticResponse>>> getDailyStatistic(@RequestParam(name = "from") String from,
+                                                                                     @RequestParam(name = "to") String to);
+
+    @GetMapping("/borrowers")
+    ResponseEntity<GeneralResponse<GetDistinctBorrowerResponse>> getDistinctBorrowers(@RequestParam(name = "laboratory-id", required = false) String laboratoryId,
+                                                                                     @RequestParam(name = "from", required = false) String from,
+                                                                                     @RequestParam(name = "to", required = false) String to);
 }
@@ -72,7 +72,8 @@ public class AppConfigControllerImpl implements AppConfigController {
                                                                                                 String lastModifiedDateFrom,
                                                                                                 String lastModifiedDateTo,
                                                                                                 Integer page,
-                                                                                                Integer size) {
+                                                                                                Integer size,
+                                                                                                String cursor) {
         List<SortableRequest> sortableRequests = new ArrayList<>();
         if(Objects.nonNull(configKeySortBy)) {
             sortableRequests.add(new SortableRequest("config_key", configKeySortBy));
@@ -93,6 +94,7 @@ public class AppConfigControllerImpl implements AppConfigController {
                 .sortBy(sortableRequests)
                 .page(page)
                 .size(size)
+                .cursor(cursor)
                 .build();
 
         return responseFactory.response(appConfigService.getAppConfig(request));
@@ -11,7 +11,10 @@ import vn.edu.fpt.laboratory.dto.common.PageableResponse;
 import vn.edu.fpt.laboratory.dto.common.SortableRequest;
 import vn.edu.fpt.laboratory.dto.request.laboratory.*;
 import vn.edu.fpt.laboratory.dto.request.material.CreateMaterialRequest;
+import vn.edu.fpt.laboratory.dto.request.material.GetAvailabilityRequest;
 import vn.edu.fpt.laboratory.dto.request.material.GetMaterialRequest;
+import vn.edu.fpt.laboratory.dto.request.material.GetOrderedMaterialRequest;
+import vn.edu.fpt.laboratory.dto.request.material.OrderCartRequest;
 import vn.edu.fpt.laboratory.dto.request.material.OrderMaterialRequest;
 import vn.edu.fpt.laboratory.dto.request.material.UpdateMaterialRequest;
 import vn.edu.fpt.laboratory.dto.request.member.AddMemberToLaboratoryRequest;
@@ -24,10 +27,14 @@ import vn.edu.fpt.laboratory.dto.response.member.GetMemberNotInLabResponse;
 import vn.edu.fpt.laboratory.dto.response.member.GetMemberNotInProjectResponse;
 import vn.edu.fpt.laboratory.dto.response.project.CreateProjectResponse;
 import vn.edu.fpt.laboratory.factory.ResponseFactory;
+import vn.edu.fpt.laboratory.service.LaboratoryAnalyticsService;
 import vn.edu.fpt.laboratory.service.LaboratoryService;
+import vn.edu.fpt.laboratory.service.MaterialCalendarService;
 import vn.edu.fpt.laboratory.service.MaterialService;
 import vn.edu.fpt.laboratory.service.MemberInfoService;
 import vn.edu.fpt.laboratory.service.ProjectService;
+import vn.edu.fpt.laboratory.service.TrendingMaterialService;
+import vn.edu.fpt.laboratory.utils.DateTimeConverter;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -50,6 +57,9 @@ public class LaboratoryControllerImpl implements LaboratoryController {
     private final ProjectService projectService;
     private final MaterialService materialService;
     private final MemberInfoService memberInfoService;
+    private final MaterialCalendarService materialCalendarService;
+    private final LaboratoryAnalyticsService laboratoryAnalyticsService;
+    private final TrendingMaterialService trendingMaterialService;
 
     @Override
     public ResponseEntity<GeneralResponse<CreateLaboratoryResponse>> createLaboratory(CreateLaboratoryRequest request) {
@@ -103,8 +113,10 @@ public class LaboratoryControllerImpl implements LaboratoryController {
             String labNameSortBy,
             String major,
             String majorSortBy,
+            String keyword,
             Integer page,
-            Integer size) {
+            Integer size,
+            String cursor) {
         List<SortableRequest> sortableRequests = new ArrayList<>();
         if(Objects.nonNull(labNameSortBy)){
             sortableRequests.add(new SortableRequest("laboratory_name", labNameSortBy));
@@ -118,8 +130,10 @@ public class LaboratoryControllerImpl implements LaboratoryController {
                 .accountId(accountId)
                 .laboratoryName(labName)
                 .major(major)
+                .keyword(keyword)
                 .page(page)
                 .size(size)
+                .cursor(cursor)
                 .sortBy(sortableRequests)
                 .build();
         return responseFactory.response(laboratoryService.getLaboratory(request));
@@ -132,8 +146,10 @@ public class LaboratoryControllerImpl implements LaboratoryController {
                                                                                                     String labNameSortBy,
                                                                                                     String major,
                                                                                                     String majorSortBy,
+                                                                                                    String keyword,
                                                                                                     Integer page,
-                                                                                                    Integer size) {
+                                                                                                    Integer size,
+                                                                                                    String cursor) {
         List<SortableRequest> sortableRequests = new ArrayList<>();
         if(Objects.nonNull(labNameSortBy)){
             sortableRequests.add(new SortableRequest("laboratory_name", labNameSortBy));
@@ -147,8 +163,10 @@ public class LaboratoryControllerImpl implements LaboratoryController {
                 .accountId(accountId)
                 .laboratoryName(labName)
                 .major(major)
+                .keyword(keyword)
                 .page(page)
                 .size(size)
+                .cursor(cursor)
                 .sortBy(sortableRequests)
                 .build();
         return responseFactory.response(laboratoryService.getLaboratorySuggestion(request));
@@ -166,6 +184,7 @@ public class LaboratoryControllerImpl implements LaboratoryController {
                                                                                               String description,
                                                                                               String status,
                                                                                               String statusSortBy,
+                                                                                              String keyword,
                                                                                               String createdBy,
                                                                                               String createdDateFrom,
                                                                                               String createdDateTo,
@@ -176,6 +195,7 @@ public class LaboratoryControllerImpl implements LaboratoryController {
                                                                                               String lastModifiedDateSortBy,
                                                                                               Integer page,
                                                                                               Integer size,
+                                                                                              String cursor,
                                                                                               String labId) {
         List<SortableRequest> sortableRequests = new ArrayList<>();
         if (Objects.nonNull(materialNameSortBy)) {
@@ -196,6 +216,7 @@ public class LaboratoryControllerImpl implements LaboratoryController {
                 .materialName(materialName)
                 .description(description)
                 .status(status)
+                .keyword(keyword)
                 .createdBy(createdBy)
                 .createdDateFrom(createdDateFrom)
                 .createdDateTo(createdDateTo)
@@ -204,12 +225,33 @@ public class LaboratoryControllerImpl implements LaboratoryController {
                 .lastModifiedDateTo(lastModifiedDateTo)
                 .page(page)
                 .size(size)
+                .cursor(cursor)
                 .sortBy(sortableRequests)
                 .build();
         return responseFactory.response(materialService.getMaterial(request));
     }
 
 
+    @Override
+    public ResponseEntity<GeneralResponse<List<GetMaterialAvailabilityResponse>>> getLaboratoryAvailability(String labId, String from, String to, String granularity) {
+        GetAvailabilityRequest request = GetAvailabilityRequest.builder()
+                .from(DateTimeConverter.toLocaleDate(from))
+                .to(DateTimeConverter.toLocaleDate(to))
+                .granularity(granularity)
+                .build();
+        return responseFactory.response(materialCalendarService.getLaboratoryAvailability(labId, request));
+    }
+
+    @Override
+    public ResponseEntity<GeneralResponse<List<GetTrendingMaterialResponse>>> getTrendingMaterials(String labId) {
+        return responseFactory.response(trendingMaterialService.getTrendingMaterials(labId));
+    }
+
+    @Override
+    public ResponseEntity<GeneralResponse<GetLaboratoryAnalyticsResponse>> getLaboratoryAnalytics(String labId) {
+        return responseFactory.response(laboratoryAnalyticsService.getLaboratoryAnalytics(labId));
+    }
+
     @Override
     public ResponseEntity<GeneralResponse<PageableResponse<GetMemberResponse>>> getMemberInLaboratory(String labId,
                                                                                                       String memberId,
@@ -224,7 +266,8 @@ public class LaboratoryControllerImpl implements LaboratoryController {
                                                                                                       String lastModifiedDateTo,
                                                                                                       String lastModifiedDateSortBy,
                                                                                                       Integer page,
-                                                                                                      Integer size) {
+                                                                                                      Integer size,
+                                                                                                      String cursor) {
         List<SortableRequest> sortableRequests = new ArrayList<>();
         if(Objects.nonNull(roleSortBy)) {
             sortableRequests.add(new SortableRequest("role", roleSortBy));
@@ -246,6 +289,7 @@ public class LaboratoryControllerImpl implements LaboratoryController {
                 .lastModifiedDateTo(lastModifiedDateTo)
                 .page(page)
                 .size(size)
+                .cursor(cursor)
                 .sortBy(sortableRequests)
                 .build();
         return responseFactory.response(laboratoryService.getMemberInLab(labId, request));
@@ -282,7 +326,8 @@ public class LaboratoryControllerImpl implements LaboratoryController {
                                                                                                            String lastModifiedDateTo,
                                                                                                            String lastModifiedDateSortBy,
                                                                                                            Integer page,
-                                                                                                           Integer size) {
+                                                                                                           Integer size,
+                                                                                                           String cursor) {
         List<SortableRequest> sortableRequests = new ArrayList<>();
         if(Objects.nonNull(statusSortBy)) {
             sortableRequests.add(new SortableRequest("status", statusSortBy));
@@ -303,6 +348,7 @@ public class LaboratoryControllerImpl implements LaboratoryController {
                 .lastModifiedDateTo(lastModifiedDateTo)
                 .page(page)
                 .size(size)
+                .cursor(cursor)
                 .sortBy(sortableRequests)
                 .build();
         return responseFactory.response(laboratoryService.getApplicationByLabId(labId, request));
@@ -329,6 +375,11 @@ public class LaboratoryControllerImpl implements LaboratoryController {
         return responseFactory.response(materialService.orderMaterial(labId, materialId, request), ResponseStatusEnum.SUCCESS);
     }
 
+    @Override
+    public ResponseEntity<GeneralResponse<OrderCartResponse>> orderCart(String labId, OrderCartRequest request) {
+        return responseFactory.response(materialService.orderCart(labId, request), ResponseStatusEnum.SUCCESS);
+    }
+
     @Override
     public ResponseEntity<GeneralResponse<PageableResponse<GetOrderedResponse>>> getOrderByLabId(
             String labId,
@@ -346,7 +397,8 @@ public class LaboratoryControllerImpl implements LaboratoryController {
             String lastModifiedDateTo,
             String lastModifiedDateSortBy,
             Integer page,
-            Integer size) {
+            Integer size,
+            String cursor) {
         List<SortableRequest> sortableRequests = new ArrayList<>();
         if (Objects.nonNull(materialNameSortBy)) {
             sortableRequests.add(new SortableRequest("material_name", materialNameSortBy));
@@ -372,6 +424,7 @@ public class LaboratoryControllerImpl implements LaboratoryController {
                 .lastModifiedDateTo(lastModifiedDateTo)
                 .page(page)
                 .size(size)
+                .cursor(cursor)
                 .sortBy(sortableRequests)
                 .build();
         return responseFactory.response(materialService.getOrderByLabId(labId, request));
@@ -380,9 +433,22 @@ public class LaboratoryControllerImpl implements LaboratoryController {
     @Override
     public ResponseEntity<GeneralResponse<PageableResponse<GetOrderedMaterialResponse>>> getOrderedMaterialInLabByAccountId(
             String labId,
-            String accountId) {
-
-        return responseFactory.response(materialService.getOrderedMaterialInLabByAccountId(labId, accountId));
+            String accountId,
+            String status,
+            String orderFromSortBy,
+            Integer page,
+            Integer size,
+            String cursor) {
+        List<SortableRequest> sortableRequests = new ArrayList<>();
+        sortableRequests.add(new SortableRequest("order_from", orderFromSortBy));
+        GetOrderedMaterialRequest request = GetOrderedMaterialRequest.builder()
+                .status(status)
+                .page(page)
+                .size(size)
+                .cursor(cursor)
+                .sortBy(sortableRequests)
+                .build();
+        return responseFactory.response(materialService.getOrderedMaterialInLabByAccountId(labId, accountId, request));
     }
 
     @Override
@@ -403,7 +469,7 @@ public class LaboratoryControllerImpl implements LaboratoryController {
     }
 
     @Override
-    public ResponseEntity<GeneralResponse<PageableResponse<GetLaboratoryResponse>>> getWaitingLaboratory(String labId, String accountId, String labName, String labNameSortBy, String major, String majorSortBy, Integer page, Integer size) {
+    public ResponseEntity<GeneralResponse<PageableResponse<GetLaboratoryResponse>>> getWaitingLaboratory(String labId, String accountId, String labName, String labNameSortBy, String major, String majorSortBy, Integer page, Integer size, String cursor) {
         List<SortableRequest> sortableRequests = new ArrayList<>();
         if(Objects.nonNull(labNameSortBy)){
             sortableRequests.add(new SortableRequest("laboratory_name", labNameSortBy));
@@ -419,6 +485,7 @@ public class LaboratoryControllerImpl implements LaboratoryController {
                 .major(major)
                 .page(page)
                 .size(size)
+                .cursor(cursor)
                 .sortBy(sortableRequests)
                 .build();
         return responseFactory.response(laboratoryService.getLaboratoryWaiting(request));
@@ -13,7 +13,10 @@ import vn.edu.fpt.laboratory.dto.request.laboratory.GetOrderRequest;
 import vn.edu.fpt.laboratory.dto.request.material.*;
 import vn.edu.fpt.laboratory.dto.response.material.*;
 import vn.edu.fpt.laboratory.factory.ResponseFactory;
+import vn.edu.fpt.laboratory.service.MaterialCalendarService;
 import vn.edu.fpt.laboratory.service.MaterialService;
+import vn.edu.fpt.laboratory.service.TrendingMaterialService;
+import vn.edu.fpt.laboratory.utils.DateTimeConverter;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -35,6 +38,9 @@ public class MaterialControllerImpl implements MaterialController {
 
     private final MaterialService materialService;
 
+    private final MaterialCalendarService materialCalendarService;
+    private final TrendingMaterialService trendingMaterialService;
+
 
     @Override
     public ResponseEntity<GeneralResponse<Object>> removeImage(String materialId, String imageId) {
@@ -53,6 +59,21 @@ public class MaterialControllerImpl implements MaterialController {
         return responseFactory.response(materialService.getMaterialById(materialId));
     }
 
+    @Override
+    public ResponseEntity<GeneralResponse<List<GetTrendingMaterialResponse>>> getTrendingMaterials() {
+        return responseFactory.response(trendingMaterialService.getTrendingMaterials(null));
+    }
+
+    @Override
+    public ResponseEntity<GeneralResponse<GetMaterialAvailabilityResponse>> getMaterialAvailability(String materialId, String from, String to, String granularity) {
+        GetAvailabilityRequest request = GetAvailabilityRequest.builder()
+                .from(DateTimeConverter.toLocaleDate(from))
+                .to(DateTimeConverter.toLocaleDate(to))
+                .granularity(granularity)
+                .build();
+        return responseFactory.response(materialCalendarService.getMaterialAvailability(materialId, request));
+    }
+
     @Override
     public ResponseEntity<GeneralResponse<Object>> returnMaterial(String orderId) {
         materialService.returnMaterial(orderId);
@@ -64,4 +85,9 @@ public class MaterialControllerImpl implements MaterialController {
         materialService.responseOrder(orderId, request);
         return responseFactory.response(ResponseStatusEnum.SUCCESS);
     }
+
+    @Override
+    public ResponseEntity<GeneralResponse<BulkResponseOrderResponse>> responseOrders(BulkResponseOrderRequest request) {
+        return responseFactory.response(materialService.responseOrders(request));
+    }
 }
@@ -47,6 +47,7 @@ public class ProjectControllerImpl implements ProjectController {
                                                                                             String projectName,
                                                                                             String projectNameSortBy,
                                                                                             String description,
+                                                                                            String keyword,
                                                                                             String startDateFrom,
                                                                                             String startDateTo,
                                                                                             String startDateSortBy,
@@ -62,7 +63,8 @@ public class ProjectControllerImpl implements ProjectController {
                                                                                             String lastModifiedDateTo,
                                                                                             String lastModifiedDateSortBy,
                                                                                             Integer page,
-                                                                                            Integer size) {
+                                                                                            Integer size,
+                                                                                            String cursor) {
         List<SortableRequest> sortableRequests = new ArrayList<>();
         if(Objects.nonNull(projectNameSortBy)){
             sortableRequests.add(new SortableRequest("project_name", projectNameSortBy));
@@ -83,6 +85,7 @@ public class ProjectControllerImpl implements ProjectController {
                 .projectId(projectId)
                 .projectName(projectName)
                 .description(description)
+                .keyword(keyword)
                 .startDateFrom(startDateFrom)
                 .startDateTo(startDateTo)
                 .toDateFrom(toDateFrom)
@@ -95,6 +98,7 @@ public class ProjectControllerImpl implements ProjectController {
                 .lastModifiedDateTo(lastModifiedDateTo)
                 .page(page)
                 .size(size)
+                .cursor(cursor)
                 .sortBy(sortableRequests)
                 .build();
         return responseFactory.response(projectService.getProjectByCondition(request));
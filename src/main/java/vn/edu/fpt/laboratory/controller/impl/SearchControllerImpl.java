@@ -0,0 +1,34 @@
+package vn.edu.fpt.laboratory.controller.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+import vn.edu.fpt.laboratory.controller.SearchController;
+import vn.edu.fpt.laboratory.dto.common.GeneralResponse;
+import vn.edu.fpt.laboratory.dto.request.search.GetTypeaheadRequest;
+import vn.edu.fpt.laboratory.dto.response.search.GetTypeaheadResponse;
+import vn.edu.fpt.laboratory.factory.ResponseFactory;
+import vn.edu.fpt.laboratory.service.TypeaheadService;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+public class SearchControllerImpl implements SearchController {
+
+    private final ResponseFactory responseFactory;
+    private final TypeaheadService typeaheadService;
+
+    @Override
+    public ResponseEntity<GeneralResponse<List<GetTypeaheadResponse>>> getTypeahead(String keyword, String type, String laboratoryId, Integer size) {
+        GetTypeaheadRequest request = GetTypeaheadRequest.builder()
+                .keyword(keyword)
+                .type(type)
+                .laboratoryId(laboratoryId)
+                .size(size)
+                .build();
+        return responseFactory.response(typeaheadService.getTypeahead(request));
+    }
+}
@@ -6,10 +6,17 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import vn.edu.fpt.laboratory.controller.StatisticController;
 import vn.edu.fpt.laboratory.dto.common.GeneralResponse;
+import vn.edu.fpt.laboratory.dto.request.dashboard.GetDailyStatisticRequest;
+import vn.edu.fpt.laboratory.dto.request.dashboard.GetDistinctBorrowerRequest;
+import vn.edu.fpt.laboratory.dto.response.dashboard.GetDailyStatisticResponse;
+import vn.edu.fpt.laboratory.dto.response.dashboard.GetDistinctBorrowerResponse;
 import vn.edu.fpt.laboratory.dto.response.dashboard.GetStatisticsResponse;
 import vn.edu.fpt.laboratory.factory.ResponseFactory;
-import vn.edu.fpt.laboratory.repository.StatisticRepository;
 import vn.edu.fpt.laboratory.service.StatisticService;
+import vn.edu.fpt.laboratory.utils.DateTimeConverter;
+
+import java.util.List;
+import java.util.Objects;
 
 @RestController
 @RequiredArgsConstructor
@@ -24,4 +31,23 @@ public class StatisticControllerImpl implements StatisticController {
 
         return responseFactory.response(statisticService.getStatistic());
     }
+
+    @Override
+    public ResponseEntity<GeneralResponse<List<GetDailyStatisticResponse>>> getDailyStatistic(String from, String to) {
+        GetDailyStatisticRequest request = GetDailyStatisticRequest.builder()
+                .from(DateTimeConverter.toLocaleDate(from))
+                .to(DateTimeConverter.toLocaleDate(to))
+                .build();
+        return responseFactory.response(statisticService.getDailyStatistic(request));
+    }
+
+    @Override
+    public ResponseEntity<GeneralResponse<GetDistinctBorrowerResponse>> getDistinctBorrowers(String laboratoryId, String from, String to) {
+        GetDistinctBorrowerRequest request = GetDistinctBorrowerRequest.builder()
+                .laboratoryId(laboratoryId)
+                .from(Objects.isNull(from) ? null : DateTimeConverter.toLocaleDate(from))
+                .to(Objects.isNull(to) ? null : DateTimeConverter.toLocaleDate(to))
+                .build();
+        return responseFactory.response(statisticService.getDistinctBorrowers(request));
+    }
 }
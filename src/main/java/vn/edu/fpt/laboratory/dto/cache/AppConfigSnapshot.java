@@ -0,0 +1,43 @@
+package vn.edu.fpt.laboratory.dto.cache;
+
+import lombok.Getter;
+import vn.edu.fpt.laboratory.entity.AppConfig;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable copy of every app config at a given version. A reload builds a new snapshot and swaps it in
+ * as a whole, so a reader never sees half of an update.
+ **/
+@Getter
+public class AppConfigSnapshot {
+
+    public static final AppConfigSnapshot EMPTY = new AppConfigSnapshot(-1L, Map.of());
+
+    private final Long version;
+    private final Map<String, String> values;
+
+    private AppConfigSnapshot(Long version, Map<String, String> values) {
+        this.version = version;
+        this.values = values;
+    }
+
+    public static AppConfigSnapshot of(Long version, Collection<AppConfig> appConfigs) {
+        Map<String, String> values = appConfigs.stream()
+                .filter(v -> Objects.nonNull(v.getConfigKey()) && Objects.nonNull(v.getConfigValue()))
+                .collect(Collectors.toUnmodifiableMap(AppConfig::getConfigKey, AppConfig::getConfigValue, (first, second) -> first));
+        return new AppConfigSnapshot(version, values);
+    }
+
+    public Optional<String> getValue(String configKey) {
+        return Optional.ofNullable(values.get(configKey));
+    }
+
+    public boolean isNotOlderThan(AppConfigSnapshot other) {
+        return version >= other.getVersion();
+    }
+}
@@ -0,0 +1,17 @@
+package vn.edu.fpt.laboratory.dto.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Authentication built from a token whose signature and header were already checked, kept until the
+ * token expires.
+ **/
+@Getter
+@AllArgsConstructor
+public class VerifiedToken {
+
+    private final Authentication authentication;
+    private final Long expiresAt;
+}
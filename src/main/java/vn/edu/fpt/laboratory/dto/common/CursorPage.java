@@ -0,0 +1,16 @@
+package vn.edu.fpt.laboratory.dto.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Documents of one page read in cursor mode and the token of the page after it, null on the last page.
+ */
+@AllArgsConstructor
+@Getter
+public class CursorPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+}
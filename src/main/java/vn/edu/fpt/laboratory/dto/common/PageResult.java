@@ -0,0 +1,16 @@
+package vn.edu.fpt.laboratory.dto.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Documents of one page and the number of documents matching the filter of every page.
+ */
+@AllArgsConstructor
+@Getter
+public class PageResult<T> {
+    private final List<T> items;
+    private final Long totalElements;
+}
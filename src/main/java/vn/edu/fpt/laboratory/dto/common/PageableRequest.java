@@ -27,6 +27,10 @@ public abstract class PageableRequest implements Serializable {
     protected Integer page;
     protected Integer size;
     protected List<SortableRequest> sortBy;
+    /**
+     * Continuation token of the previous page in cursor mode, empty for the first page. Null keeps page numbers.
+     */
+    protected String cursor;
 
     public Integer getPage() {
         return Objects.nonNull(page) && page > 0 ? page : AppConstant.PAGE_DEFAULT;
@@ -39,4 +43,8 @@ public abstract class PageableRequest implements Serializable {
     public List<SortableRequest> getSortBy() {
         return sortBy;
     }
+
+    public boolean isCursorMode() {
+        return Objects.nonNull(cursor);
+    }
 }
@@ -1,5 +1,6 @@
 package vn.edu.fpt.laboratory.dto.common;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -27,6 +28,8 @@ public class PageableResponse<T> implements Serializable {
     private Integer totalPage;
     private Integer numberOfElements;
     private List<T> items;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
 
     public PageableResponse(List<T> items) {
         this.currentPage = 1;
@@ -43,6 +46,17 @@ public class PageableResponse<T> implements Serializable {
         this.items = items;
     }
 
+    /**
+     * Page of the cursor mode, there is no total since counting is what this mode avoids. The next cursor
+     * is null on the last page.
+     */
+    public PageableResponse(PageableRequest pageable, String nextCursor, List<T> items) {
+        this.currentSize = pageable.getSize();
+        this.numberOfElements = items.size();
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
     public PageableResponse(Integer page, Integer size, Long totalElements, List<T> items) {
         this.currentPage = page+1;
         this.currentSize = size;
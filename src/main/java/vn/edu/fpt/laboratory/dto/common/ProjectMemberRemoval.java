@@ -0,0 +1,20 @@
+package vn.edu.fpt.laboratory.dto.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Projects an account was removed from, and the ones among them deleted because no member was left.
+ */
+@AllArgsConstructor
+@Getter
+public class ProjectMemberRemoval {
+    private final List<String> affectedProjectIds;
+    private final List<String> deletedProjectIds;
+
+    public static ProjectMemberRemoval empty() {
+        return new ProjectMemberRemoval(List.of(), List.of());
+    }
+}
@@ -0,0 +1,29 @@
+package vn.edu.fpt.laboratory.dto.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Singular;
+import vn.edu.fpt.laboratory.constant.StatisticMetricEnum;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Published in process after a write that changes the dashboard counters, folded into the bucket of the day it occurred.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class StatisticChangedEvent implements Serializable {
+    private static final long serialVersionUID = -6245361807372540953L;
+    @Singular
+    private Map<StatisticMetricEnum, Long> increments;
+    private String laboratoryId;
+    private String borrowerId;
+    @Builder.Default
+    private LocalDateTime occurredAt = LocalDateTime.now();
+}
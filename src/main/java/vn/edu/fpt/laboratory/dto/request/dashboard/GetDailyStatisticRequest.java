@@ -0,0 +1,18 @@
+package vn.edu.fpt.laboratory.dto.request.dashboard;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@AllArgsConstructor
+@Data
+@Builder
+public class GetDailyStatisticRequest implements Serializable {
+
+    private static final long serialVersionUID = -1858016472916023741L;
+    private LocalDate from;
+    private LocalDate to;
+}
@@ -0,0 +1,19 @@
+package vn.edu.fpt.laboratory.dto.request.dashboard;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@AllArgsConstructor
+@Data
+@Builder
+public class GetDistinctBorrowerRequest implements Serializable {
+
+    private static final long serialVersionUID = 2984470113874207415L;
+    private String laboratoryId;
+    private LocalDate from;
+    private LocalDate to;
+}
@@ -30,6 +30,7 @@ public class GetLaboratoryRequest extends PageableRequest {
     private String laboratoryName;
     private String description;
     private String major;
+    private String keyword;
 
     public ObjectId getLaboratoryId() {
         return RequestDataUtils.convertObjectId(laboratoryId);
@@ -54,4 +55,8 @@ public class GetLaboratoryRequest extends PageableRequest {
     public String getMajor() {
         return RequestDataUtils.convertSearchableData(major);
     }
+
+    public String getKeyword() {
+        return RequestDataUtils.convertKeywordData(keyword);
+    }
 }
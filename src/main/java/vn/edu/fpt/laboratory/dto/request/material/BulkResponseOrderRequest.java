@@ -0,0 +1,19 @@
+package vn.edu.fpt.laboratory.dto.request.material;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class BulkResponseOrderRequest implements Serializable {
+
+    private static final long serialVersionUID = 6702365329521480551L;
+    private List<ResponseOrderItemRequest> orders;
+}
@@ -0,0 +1,19 @@
+package vn.edu.fpt.laboratory.dto.request.material;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@AllArgsConstructor
+@Data
+@Builder
+public class GetAvailabilityRequest implements Serializable {
+
+    private static final long serialVersionUID = 4393806123581561297L;
+    private LocalDate from;
+    private LocalDate to;
+    private String granularity;
+}
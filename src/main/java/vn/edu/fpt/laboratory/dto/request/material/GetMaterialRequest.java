@@ -29,6 +29,7 @@ public class GetMaterialRequest extends AuditableRequest implements Serializable
     private String materialName;
     private String description;
     private String status;
+    private String keyword;
 
     public ObjectId getLaboratoryId() {
         return RequestDataUtils.convertObjectId(laboratoryId);
@@ -46,6 +47,10 @@ public class GetMaterialRequest extends AuditableRequest implements Serializable
         return RequestDataUtils.convertSearchableData(description);
     }
 
+    public String getKeyword() {
+        return RequestDataUtils.convertKeywordData(keyword);
+    }
+
 
     public String getStatus() {
         try {
@@ -0,0 +1,23 @@
+package vn.edu.fpt.laboratory.dto.request.material;
+
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.SuperBuilder;
+import vn.edu.fpt.laboratory.dto.common.PageableRequest;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Setter
+@ToString
+@SuperBuilder
+public class GetOrderedMaterialRequest extends PageableRequest {
+
+    private static final long serialVersionUID = 5089626211316914524L;
+    private String status;
+
+    public String getStatus() {
+        return status;
+    }
+}
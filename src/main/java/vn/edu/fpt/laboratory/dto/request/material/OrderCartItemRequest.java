@@ -0,0 +1,19 @@
+package vn.edu.fpt.laboratory.dto.request.material;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class OrderCartItemRequest implements Serializable {
+
+    private static final long serialVersionUID = 1753326650298731024L;
+    private String materialId;
+    private Integer amount;
+}
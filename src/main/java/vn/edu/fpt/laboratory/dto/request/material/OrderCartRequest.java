@@ -0,0 +1,23 @@
+package vn.edu.fpt.laboratory.dto.request.material;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class OrderCartRequest implements Serializable {
+
+    private static final long serialVersionUID = -2981571646190857367L;
+    private String reason;
+    private LocalDateTime orderFrom;
+    private LocalDateTime orderTo;
+    private List<OrderCartItemRequest> items;
+}
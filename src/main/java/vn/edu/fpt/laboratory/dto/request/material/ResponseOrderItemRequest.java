@@ -0,0 +1,19 @@
+package vn.edu.fpt.laboratory.dto.request.material;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class ResponseOrderItemRequest implements Serializable {
+
+    private static final long serialVersionUID = -4785398906263916102L;
+    private String orderId;
+    private String status;
+}
@@ -34,6 +34,7 @@ public class _GetProjectRequest extends AuditableRequest {
     private String startDateTo;
     private String toDateFrom;
     private String toDateTo;
+    private String keyword;
 
     public ObjectId getProjectId() {
         return RequestDataUtils.convertObjectId(projectId);
@@ -47,6 +48,10 @@ public class _GetProjectRequest extends AuditableRequest {
         return RequestDataUtils.convertSearchableData(description);
     }
 
+    public String getKeyword() {
+        return RequestDataUtils.convertKeywordData(keyword);
+    }
+
     public LocalDate getStartDateFrom() {
         return RequestDataUtils.convertDateFrom(startDateFrom);
     }
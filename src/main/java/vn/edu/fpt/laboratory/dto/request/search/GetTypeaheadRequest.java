@@ -0,0 +1,20 @@
+package vn.edu.fpt.laboratory.dto.request.search;
+
+import lombok.*;
+
+import java.io.Serializable;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+public class GetTypeaheadRequest implements Serializable {
+
+    private static final long serialVersionUID = 3377212590145836842L;
+    private String type;
+    private String keyword;
+    private String laboratoryId;
+    private Integer size;
+}
@@ -0,0 +1,25 @@
+package vn.edu.fpt.laboratory.dto.response.dashboard;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class GetDailyStatisticResponse implements Serializable {
+
+    private static final long serialVersionUID = -4439871153371085467L;
+    private LocalDate day;
+    private Long numOfLab;
+    private Long numOfProject;
+    private Long totalTimeOfProject;
+    private Long numOfMaterial;
+    private Long numOfMember;
+    private Long numOfItemBorrowed;
+}
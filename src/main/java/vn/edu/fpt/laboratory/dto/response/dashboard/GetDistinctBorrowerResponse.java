@@ -0,0 +1,22 @@
+package vn.edu.fpt.laboratory.dto.response.dashboard;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class GetDistinctBorrowerResponse implements Serializable {
+
+    private static final long serialVersionUID = 5139287616512804126L;
+    private String laboratoryId;
+    private LocalDate from;
+    private LocalDate to;
+    private Long numOfMemberBorrowed;
+}
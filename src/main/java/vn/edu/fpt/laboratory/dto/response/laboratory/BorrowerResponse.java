@@ -0,0 +1,20 @@
+package vn.edu.fpt.laboratory.dto.response.laboratory;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import vn.edu.fpt.laboratory.dto.common.UserInfoResponse;
+
+import java.io.Serializable;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class BorrowerResponse implements Serializable {
+    private static final long serialVersionUID = 6604838130941264516L;
+    private UserInfoResponse borrower;
+    private Long numOfOrder;
+    private Long amount;
+}
@@ -0,0 +1,28 @@
+package vn.edu.fpt.laboratory.dto.response.laboratory;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class GetLaboratoryAnalyticsResponse implements Serializable {
+    private static final long serialVersionUID = 3185640911683904118L;
+    private String laboratoryId;
+    private Long numOfOrder;
+    private Long numOfPendingOrder;
+    private Map<String, Long> numOfOrderByStatus;
+    private List<MaterialUsageResponse> topMaterials;
+    private List<BorrowerResponse> topBorrowers;
+    private Double avgBorrowHours;
+    private Double avgApprovalMinutes;
+    private LocalDateTime computedAt;
+}
@@ -0,0 +1,20 @@
+package vn.edu.fpt.laboratory.dto.response.laboratory;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class MaterialUsageResponse implements Serializable {
+    private static final long serialVersionUID = -2385526610146470431L;
+    private String materialId;
+    private String materialName;
+    private Long numOfOrder;
+    private Long amount;
+}
@@ -0,0 +1,20 @@
+package vn.edu.fpt.laboratory.dto.response.material;
+
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+public class AvailabilitySlotResponse implements Serializable {
+
+    private static final long serialVersionUID = 2238406514379526410L;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Integer freeAmount;
+}
@@ -0,0 +1,19 @@
+package vn.edu.fpt.laboratory.dto.response.material;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class BulkResponseOrderResponse implements Serializable {
+
+    private static final long serialVersionUID = 3958015286215843390L;
+    private List<ResponseOrderResultResponse> results;
+}
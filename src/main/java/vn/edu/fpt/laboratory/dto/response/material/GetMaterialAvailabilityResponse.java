@@ -0,0 +1,22 @@
+package vn.edu.fpt.laboratory.dto.response.material;
+
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+public class GetMaterialAvailabilityResponse implements Serializable {
+
+    private static final long serialVersionUID = -6305947215731263702L;
+    private String materialId;
+    private String materialName;
+    private Integer totalAmount;
+    private String granularity;
+    private List<AvailabilitySlotResponse> slots;
+}
@@ -0,0 +1,22 @@
+package vn.edu.fpt.laboratory.dto.response.material;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class GetTrendingMaterialResponse implements Serializable {
+    private static final long serialVersionUID = 1637400218364530284L;
+    private String materialId;
+    private String materialName;
+    /**
+     * Approved orders decayed by app.trending.decay at every checkpoint, recent orders weigh more than old ones.
+     */
+    private Double trendingScore;
+}
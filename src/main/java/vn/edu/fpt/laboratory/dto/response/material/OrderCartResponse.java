@@ -0,0 +1,19 @@
+package vn.edu.fpt.laboratory.dto.response.material;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class OrderCartResponse implements Serializable {
+
+    private static final long serialVersionUID = 2465116180519962813L;
+    private List<String> orderIds;
+}
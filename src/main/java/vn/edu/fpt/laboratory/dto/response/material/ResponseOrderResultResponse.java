@@ -0,0 +1,20 @@
+package vn.edu.fpt.laboratory.dto.response.material;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class ResponseOrderResultResponse implements Serializable {
+
+    private static final long serialVersionUID = -1208143556126425327L;
+    private String orderId;
+    private String status;
+    private String message;
+}
@@ -0,0 +1,19 @@
+package vn.edu.fpt.laboratory.dto.response.search;
+
+import lombok.*;
+
+import java.io.Serializable;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+public class GetTypeaheadResponse implements Serializable {
+
+    private static final long serialVersionUID = -6108446321953717542L;
+    private String id;
+    private String name;
+    private String laboratoryId;
+}
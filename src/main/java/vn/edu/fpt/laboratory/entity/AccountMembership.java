@@ -0,0 +1,45 @@
+package vn.edu.fpt.laboratory.entity;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Membership of one account in one laboratory: the role in the laboratory and the projects of it the
+ * account is in, or a pending application when the status is WAITING. Kept in sync by every membership
+ * change so the laboratories of an account are read without walking the DBRef arrays.
+ **/
+@Document(collection = "account_memberships")
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+public class AccountMembership implements Serializable {
+
+    private static final long serialVersionUID = 5183264179350612744L;
+    @Id
+    @Field(name = "_id", targetType = FieldType.OBJECT_ID)
+    private String membershipId;
+    @Field(name = "account_id")
+    private String accountId;
+    @Field(name = "laboratory_id")
+    private String laboratoryId;
+    @Field(name = "status")
+    private String status;
+    @Field(name = "role")
+    private String role;
+    @Field(name = "project_ids")
+    @Builder.Default
+    private List<String> projectIds = new ArrayList<>();
+    @Field(name = "last_modified_date")
+    private LocalDateTime lastModifiedDate;
+}
@@ -39,4 +39,6 @@ public class Application extends Auditor{
     private String cvKey;
     @Field(name = "status", targetType = FieldType.STRING)
     private ApplicationStatusEnum status;
+    @Field(name = "laboratory_id")
+    private String laboratoryId;
 }
@@ -14,4 +14,5 @@ public class BorrowTime {
     private LocalDateTime fromDate;
     private LocalDateTime returnDate;
     private Integer amount;
+    private String orderId;
 }
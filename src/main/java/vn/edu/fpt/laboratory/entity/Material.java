@@ -55,4 +55,9 @@ public class Material extends Auditor {
     @Field(name = "borrow_time")
     @Builder.Default
     private List<BorrowTime> borrowTime = new ArrayList<>();
+    @Field(name = "laboratory_id")
+    private String laboratoryId;
+    @Field(name = "version")
+    @Builder.Default
+    private Long version = 0L;
 }
@@ -0,0 +1,38 @@
+package vn.edu.fpt.laboratory.entity;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Amount of a material reserved by approved orders during one hour, bucket_start is truncated to the hour.
+ * Version is the material version the amount was computed from, an older snapshot never overwrites a newer one.
+ */
+@Document(collection = "material_usage_buckets")
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+public class MaterialUsageBucket implements Serializable {
+
+    private static final long serialVersionUID = -3120986525617353262L;
+    @Id
+    @Field(name = "_id", targetType = FieldType.OBJECT_ID)
+    private String bucketId;
+    @Field(name = "material_id")
+    private String materialId;
+    @Field(name = "bucket_start")
+    private LocalDateTime bucketStart;
+    @Field(name = "reserved")
+    @Builder.Default
+    private Integer reserved = 0;
+    @Field(name = "version")
+    private Long version;
+}
@@ -40,4 +40,8 @@ public class MemberInfo extends Auditor {
     @DBRef(lazy = true)
     @Builder.Default
     private List<Material> orderedMaterials = new ArrayList<>();
+    @Field(name = "laboratory_id")
+    private String laboratoryId;
+    @Field(name = "project_id")
+    private String projectId;
 }
@@ -0,0 +1,39 @@
+package vn.edu.fpt.laboratory.entity;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Document(collection = "migration_checkpoints")
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+public class MigrationCheckpoint implements Serializable {
+
+    private static final long serialVersionUID = 2795217348011839262L;
+    @Id
+    private String migrationId;
+    @Field(name = "last_processed_id")
+    private String lastProcessedId;
+    @Field(name = "processed")
+    @Builder.Default
+    private Long processed = 0L;
+    @Field(name = "completed")
+    @Builder.Default
+    private boolean completed = false;
+    @Field(name = "last_modified_date")
+    private LocalDateTime lastModifiedDate;
+    @Field(name = "cutoff_date")
+    private LocalDateTime cutoffDate;
+    @Field(name = "locked_by")
+    private String lockedBy;
+    @Field(name = "locked_until")
+    private LocalDateTime lockedUntil;
+}
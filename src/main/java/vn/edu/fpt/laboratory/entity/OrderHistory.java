@@ -46,4 +46,10 @@ public class OrderHistory extends Auditor {
     @Field(name = "actually_return")
     @Builder.Default
     private LocalDateTime actuallyReturn = null;
+    @Field(name = "laboratory_id")
+    private String laboratoryId;
+    @Field(name = "response_id")
+    private String responseId;
+    @Field(name = "responded_date")
+    private LocalDateTime respondedDate;
 }
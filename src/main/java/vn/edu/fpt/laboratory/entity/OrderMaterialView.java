@@ -0,0 +1,46 @@
+package vn.edu.fpt.laboratory.entity;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Row of an order joined with its material and the material's image, read from an aggregation.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+public class OrderMaterialView implements Serializable {
+
+    private static final long serialVersionUID = -8873104466375693218L;
+    @Id
+    private String orderId;
+    @Field(name = "materialId")
+    private String materialId;
+    @Field(name = "material_name")
+    private String materialName;
+    @Field(name = "image_id")
+    private String imageId;
+    @Field(name = "image_name")
+    private String imageName;
+    @Field(name = "file_key")
+    private String fileKey;
+    @Field(name = "amount")
+    private Integer amount;
+    @Field(name = "reason")
+    private String reason;
+    @Field(name = "status")
+    private String status;
+    @Field(name = "order_from")
+    private LocalDateTime orderFrom;
+    @Field(name = "order_to")
+    private LocalDateTime orderTo;
+    @Field(name = "created_by")
+    private String createdBy;
+}
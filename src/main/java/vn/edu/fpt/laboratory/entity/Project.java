@@ -49,4 +49,6 @@ public class Project extends Auditor implements Serializable {
     @Field(name = "members")
     @DBRef(lazy = true)
     private List<MemberInfo> members;
+    @Field(name = "laboratory_id")
+    private String laboratoryId;
 }
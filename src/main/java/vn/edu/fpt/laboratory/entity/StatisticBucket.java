@@ -0,0 +1,51 @@
+package vn.edu.fpt.laboratory.entity;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dashboard counters of one day, _id is the day formatted as yyyy-MM-dd. The totals are the sum over all buckets.
+ */
+@Document(collection = "statistic_buckets")
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString
+@Builder
+public class StatisticBucket implements Serializable {
+
+    private static final long serialVersionUID = 7795546120183512716L;
+    @Id
+    private String bucketId;
+    @Field(name = "day")
+    private LocalDate day;
+    @Field(name = "num_of_lab")
+    @Builder.Default
+    private Long numOfLab = 0L;
+    @Field(name = "num_of_project")
+    @Builder.Default
+    private Long numOfProject = 0L;
+    @Field(name = "total_time_of_project")
+    @Builder.Default
+    private Long totalTimeOfProject = 0L;
+    @Field(name = "num_of_material")
+    @Builder.Default
+    private Long numOfMaterial = 0L;
+    @Field(name = "num_of_member")
+    @Builder.Default
+    private Long numOfMember = 0L;
+    @Field(name = "num_of_material_borrowed")
+    @Builder.Default
+    private Long numOfMaterialBorrowed = 0L;
+    @Field(name = "backfilled_metrics")
+    @Builder.Default
+    private List<String> backfilledMetrics = new ArrayList<>();
+}
@@ -0,0 +1,37 @@
+package vn.edu.fpt.laboratory.entity;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Saved count-min sketch and leaders of one trending scope, the laboratory id or global.
+ */
+@Document(collection = "trending_material_checkpoints")
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@ToString(exclude = "counts")
+@Builder
+public class TrendingMaterialCheckpoint implements Serializable {
+
+    private static final long serialVersionUID = -7216655283010364873L;
+    @Id
+    private String scope;
+    @Field(name = "width")
+    private Integer width;
+    @Field(name = "depth")
+    private Integer depth;
+    @Field(name = "counts")
+    private List<Long> counts;
+    @Field(name = "leaders")
+    private List<String> leaders;
+    @Field(name = "last_modified_date")
+    private LocalDateTime lastModifiedDate;
+}
@@ -0,0 +1,37 @@
+package vn.edu.fpt.laboratory.repository;
+
+import vn.edu.fpt.laboratory.constant.MembershipStatusEnum;
+
+import java.util.List;
+
+public interface AccountMembershipRepository {
+
+    /**
+     * Makes the account a member of the laboratory with the role, replacing a pending application.
+     */
+    void saveMember(String accountId, String laboratoryId, String role);
+
+    /**
+     * Records a pending application, unless the account already is a member of the laboratory.
+     */
+    void saveWaiting(String accountId, String laboratoryId);
+
+    void updateRole(String accountId, String laboratoryId, String role);
+
+    void remove(String accountId, String laboratoryId);
+
+    void removeWaiting(String accountId, String laboratoryId);
+
+    void removeLaboratory(String laboratoryId);
+
+    void addProject(String accountId, String laboratoryId, String projectId);
+
+    void removeProject(String accountId, String projectId);
+
+    void removeProject(String projectId);
+
+    /**
+     * Ids of the laboratories of the account with the status, or with any status when it is null.
+     */
+    List<String> findLaboratoryIds(String accountId, MembershipStatusEnum status);
+}
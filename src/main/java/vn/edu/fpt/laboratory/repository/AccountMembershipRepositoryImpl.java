@@ -0,0 +1,97 @@
+package vn.edu.fpt.laboratory.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import vn.edu.fpt.laboratory.constant.MembershipStatusEnum;
+import vn.edu.fpt.laboratory.entity.AccountMembership;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class AccountMembershipRepositoryImpl implements AccountMembershipRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void saveMember(String accountId, String laboratoryId, String role) {
+        Update update = new Update()
+                .set("status", MembershipStatusEnum.MEMBER.getStatus())
+                .set("role", role)
+                .set("last_modified_date", LocalDateTime.now());
+        mongoTemplate.upsert(membership(accountId, laboratoryId), update, AccountMembership.class);
+    }
+
+    @Override
+    public void saveWaiting(String accountId, String laboratoryId) {
+        // the status is only inserted, so a membership is never downgraded to a pending application
+        Update update = new Update()
+                .setOnInsert("status", MembershipStatusEnum.WAITING.getStatus())
+                .set("last_modified_date", LocalDateTime.now());
+        mongoTemplate.upsert(membership(accountId, laboratoryId), update, AccountMembership.class);
+    }
+
+    @Override
+    public void updateRole(String accountId, String laboratoryId, String role) {
+        Query query = membership(accountId, laboratoryId)
+                .addCriteria(Criteria.where("status").is(MembershipStatusEnum.MEMBER.getStatus()));
+        mongoTemplate.updateFirst(query, new Update().set("role", role).set("last_modified_date", LocalDateTime.now()), AccountMembership.class);
+    }
+
+    @Override
+    public void remove(String accountId, String laboratoryId) {
+        mongoTemplate.remove(membership(accountId, laboratoryId), AccountMembership.class);
+    }
+
+    @Override
+    public void removeWaiting(String accountId, String laboratoryId) {
+        Query query = membership(accountId, laboratoryId)
+                .addCriteria(Criteria.where("status").is(MembershipStatusEnum.WAITING.getStatus()));
+        mongoTemplate.remove(query, AccountMembership.class);
+    }
+
+    @Override
+    public void removeLaboratory(String laboratoryId) {
+        mongoTemplate.remove(Query.query(Criteria.where("laboratory_id").is(laboratoryId)), AccountMembership.class);
+    }
+
+    @Override
+    public void addProject(String accountId, String laboratoryId, String projectId) {
+        Update update = new Update()
+                .addToSet("project_ids", projectId)
+                .set("last_modified_date", LocalDateTime.now());
+        mongoTemplate.updateFirst(membership(accountId, laboratoryId), update, AccountMembership.class);
+    }
+
+    @Override
+    public void removeProject(String accountId, String projectId) {
+        Query query = Query.query(Criteria.where("account_id").is(accountId).and("project_ids").is(projectId));
+        mongoTemplate.updateMulti(query, new Update().pull("project_ids", projectId), AccountMembership.class);
+    }
+
+    @Override
+    public void removeProject(String projectId) {
+        mongoTemplate.updateMulti(Query.query(Criteria.where("project_ids").is(projectId)), new Update().pull("project_ids", projectId), AccountMembership.class);
+    }
+
+    @Override
+    public List<String> findLaboratoryIds(String accountId, MembershipStatusEnum status) {
+        Query query = Query.query(Criteria.where("account_id").is(accountId));
+        if (Objects.nonNull(status)) {
+            query.addCriteria(Criteria.where("status").is(status.getStatus()));
+        }
+        return mongoTemplate.findDistinct(query, "laboratory_id", AccountMembership.class, String.class);
+    }
+
+    private Query membership(String accountId, String laboratoryId) {
+        return Query.query(Criteria.where("account_id").is(accountId).and("laboratory_id").is(laboratoryId));
+    }
+}
@@ -2,14 +2,30 @@ package vn.edu.fpt.laboratory.repository;
 
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.BasicQuery;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import vn.edu.fpt.laboratory.constant.ResponseStatusEnum;
 import vn.edu.fpt.laboratory.dto.common.AuditableRequest;
+import vn.edu.fpt.laboratory.dto.common.CursorPage;
 import vn.edu.fpt.laboratory.dto.common.PageableRequest;
+import vn.edu.fpt.laboratory.dto.common.SortableRequest;
+import vn.edu.fpt.laboratory.exception.BusinessException;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 /**
  * @author : Hoang Lam
@@ -21,6 +37,9 @@ import java.util.Objects;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class BaseMongoRepository {
 
+    private static final String ID_FIELD = "_id";
+    private static final JsonWriterSettings CURSOR_JSON_SETTINGS = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build();
+
     public static void addCriteriaWithPageable(Query query, PageableRequest request) {
         PageRequest pageRequest = PageRequest.of(request.getPage(), request.getSize());
         query.with(pageRequest);
@@ -40,9 +59,135 @@ public class BaseMongoRepository {
         query.addCriteria(Criteria.where("last_modified_date").gte(request.getLastModifiedDateFrom()).lte(request.getLastModifiedDateTo()));
     }
 
+    /**
+     * Full text search on the text index of the collection, pages are ranked by relevance when no sort is requested.
+     */
+    public static void addCriteriaWithKeyword(Query query, String keyword) {
+        if (Objects.nonNull(keyword)) {
+            query.addCriteria(TextCriteria.forDefaultLanguage().matchingAny(keyword.split(" ")));
+        }
+    }
+
     public static void addCriteriaWithSorted(Query query, PageableRequest request){
         request.getSortBy().forEach(v -> {
             query.with(Sort.by(v.getDirection(), v.getProperty()));
         });
     }
+
+    /**
+     * Read one page in cursor mode: the documents strictly after the cursor in the order of the sort keys
+     * followed by _id, without skip nor count, so every page costs the same whatever its depth.
+     */
+    public static <T> CursorPage<T> findWithCursor(MongoTemplate mongoTemplate, Query query, PageableRequest request, Class<T> entityClass) {
+        List<Sort.Order> orders = getCursorOrders(request, UnaryOperator.identity());
+        Criteria after = afterCursor(request.getCursor(), orders);
+        Document queryObject = Objects.isNull(after)
+                ? query.getQueryObject()
+                : new Document("$and", List.of(query.getQueryObject(), after.getCriteriaObject()));
+        Query cursorQuery = new BasicQuery(queryObject, query.getFieldsObject())
+                .with(Sort.by(orders))
+                .limit(request.getSize() + 1);
+        List<T> items = mongoTemplate.find(cursorQuery, entityClass);
+        return toCursorPage(items, request, orders, item -> {
+            Document document = new Document();
+            mongoTemplate.getConverter().write(item, document);
+            return document;
+        }, UnaryOperator.identity());
+    }
+
+    /**
+     * Requested sort keys with _id appended as the tie breaker, so the order of the documents is total.
+     */
+    public static List<Sort.Order> getCursorOrders(PageableRequest request, UnaryOperator<String> fieldMapper) {
+        List<Sort.Order> orders = new ArrayList<>();
+        if (Objects.nonNull(request.getSortBy())) {
+            for (SortableRequest sortable : request.getSortBy()) {
+                String field = fieldMapper.apply(sortable.getProperty());
+                if (!ID_FIELD.equals(field) && orders.stream().noneMatch(v -> v.getProperty().equals(field))) {
+                    orders.add(new Sort.Order(sortable.getDirection(), field));
+                }
+            }
+        }
+        orders.add(new Sort.Order(orders.isEmpty() ? Sort.Direction.DESC : Sort.Direction.ASC, ID_FIELD));
+        return orders;
+    }
+
+    /**
+     * Criteria of the documents after the cursor, null for the first page.
+     */
+    public static Criteria afterCursor(String cursor, List<Sort.Order> orders) {
+        if (Objects.isNull(cursor) || cursor.isBlank()) {
+            return null;
+        }
+        Object decoded;
+        try {
+            decoded = Document.parse(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)).get("v");
+        } catch (Exception ex) {
+            throw new BusinessException(ResponseStatusEnum.VALIDATION_ERROR, "Cursor is invalid");
+        }
+        if (!(decoded instanceof List) || ((List<?>) decoded).size() != orders.size()) {
+            throw new BusinessException(ResponseStatusEnum.VALIDATION_ERROR, "Cursor does not match the sort of the request");
+        }
+        List<?> values = (List<?>) decoded;
+        // (k1 > v1) or (k1 = v1 and k2 > v2) or ... with > meaning after in the direction of each key
+        List<Criteria> branches = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            Criteria next = nextValue(orders.get(i), values.get(i));
+            if (Objects.isNull(next)) {
+                continue;
+            }
+            List<Criteria> branch = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                branch.add(Criteria.where(orders.get(j).getProperty()).is(values.get(j)));
+            }
+            branch.add(next);
+            branches.add(new Criteria().andOperator(branch));
+        }
+        if (branches.isEmpty()) {
+            return Criteria.where(ID_FIELD).in(List.of());
+        }
+        return new Criteria().orOperator(branches);
+    }
+
+    /**
+     * Trim the extra document read to detect the next page and encode the cursor of the last one kept.
+     */
+    public static <T> CursorPage<T> toCursorPage(List<T> items, PageableRequest request, List<Sort.Order> orders,
+                                                 Function<T, Document> writer, UnaryOperator<String> valueField) {
+        if (items.size() <= request.getSize()) {
+            return new CursorPage<>(items, null);
+        }
+        List<T> page = new ArrayList<>(items.subList(0, request.getSize()));
+        Document last = writer.apply(page.get(page.size() - 1));
+        List<Object> values = new ArrayList<>();
+        for (Sort.Order order : orders) {
+            values.add(getValue(last, valueField.apply(order.getProperty())));
+        }
+        String json = new Document("v", values).toJson(CURSOR_JSON_SETTINGS);
+        return new CursorPage<>(page, Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Criteria nextValue(Sort.Order order, Object value) {
+        // null sorts before every value in mongo
+        if (order.isAscending()) {
+            return Objects.isNull(value)
+                    ? Criteria.where(order.getProperty()).ne(null)
+                    : Criteria.where(order.getProperty()).gt(value);
+        }
+        if (Objects.isNull(value)) {
+            return null;
+        }
+        return new Criteria().orOperator(Criteria.where(order.getProperty()).lt(value), Criteria.where(order.getProperty()).is(null));
+    }
+
+    private static Object getValue(Document document, String field) {
+        Object value = document;
+        for (String key : field.split("\\.")) {
+            if (!(value instanceof Document)) {
+                return null;
+            }
+            value = ((Document) value).get(key);
+        }
+        return value;
+    }
 }
@@ -0,0 +1,19 @@
+package vn.edu.fpt.laboratory.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Approximate distinct borrowers kept as redis HyperLogLogs per day and in total, globally and per laboratory.
+ * Counting a range merges the day sketches, so the result never depends on the number of orders.
+ */
+public interface BorrowerCounterRepository {
+
+    void add(String laboratoryId, LocalDate day, String accountId);
+
+    /**
+     * Distinct borrowers of all time, of the laboratory or of every laboratory when the id is null.
+     */
+    long count(String laboratoryId);
+
+    long count(String laboratoryId, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,71 @@
+package vn.edu.fpt.laboratory.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class BorrowerCounterRepositoryImpl implements BorrowerCounterRepository {
+
+    private static final String GLOBAL_SCOPE = "global";
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    @Value("${app.borrower-counter.retention-days:400}")
+    private Long retentionDays;
+
+    @Override
+    public void add(String laboratoryId, LocalDate day, String accountId) {
+        List<String> scopes = new ArrayList<>(List.of(GLOBAL_SCOPE));
+        if (Objects.nonNull(laboratoryId)) {
+            scopes.add(laboratoryId);
+        }
+        for (String scope : scopes) {
+            redisTemplate.opsForHyperLogLog().add(getTotalKey(scope), accountId);
+            String dayKey = getDayKey(scope, day);
+            redisTemplate.opsForHyperLogLog().add(dayKey, accountId);
+            redisTemplate.expire(dayKey, Duration.ofDays(retentionDays));
+        }
+    }
+
+    @Override
+    public long count(String laboratoryId) {
+        return redisTemplate.opsForHyperLogLog().size(getTotalKey(getScope(laboratoryId)));
+    }
+
+    @Override
+    public long count(String laboratoryId, LocalDate from, LocalDate to) {
+        String scope = getScope(laboratoryId);
+        List<String> keys = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            keys.add(getDayKey(scope, day));
+        }
+        if (keys.isEmpty()) {
+            return 0L;
+        }
+        // PFCOUNT over several keys counts their union without storing it
+        return redisTemplate.opsForHyperLogLog().size(keys.toArray(new String[0]));
+    }
+
+    private String getScope(String laboratoryId) {
+        return Objects.requireNonNullElse(laboratoryId, GLOBAL_SCOPE);
+    }
+
+    private String getTotalKey(String scope) {
+        return String.format("borrowers:%s:total", scope);
+    }
+
+    private String getDayKey(String scope, LocalDate day) {
+        return String.format("borrowers:%s:%s", scope, day);
+    }
+}
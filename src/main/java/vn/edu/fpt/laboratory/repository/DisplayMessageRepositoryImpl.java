@@ -33,9 +33,13 @@ public class DisplayMessageRepositoryImpl implements DisplayMessageRepository{
         }
 
         String displayMessageStr = redisTemplate.opsForValue().get(String.format("%s:%s", code, language));
+        if (Objects.isNull(displayMessageStr)) {
+            return Optional.empty();
+        }
         try {
-            return Optional.of(objectMapper.convertValue(displayMessageStr, DisplayMessage.class));
+            return Optional.of(objectMapper.readValue(displayMessageStr, DisplayMessage.class));
         }catch (Exception ex) {
+            log.warn("Can't parse display message {}:{}: {}", code, language, ex.getMessage());
             return Optional.empty();
         }
     }
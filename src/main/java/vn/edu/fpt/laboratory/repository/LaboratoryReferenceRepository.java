@@ -0,0 +1,26 @@
+package vn.edu.fpt.laboratory.repository;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+import vn.edu.fpt.laboratory.constant.LaboratoryReferenceEnum;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface LaboratoryReferenceRepository {
+
+    /**
+     * Criteria matching the documents of a laboratory: the indexed laboratory_id once the backfill
+     * migration completed, the ids of the legacy DBRef array before that.
+     */
+    Criteria belongTo(String laboratoryId, LaboratoryReferenceEnum reference);
+
+    /**
+     * Criteria matching the members of a project: the indexed project_id once the backfill migration
+     * completed, the ids of the members DBRef array of the project before that.
+     */
+    Criteria memberOfProject(String projectId);
+
+    long countByLaboratory(String laboratoryId, LaboratoryReferenceEnum reference);
+
+    Map<String, Long> countByLaboratories(Collection<String> laboratoryIds, LaboratoryReferenceEnum reference);
+}
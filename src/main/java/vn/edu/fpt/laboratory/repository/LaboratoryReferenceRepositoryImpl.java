@@ -0,0 +1,101 @@
+package vn.edu.fpt.laboratory.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+import vn.edu.fpt.laboratory.config.migration.LaboratoryForeignKeyMigration;
+import vn.edu.fpt.laboratory.constant.LaboratoryReferenceEnum;
+import vn.edu.fpt.laboratory.utils.DBRefUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Repository
+@RequiredArgsConstructor
+public class LaboratoryReferenceRepositoryImpl implements LaboratoryReferenceRepository {
+
+    private static final String LABORATORY_COLLECTION = "laboratories";
+    private static final String PROJECT_COLLECTION = "projects";
+
+    private final MongoTemplate mongoTemplate;
+    private final LaboratoryForeignKeyMigration laboratoryForeignKeyMigration;
+
+    @Override
+    public Criteria belongTo(String laboratoryId, LaboratoryReferenceEnum reference) {
+        if (laboratoryForeignKeyMigration.isCompleted()) {
+            return Criteria.where("laboratory_id").is(laboratoryId);
+        }
+        List<Object> ids = new ArrayList<>();
+        if (ObjectId.isValid(laboratoryId)) {
+            Query query = Query.query(Criteria.where("_id").is(new ObjectId(laboratoryId)));
+            query.fields().include(reference.getField());
+            Document laboratory = mongoTemplate.findOne(query, Document.class, LABORATORY_COLLECTION);
+            if (Objects.nonNull(laboratory)) {
+                ids = DBRefUtils.getReferenceIds(laboratory, reference.getField());
+            }
+        }
+        // Wrapped so it can be combined with another criteria on _id in the same query
+        return new Criteria().andOperator(Criteria.where("_id").in(ids));
+    }
+
+    @Override
+    public Criteria memberOfProject(String projectId) {
+        if (laboratoryForeignKeyMigration.isCompleted()) {
+            return Criteria.where("project_id").is(projectId);
+        }
+        List<Object> ids = new ArrayList<>();
+        if (ObjectId.isValid(projectId)) {
+            Query query = Query.query(Criteria.where("_id").is(new ObjectId(projectId)));
+            query.fields().include("members");
+            Document project = mongoTemplate.findOne(query, Document.class, PROJECT_COLLECTION);
+            if (Objects.nonNull(project)) {
+                ids = DBRefUtils.getReferenceIds(project, "members");
+            }
+        }
+        return new Criteria().andOperator(Criteria.where("_id").in(ids));
+    }
+
+    @Override
+    public long countByLaboratory(String laboratoryId, LaboratoryReferenceEnum reference) {
+        if (laboratoryForeignKeyMigration.isCompleted()) {
+            return mongoTemplate.count(Query.query(Criteria.where("laboratory_id").is(laboratoryId)), reference.getCollection());
+        }
+        return countByLaboratories(List.of(laboratoryId), reference).getOrDefault(laboratoryId, 0L);
+    }
+
+    @Override
+    public Map<String, Long> countByLaboratories(Collection<String> laboratoryIds, LaboratoryReferenceEnum reference) {
+        List<String> ids = laboratoryIds.stream().filter(ObjectId::isValid).distinct().collect(Collectors.toList());
+        Map<String, Long> counts = new HashMap<>();
+        if (ids.isEmpty()) {
+            return counts;
+        }
+        List<Document> results;
+        if (laboratoryForeignKeyMigration.isCompleted()) {
+            Aggregation aggregation = Aggregation.newAggregation(
+                    Aggregation.match(Criteria.where("laboratory_id").in(ids)),
+                    Aggregation.group("laboratory_id").count().as("count"));
+            results = mongoTemplate.aggregate(aggregation, reference.getCollection(), Document.class).getMappedResults();
+        } else {
+            Aggregation aggregation = Aggregation.newAggregation(
+                    Aggregation.match(Criteria.where("_id").in(ids.stream().map(ObjectId::new).collect(Collectors.toList()))),
+                    Aggregation.project()
+                            .and(ArrayOperators.Size.lengthOfArray(ConditionalOperators.ifNull(reference.getField()).then(Collections.emptyList())))
+                            .as("count"));
+            results = mongoTemplate.aggregate(aggregation, LABORATORY_COLLECTION, Document.class).getMappedResults();
+        }
+        for (Document result : results) {
+            Object id = result.get("_id");
+            String laboratoryId = id instanceof ObjectId ? ((ObjectId) id).toHexString() : String.valueOf(id);
+            counts.put(laboratoryId, ((Number) result.get("count")).longValue());
+        }
+        return counts;
+    }
+}
@@ -6,7 +6,6 @@ import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 import vn.edu.fpt.laboratory.entity.Laboratory;
 import vn.edu.fpt.laboratory.entity.MemberInfo;
-import vn.edu.fpt.laboratory.entity.Statistic;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -0,0 +1,25 @@
+package vn.edu.fpt.laboratory.repository;
+
+import vn.edu.fpt.laboratory.constant.LaboratoryReferenceEnum;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Targeted updates of a laboratory document. Each method is a single updateFirst so concurrent
+ * writers no longer overwrite each other's changes to the reference arrays.
+ */
+public interface LaboratoryUpdateRepository {
+
+    void pushReference(String laboratoryId, LaboratoryReferenceEnum reference, String id);
+
+    void pushReferences(String laboratoryId, LaboratoryReferenceEnum reference, Collection<String> ids);
+
+    void pullReference(String laboratoryId, LaboratoryReferenceEnum reference, String id);
+
+    void pullReferences(String laboratoryId, LaboratoryReferenceEnum reference, Collection<String> ids);
+
+    void updateOwner(String laboratoryId, String memberId);
+
+    void updateFields(String laboratoryId, Map<String, Object> fields);
+}
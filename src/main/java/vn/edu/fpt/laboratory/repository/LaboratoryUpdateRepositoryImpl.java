@@ -0,0 +1,83 @@
+package vn.edu.fpt.laboratory.repository;
+
+import com.mongodb.DBRef;
+import com.mongodb.client.result.UpdateResult;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import vn.edu.fpt.laboratory.constant.LaboratoryReferenceEnum;
+import vn.edu.fpt.laboratory.constant.ResponseStatusEnum;
+import vn.edu.fpt.laboratory.exception.BusinessException;
+
+import java.util.Collection;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class LaboratoryUpdateRepositoryImpl implements LaboratoryUpdateRepository {
+
+    private static final String LABORATORY_COLLECTION = "laboratories";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void pushReference(String laboratoryId, LaboratoryReferenceEnum reference, String id) {
+        update(laboratoryId, new Update().push(reference.getField(), toDBRef(reference, id)));
+    }
+
+    @Override
+    public void pushReferences(String laboratoryId, LaboratoryReferenceEnum reference, Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Object[] references = ids.stream().map(v -> toDBRef(reference, v)).toArray();
+        update(laboratoryId, new Update().push(reference.getField()).each(references));
+    }
+
+    @Override
+    public void pullReference(String laboratoryId, LaboratoryReferenceEnum reference, String id) {
+        update(laboratoryId, new Update().pull(reference.getField(), toDBRef(reference, id)));
+    }
+
+    @Override
+    public void pullReferences(String laboratoryId, LaboratoryReferenceEnum reference, Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Object[] references = ids.stream().map(v -> toDBRef(reference, v)).toArray();
+        update(laboratoryId, new Update().pullAll(reference.getField(), references));
+    }
+
+    @Override
+    public void updateOwner(String laboratoryId, String memberId) {
+        update(laboratoryId, Update.update("owner_by", toDBRef(LaboratoryReferenceEnum.MEMBER, memberId)));
+    }
+
+    @Override
+    public void updateFields(String laboratoryId, Map<String, Object> fields) {
+        if (fields.isEmpty()) {
+            return;
+        }
+        Update update = new Update();
+        fields.forEach(update::set);
+        update(laboratoryId, update);
+    }
+
+    private void update(String laboratoryId, Update update) {
+        if (!ObjectId.isValid(laboratoryId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID invalid");
+        }
+        UpdateResult result = mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(new ObjectId(laboratoryId))), update, LABORATORY_COLLECTION);
+        if (result.getMatchedCount() == 0) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist");
+        }
+    }
+
+    private DBRef toDBRef(LaboratoryReferenceEnum reference, String id) {
+        return new DBRef(reference.getCollection(), new ObjectId(id));
+    }
+}
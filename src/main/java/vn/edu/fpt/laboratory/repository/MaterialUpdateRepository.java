@@ -0,0 +1,52 @@
+package vn.edu.fpt.laboratory.repository;
+
+import vn.edu.fpt.laboratory.entity.BorrowTime;
+import vn.edu.fpt.laboratory.entity.Material;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface MaterialUpdateRepository {
+
+    /**
+     * Give back an amount to the stock with a single $inc, the material becomes free again.
+     */
+    void returnAmount(String materialId, Integer amount);
+
+    void markDeleted(String materialId);
+
+    /**
+     * Set only the given fields and bump the version. With an expected version the update only applies when
+     * no reservation changed the material since it was read, which is required as soon as the amount is set.
+     *
+     * @return false when another update changed the material first
+     */
+    boolean updateFields(String materialId, Map<String, Object> fields, Long expectedVersion);
+
+    /**
+     * Drop the reservations that ended before the given time with a single $pull.
+     */
+    void pruneBorrowTime(String materialId, LocalDateTime before);
+
+    /**
+     * End the reservation of an order returned early at the return time with a positional $set and bump the
+     * version, so the reservation tree and a rebuild of the usage buckets stop counting the hours after it.
+     *
+     * @return false when the material holds no such reservation
+     */
+    boolean endBorrowTime(String materialId, BorrowTime borrowTime, LocalDateTime returnedAt);
+
+    /**
+     * Read only the fields a reservation depends on: amount, total amount, version and borrow time.
+     */
+    Material findReservationState(String materialId);
+
+    /**
+     * Take the amount of the borrow times from the stock and record the reservations in one findAndModify,
+     * guarded by the version read before and by the remaining amount.
+     *
+     * @return the updated material, or null when another reservation changed the material first
+     */
+    Material reserve(String materialId, Long expectedVersion, List<BorrowTime> borrowTimes);
+}
@@ -0,0 +1,132 @@
+package vn.edu.fpt.laboratory.repository;
+
+import com.mongodb.client.result.UpdateResult;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import vn.edu.fpt.laboratory.constant.MaterialStatusEnum;
+import vn.edu.fpt.laboratory.constant.ResponseStatusEnum;
+import vn.edu.fpt.laboratory.entity.BorrowTime;
+import vn.edu.fpt.laboratory.entity.Material;
+import vn.edu.fpt.laboratory.exception.BusinessException;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@Repository
+@RequiredArgsConstructor
+public class MaterialUpdateRepositoryImpl implements MaterialUpdateRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void returnAmount(String materialId, Integer amount) {
+        Update update = new Update()
+                .inc("amount", amount)
+                .set("status", MaterialStatusEnum.FREE.getStatus());
+        update(materialId, update);
+    }
+
+    @Override
+    public void markDeleted(String materialId) {
+        update(materialId, Update.update("is_delete", true).unset("laboratory_id"));
+    }
+
+    @Override
+    public boolean updateFields(String materialId, Map<String, Object> fields, Long expectedVersion) {
+        Criteria criteria = Criteria.where("_id").is(new ObjectId(materialId));
+        if (Objects.nonNull(expectedVersion)) {
+            withVersion(criteria, expectedVersion);
+        }
+        Update update = new Update()
+                .set("last_modified_date", LocalDateTime.now())
+                .inc("version", 1);
+        fields.forEach(update::set);
+        UpdateResult result = mongoTemplate.updateFirst(Query.query(criteria), update, Material.class);
+        if (result.getMatchedCount() == 0 && Objects.isNull(expectedVersion)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material Id not exist");
+        }
+        return result.getMatchedCount() > 0;
+    }
+
+    @Override
+    public void pruneBorrowTime(String materialId, LocalDateTime before) {
+        Date date = Date.from(before.atZone(ZoneId.systemDefault()).toInstant());
+        update(materialId, new Update().pull("borrow_time", new Document("returnDate", new Document("$lt", date))));
+    }
+
+    @Override
+    public boolean endBorrowTime(String materialId, BorrowTime borrowTime, LocalDateTime returnedAt) {
+        Update update = new Update()
+                .set("borrow_time.$.returnDate", returnedAt)
+                .inc("version", 1);
+        Query query = Query.query(Criteria.where("_id").is(new ObjectId(materialId))
+                .and("borrow_time").elemMatch(Criteria.where("orderId").is(borrowTime.getOrderId())));
+        if (mongoTemplate.updateFirst(query, update, Material.class).getMatchedCount() > 0) {
+            return true;
+        }
+        // reservations approved before they carried their order id
+        Query legacyQuery = Query.query(Criteria.where("_id").is(new ObjectId(materialId))
+                .and("borrow_time").elemMatch(Criteria.where("orderId").exists(false)
+                        .and("fromDate").is(borrowTime.getFromDate())
+                        .and("returnDate").is(borrowTime.getReturnDate())
+                        .and("amount").is(borrowTime.getAmount())));
+        return mongoTemplate.updateFirst(legacyQuery, update, Material.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public Material findReservationState(String materialId) {
+        Query query = Query.query(Criteria.where("_id").is(new ObjectId(materialId)));
+        query.fields().include("amount", "total_amount", "version", "borrow_time");
+        Material material = mongoTemplate.findOne(query, Material.class);
+        if (Objects.isNull(material)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material Id not exist");
+        }
+        return material;
+    }
+
+    @Override
+    public Material reserve(String materialId, Long expectedVersion, List<BorrowTime> borrowTimes) {
+        int amount = borrowTimes.stream().mapToInt(BorrowTime::getAmount).sum();
+        Criteria criteria = Criteria.where("_id").is(new ObjectId(materialId))
+                .and("amount").gte(amount);
+        withVersion(criteria, expectedVersion);
+        Update update = new Update()
+                .inc("amount", -amount)
+                .inc("version", 1);
+        update.push("borrow_time").each(borrowTimes.toArray());
+        Material material = mongoTemplate.findAndModify(Query.query(criteria), update,
+                FindAndModifyOptions.options().returnNew(true), Material.class);
+        if (Objects.nonNull(material) && material.getAmount() <= 0) {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(new ObjectId(materialId)).and("amount").lte(0)),
+                    Update.update("status", MaterialStatusEnum.IN_USED.getStatus()), Material.class);
+        }
+        return material;
+    }
+
+    private void withVersion(Criteria criteria, Long expectedVersion) {
+        if (Objects.isNull(expectedVersion) || expectedVersion == 0) {
+            // materials created before the version field was added have no version yet
+            criteria.orOperator(Criteria.where("version").is(0L), Criteria.where("version").exists(false));
+        } else {
+            criteria.and("version").is(expectedVersion);
+        }
+    }
+
+    private void update(String materialId, Update update) {
+        UpdateResult result = mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(new ObjectId(materialId))), update, Material.class);
+        if (result.getMatchedCount() == 0) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material Id not exist");
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package vn.edu.fpt.laboratory.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import vn.edu.fpt.laboratory.entity.MigrationCheckpoint;
+
+@Repository
+public interface MigrationCheckpointRepository extends MongoRepository<MigrationCheckpoint, String> {
+}
@@ -0,0 +1,28 @@
+package vn.edu.fpt.laboratory.repository;
+
+import vn.edu.fpt.laboratory.entity.MigrationCheckpoint;
+
+import java.util.Optional;
+
+/**
+ * Lets a single node run a migration at a time. The lock is a lease on the checkpoint document,
+ * renewed by every progress write, so the migration moves to another node when its node dies.
+ */
+public interface MigrationLockRepository {
+
+    /**
+     * Take the lease of a migration that is not completed with one findAndModify.
+     *
+     * @return the locked checkpoint, or empty when the migration is completed or another node holds the lease
+     */
+    Optional<MigrationCheckpoint> tryLock(String migrationId);
+
+    /**
+     * Write the progress of the checkpoint and renew the lease.
+     *
+     * @return false when the lease expired and another node took the migration over
+     */
+    boolean saveProgress(MigrationCheckpoint checkpoint);
+
+    void unlock(String migrationId);
+}
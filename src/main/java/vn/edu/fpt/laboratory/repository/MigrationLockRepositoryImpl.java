@@ -0,0 +1,76 @@
+package vn.edu.fpt.laboratory.repository;
+
+import com.mongodb.client.result.UpdateResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import vn.edu.fpt.laboratory.entity.MigrationCheckpoint;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class MigrationLockRepositoryImpl implements MigrationLockRepository {
+
+    private final MongoTemplate mongoTemplate;
+    private final String owner = UUID.randomUUID().toString();
+
+    @Value("${app.migration.lock-lease-minutes:10}")
+    private Long leaseMinutes;
+
+    @Override
+    public Optional<MigrationCheckpoint> tryLock(String migrationId) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(Criteria.where("_id").is(migrationId)
+                .and("completed").ne(true)
+                .orOperator(Criteria.where("locked_until").exists(false),
+                        Criteria.where("locked_until").lt(now),
+                        Criteria.where("locked_by").is(owner)));
+        Update update = new Update()
+                .set("locked_by", owner)
+                .set("locked_until", now.plusMinutes(leaseMinutes))
+                .setOnInsert("processed", 0L)
+                .setOnInsert("completed", false);
+        try {
+            return Optional.ofNullable(mongoTemplate.findAndModify(query, update,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), MigrationCheckpoint.class));
+        } catch (DuplicateKeyException ex) {
+            // the checkpoint exists but is completed or leased by another node, so the upsert collided on _id
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public boolean saveProgress(MigrationCheckpoint checkpoint) {
+        LocalDateTime now = LocalDateTime.now();
+        checkpoint.setLastModifiedDate(now);
+        checkpoint.setLockedUntil(now.plusMinutes(leaseMinutes));
+        Update update = new Update()
+                .set("last_processed_id", checkpoint.getLastProcessedId())
+                .set("processed", checkpoint.getProcessed())
+                .set("completed", checkpoint.isCompleted())
+                .set("last_modified_date", checkpoint.getLastModifiedDate())
+                .set("locked_until", checkpoint.getLockedUntil());
+        if (Objects.nonNull(checkpoint.getCutoffDate())) {
+            update.set("cutoff_date", checkpoint.getCutoffDate());
+        }
+        UpdateResult result = mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(checkpoint.getMigrationId())
+                .and("locked_by").is(owner)), update, MigrationCheckpoint.class);
+        return result.getMatchedCount() > 0;
+    }
+
+    @Override
+    public void unlock(String migrationId) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(migrationId).and("locked_by").is(owner)),
+                new Update().unset("locked_by").unset("locked_until"), MigrationCheckpoint.class);
+    }
+}
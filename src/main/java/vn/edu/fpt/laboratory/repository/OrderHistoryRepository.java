@@ -1,6 +1,5 @@
 package vn.edu.fpt.laboratory.repository;
 
-import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 import vn.edu.fpt.laboratory.constant.OrderStatusEnum;
@@ -20,11 +19,6 @@ import java.util.List;
 public interface OrderHistoryRepository extends MongoRepository<OrderHistory, String> {
     List<OrderHistory> findByStatusAndActuallyReturnBetween(OrderStatusEnum status, LocalDateTime from, LocalDateTime to);
 
-    @Aggregation(pipeline = {
-            "{'$match':  {'status':  'COMPLETED'}}",
-            "{'$group':{'_id': {'created_by': '$created_by'}} }"
-    })
-    List<OrderHistory> countCreateByInOrderHistoriesByActuallyReturnBetween(LocalDateTime from, LocalDateTime to);
     List<OrderHistory> getOrderHistoriesByMaterialIdAndStatus(String materialId, String status);
 
     List<OrderHistory> findByMaterialIdAndStatus(String materialId, String status);
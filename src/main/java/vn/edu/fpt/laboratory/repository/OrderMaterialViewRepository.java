@@ -0,0 +1,27 @@
+package vn.edu.fpt.laboratory.repository;
+
+import org.springframework.data.mongodb.core.query.Query;
+import vn.edu.fpt.laboratory.dto.common.CursorPage;
+import vn.edu.fpt.laboratory.dto.common.PageableRequest;
+import vn.edu.fpt.laboratory.entity.OrderMaterialView;
+
+import java.util.List;
+
+public interface OrderMaterialViewRepository {
+
+    /**
+     * Orders matching the query joined with their material and image in one aggregation.
+     *
+     * @param materialName regex on the material name, applied after the join, may be null
+     * @param request      page and sort of the result, may be null to return every row
+     */
+    List<OrderMaterialView> find(Query orderQuery, String materialName, PageableRequest request);
+
+    /**
+     * Same rows as {@link #find} read after the cursor of the request, the keyset is matched right after the join
+     * when it depends on the material name.
+     */
+    CursorPage<OrderMaterialView> findWithCursor(Query orderQuery, String materialName, PageableRequest request);
+
+    long count(Query orderQuery, String materialName);
+}
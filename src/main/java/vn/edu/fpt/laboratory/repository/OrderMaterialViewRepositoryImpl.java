@@ -0,0 +1,144 @@
+package vn.edu.fpt.laboratory.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+import vn.edu.fpt.laboratory.dto.common.CursorPage;
+import vn.edu.fpt.laboratory.dto.common.PageableRequest;
+import vn.edu.fpt.laboratory.dto.common.SortableRequest;
+import vn.edu.fpt.laboratory.entity.OrderHistory;
+import vn.edu.fpt.laboratory.entity.OrderMaterialView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+@Repository
+@RequiredArgsConstructor
+public class OrderMaterialViewRepositoryImpl implements OrderMaterialViewRepository {
+
+    private static final String MATERIAL_NAME_FIELD = "material.material_name";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<OrderMaterialView> find(Query orderQuery, String materialName, PageableRequest request) {
+        Sort sort = Sort.unsorted();
+        if (Objects.nonNull(request) && Objects.nonNull(request.getSortBy())) {
+            for (SortableRequest sortable : request.getSortBy()) {
+                sort = sort.and(Sort.by(sortable.getDirection(), sortField(sortable.getProperty())));
+            }
+        }
+        List<AggregationOperation> pageOperations = new ArrayList<>();
+        if (Objects.nonNull(request)) {
+            pageOperations.add(Aggregation.skip((long) request.getPage() * request.getSize()));
+            pageOperations.add(Aggregation.limit(request.getSize()));
+        }
+        List<AggregationOperation> operations = pipeline(orderQuery, materialName, sort, null, pageOperations, Collections.emptyList());
+        return mongoTemplate.aggregate(Aggregation.newAggregation(operations), OrderHistory.class, OrderMaterialView.class).getMappedResults();
+    }
+
+    @Override
+    public CursorPage<OrderMaterialView> findWithCursor(Query orderQuery, String materialName, PageableRequest request) {
+        List<Sort.Order> orders = BaseMongoRepository.getCursorOrders(request, this::sortField);
+        Criteria after = BaseMongoRepository.afterCursor(request.getCursor(), orders);
+        List<String> sortFields = orders.stream().map(Sort.Order::getProperty).collect(Collectors.toList());
+        List<AggregationOperation> operations = pipeline(orderQuery, materialName, Sort.by(orders), after,
+                List.of(Aggregation.limit(request.getSize() + 1L)), sortFields);
+        List<Document> rows = mongoTemplate.aggregate(Aggregation.newAggregation(operations), OrderHistory.class, Document.class).getMappedResults();
+        CursorPage<Document> page = BaseMongoRepository.toCursorPage(rows, request, orders, UnaryOperator.identity(), this::viewField);
+        List<OrderMaterialView> items = page.getItems().stream()
+                .map(v -> mongoTemplate.getConverter().read(OrderMaterialView.class, v))
+                .collect(Collectors.toList());
+        return new CursorPage<>(items, page.getNextCursor());
+    }
+
+    private List<AggregationOperation> pipeline(Query orderQuery, String materialName, Sort sort, Criteria after,
+                                                List<AggregationOperation> pageOperations, List<String> extraFields) {
+        // the material is joined before paging only when the page depends on it, otherwise just for the rows of the page
+        boolean joinBeforePage = Objects.nonNull(materialName) || Objects.nonNull(sort.getOrderFor(MATERIAL_NAME_FIELD));
+        List<AggregationOperation> operations = joinBeforePage ? joinMaterial(orderQuery, materialName) : match(orderQuery);
+        if (Objects.nonNull(after)) {
+            operations.add(context -> new Document("$match", context.getMappedObject(after.getCriteriaObject(), OrderHistory.class)));
+        }
+        if (sort.isSorted()) {
+            operations.add(Aggregation.sort(sort));
+        }
+        operations.addAll(pageOperations);
+        if (!joinBeforePage) {
+            addMaterialLookup(operations);
+        }
+        operations.add(context -> new Document("$addFields", new Document("image_oid",
+                new Document("$arrayElemAt", List.of(
+                        new Document("$map", new Document("input", new Document("$objectToArray", "$material.images")).append("in", "$$this.v")),
+                        1)))));
+        operations.add(Aggregation.lookup("images", "image_oid", "_id", "image"));
+        Document projection = new Document("_id", 1)
+                .append("materialId", 1)
+                .append("amount", 1)
+                .append("reason", 1)
+                .append("status", 1)
+                .append("order_from", 1)
+                .append("order_to", 1)
+                .append("created_by", 1)
+                .append("material_name", "$material.material_name")
+                .append("image_id", new Document("$toString", new Document("$arrayElemAt", List.of("$image._id", 0))))
+                .append("image_name", new Document("$arrayElemAt", List.of("$image.image_name", 0)))
+                .append("file_key", new Document("$arrayElemAt", List.of("$image.file_key", 0)));
+        // sort keys outside of the view are kept to encode the cursor of the page
+        extraFields.stream()
+                .filter(v -> !projection.containsKey(viewField(v)))
+                .forEach(v -> projection.append(v, 1));
+        operations.add(context -> new Document("$project", projection));
+        return operations;
+    }
+
+    @Override
+    public long count(Query orderQuery, String materialName) {
+        if (Objects.isNull(materialName)) {
+            return mongoTemplate.count(orderQuery, OrderHistory.class);
+        }
+        List<AggregationOperation> operations = joinMaterial(orderQuery, materialName);
+        operations.add(Aggregation.count().as("count"));
+        Document result = mongoTemplate.aggregate(Aggregation.newAggregation(operations), OrderHistory.class, Document.class).getUniqueMappedResult();
+        return Objects.isNull(result) ? 0 : ((Number) result.get("count")).longValue();
+    }
+
+    private List<AggregationOperation> joinMaterial(Query orderQuery, String materialName) {
+        List<AggregationOperation> operations = match(orderQuery);
+        addMaterialLookup(operations);
+        if (Objects.nonNull(materialName)) {
+            operations.add(Aggregation.match(Criteria.where(MATERIAL_NAME_FIELD).regex(materialName)));
+        }
+        return operations;
+    }
+
+    private List<AggregationOperation> match(Query orderQuery) {
+        List<AggregationOperation> operations = new ArrayList<>();
+        operations.add(context -> new Document("$match", context.getMappedObject(orderQuery.getQueryObject(), OrderHistory.class)));
+        return operations;
+    }
+
+    private void addMaterialLookup(List<AggregationOperation> operations) {
+        operations.add(context -> new Document("$addFields", new Document("material_oid", new Document("$toObjectId", "$materialId"))));
+        operations.add(Aggregation.lookup("materials", "material_oid", "_id", "material"));
+        operations.add(Aggregation.unwind("material", true));
+    }
+
+    private String sortField(String property) {
+        return "material_name".equals(property) ? MATERIAL_NAME_FIELD : property;
+    }
+
+    private String viewField(String field) {
+        return MATERIAL_NAME_FIELD.equals(field) ? "material_name" : field;
+    }
+}
@@ -0,0 +1,19 @@
+package vn.edu.fpt.laboratory.repository;
+
+import org.springframework.data.mongodb.core.query.Query;
+import vn.edu.fpt.laboratory.constant.CountModeEnum;
+import vn.edu.fpt.laboratory.dto.common.PageResult;
+import vn.edu.fpt.laboratory.dto.common.PageableRequest;
+
+public interface PagedQueryRepository {
+
+    /**
+     * One page of the documents matching the query and their exact total, read together in one round trip.
+     */
+    <T> PageResult<T> findPage(Query query, PageableRequest request, Class<T> entityClass);
+
+    /**
+     * Same as {@link #findPage(Query, PageableRequest, Class)}, with the total computed as told by the count mode.
+     */
+    <T> PageResult<T> findPage(Query query, PageableRequest request, Class<T> entityClass, CountModeEnum countMode);
+}
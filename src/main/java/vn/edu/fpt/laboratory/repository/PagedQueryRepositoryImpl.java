@@ -0,0 +1,102 @@
+package vn.edu.fpt.laboratory.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+import vn.edu.fpt.laboratory.constant.CountModeEnum;
+import vn.edu.fpt.laboratory.dto.common.PageResult;
+import vn.edu.fpt.laboratory.dto.common.PageableRequest;
+import vn.edu.fpt.laboratory.dto.common.SortableRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+@Repository
+@RequiredArgsConstructor
+public class PagedQueryRepositoryImpl implements PagedQueryRepository {
+
+    private static final String TEXT_SCORE_FIELD = "text_score";
+
+    private final MongoTemplate mongoTemplate;
+    private final Cache<String, Long> pageTotalCache;
+
+    @Override
+    public <T> PageResult<T> findPage(Query query, PageableRequest request, Class<T> entityClass) {
+        return findPage(query, request, entityClass, CountModeEnum.EXACT);
+    }
+
+    @Override
+    public <T> PageResult<T> findPage(Query query, PageableRequest request, Class<T> entityClass, CountModeEnum countMode) {
+        String collectionName = mongoTemplate.getCollectionName(entityClass);
+        if (CountModeEnum.ESTIMATED.equals(countMode) && query.getQueryObject().isEmpty()) {
+            return new PageResult<>(findItems(query, request, entityClass), mongoTemplate.estimatedCount(collectionName));
+        }
+        if (CountModeEnum.EXACT.equals(countMode)) {
+            return findWithTotal(query, request, entityClass);
+        }
+        String totalKey = collectionName + ":" + query.getQueryObject().toJson();
+        Long total = pageTotalCache.getIfPresent(totalKey);
+        if (Objects.nonNull(total)) {
+            return new PageResult<>(findItems(query, request, entityClass), total);
+        }
+        PageResult<T> result = findWithTotal(query, request, entityClass);
+        pageTotalCache.put(totalKey, result.getTotalElements());
+        return result;
+    }
+
+    private <T> PageResult<T> findWithTotal(Query query, PageableRequest request, Class<T> entityClass) {
+        // the page and the total are two branches of one $facet over the same $match
+        List<Document> itemStages = new ArrayList<>();
+        Document sort = getSortObject(query, request);
+        if (!sort.isEmpty()) {
+            itemStages.add(new Document("$sort", sort));
+        }
+        itemStages.add(new Document("$skip", (long) request.getPage() * request.getSize()));
+        itemStages.add(new Document("$limit", request.getSize()));
+        if (!query.getFieldsObject().isEmpty()) {
+            itemStages.add(new Document("$project", query.getFieldsObject()));
+        }
+        List<AggregationOperation> operations = List.of(
+                context -> new Document("$match", context.getMappedObject(query.getQueryObject(), entityClass)),
+                context -> new Document("$facet", new Document("items", itemStages)
+                        .append("total", List.of(new Document("$count", "count")))));
+        Document result = mongoTemplate.aggregate(Aggregation.newAggregation(operations), entityClass, Document.class).getUniqueMappedResult();
+        if (Objects.isNull(result)) {
+            return new PageResult<>(new ArrayList<>(), 0L);
+        }
+        List<T> items = result.getList("items", Document.class).stream()
+                .map(v -> mongoTemplate.getConverter().read(entityClass, v))
+                .collect(Collectors.toList());
+        List<Document> total = result.getList("total", Document.class);
+        return new PageResult<>(items, total.isEmpty() ? 0L : ((Number) total.get(0).get("count")).longValue());
+    }
+
+    private <T> List<T> findItems(Query query, PageableRequest request, Class<T> entityClass) {
+        BasicQuery pageQuery = new BasicQuery(query.getQueryObject(), query.getFieldsObject());
+        pageQuery.setSortObject(getSortObject(query, request));
+        pageQuery.skip((long) request.getPage() * request.getSize()).limit(request.getSize());
+        return mongoTemplate.find(pageQuery, entityClass);
+    }
+
+    private Document getSortObject(Query query, PageableRequest request) {
+        Document sort = new Document();
+        if (Objects.nonNull(request.getSortBy())) {
+            for (SortableRequest sortable : request.getSortBy()) {
+                sort.putIfAbsent(sortable.getProperty(), Sort.Direction.ASC.equals(sortable.getDirection()) ? 1 : -1);
+            }
+        }
+        if (sort.isEmpty() && query.getQueryObject().containsKey("$text")) {
+            sort.put(TEXT_SCORE_FIELD, new Document("$meta", "textScore"));
+        }
+        return sort;
+    }
+}
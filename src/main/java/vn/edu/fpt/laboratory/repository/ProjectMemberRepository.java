@@ -0,0 +1,14 @@
+package vn.edu.fpt.laboratory.repository;
+
+import vn.edu.fpt.laboratory.dto.common.ProjectMemberRemoval;
+
+public interface ProjectMemberRepository {
+
+    /**
+     * Remove the account from every project of the laboratory in a fixed number of queries. A project
+     * losing its last member is deleted, a project losing its owner is handed to the next member.
+     *
+     * @return ids of the projects the account was removed from and of the deleted ones
+     */
+    ProjectMemberRemoval removeAccountFromLaboratoryProjects(String laboratoryId, String accountId);
+}
@@ -0,0 +1,89 @@
+package vn.edu.fpt.laboratory.repository;
+
+import com.mongodb.DBRef;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import vn.edu.fpt.laboratory.constant.LaboratoryReferenceEnum;
+import vn.edu.fpt.laboratory.constant.RoleInLaboratoryEnum;
+import vn.edu.fpt.laboratory.dto.common.ProjectMemberRemoval;
+import vn.edu.fpt.laboratory.utils.DBRefUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectMemberRepositoryImpl implements ProjectMemberRepository {
+
+    private static final String PROJECT_COLLECTION = LaboratoryReferenceEnum.PROJECT.getCollection();
+    private static final String MEMBER_COLLECTION = LaboratoryReferenceEnum.MEMBER.getCollection();
+
+    private final MongoTemplate mongoTemplate;
+    private final LaboratoryReferenceRepository laboratoryReferenceRepository;
+    private final LaboratoryUpdateRepository laboratoryUpdateRepository;
+
+    @Override
+    public ProjectMemberRemoval removeAccountFromLaboratoryProjects(String laboratoryId, String accountId) {
+        Query projectQuery = new Query(laboratoryReferenceRepository.belongTo(laboratoryId, LaboratoryReferenceEnum.PROJECT));
+        projectQuery.fields().include("members");
+        List<Document> projects = mongoTemplate.find(projectQuery, Document.class, PROJECT_COLLECTION);
+        List<Object> memberIds = projects.stream()
+                .flatMap(v -> DBRefUtils.getReferenceIds(v, "members").stream())
+                .collect(Collectors.toList());
+        if (memberIds.isEmpty()) {
+            return ProjectMemberRemoval.empty();
+        }
+
+        Query memberQuery = Query.query(Criteria.where("_id").in(memberIds).and("account_id").is(accountId));
+        memberQuery.fields().include("role");
+        Map<Object, String> removedRoles = new HashMap<>();
+        mongoTemplate.find(memberQuery, Document.class, MEMBER_COLLECTION).forEach(v -> removedRoles.put(v.get("_id"), v.getString("role")));
+        if (removedRoles.isEmpty()) {
+            return ProjectMemberRemoval.empty();
+        }
+
+        BulkOperations projectOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PROJECT_COLLECTION);
+        BulkOperations memberOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MEMBER_COLLECTION);
+        List<String> affectedProjects = new ArrayList<>();
+        List<String> deletedProjects = new ArrayList<>();
+        for (Document project : projects) {
+            List<Object> members = DBRefUtils.getReferenceIds(project, "members");
+            List<Object> removed = members.stream().filter(removedRoles::containsKey).collect(Collectors.toList());
+            if (removed.isEmpty()) {
+                continue;
+            }
+            ObjectId projectId = project.getObjectId("_id");
+            affectedProjects.add(projectId.toHexString());
+            List<Object> remaining = members.stream().filter(v -> !removedRoles.containsKey(v)).collect(Collectors.toList());
+            if (remaining.isEmpty()) {
+                projectOperations.remove(Query.query(Criteria.where("_id").is(projectId)));
+                deletedProjects.add(projectId.toHexString());
+                continue;
+            }
+            Update update = new Update().pullAll("members", removed.stream().map(v -> new DBRef(MEMBER_COLLECTION, v)).toArray());
+            boolean ownerRemoved = removed.stream().anyMatch(v -> RoleInLaboratoryEnum.OWNER.getRole().equals(removedRoles.get(v)));
+            if (ownerRemoved) {
+                Object newOwner = remaining.get(0);
+                update.set("owner_by", new DBRef(MEMBER_COLLECTION, newOwner));
+                memberOperations.updateOne(Query.query(Criteria.where("_id").is(newOwner)), Update.update("role", RoleInLaboratoryEnum.OWNER.getRole()));
+            }
+            projectOperations.updateOne(Query.query(Criteria.where("_id").is(projectId)), update);
+        }
+        memberOperations.remove(Query.query(Criteria.where("_id").in(removedRoles.keySet())));
+
+        projectOperations.execute();
+        memberOperations.execute();
+        laboratoryUpdateRepository.pullReferences(laboratoryId, LaboratoryReferenceEnum.PROJECT, deletedProjects);
+        log.info("Remove account {} from {} projects of laboratory {}, {} deleted", accountId, affectedProjects.size(), laboratoryId, deletedProjects.size());
+        return new ProjectMemberRemoval(affectedProjects, deletedProjects);
+    }
+}
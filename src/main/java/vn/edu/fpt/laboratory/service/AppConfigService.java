@@ -1,5 +1,6 @@
 package vn.edu.fpt.laboratory.service;
 
+import vn.edu.fpt.laboratory.dto.cache.AppConfigSnapshot;
 import vn.edu.fpt.laboratory.dto.common.PageableResponse;
 import vn.edu.fpt.laboratory.dto.request.app_config.CreateAppConfigRequest;
 import vn.edu.fpt.laboratory.dto.request.app_config.GetAppConfigRequest;
@@ -8,6 +9,8 @@ import vn.edu.fpt.laboratory.dto.response.app_config.CreateAppConfigResponse;
 import vn.edu.fpt.laboratory.dto.response.app_config.GetAppConfigDetailResponse;
 import vn.edu.fpt.laboratory.dto.response.app_config.GetAppConfigResponse;
 
+import java.util.Optional;
+
 /**
  * @author : Hoang Lam
  * @product : Charity Management System
@@ -26,4 +29,14 @@ public interface AppConfigService {
     PageableResponse<GetAppConfigResponse> getAppConfig(GetAppConfigRequest request);
 
     GetAppConfigDetailResponse getAppConfigDetail(String configId);
+
+    /**
+     * Value of a config key from the in-memory snapshot, no database read.
+     */
+    Optional<String> getConfigValue(String configKey);
+
+    /**
+     * Replaces the snapshot with the configs in mongo unless it is already at the given version or newer.
+     */
+    AppConfigSnapshot reloadAppConfig(Long version);
 }
@@ -2,6 +2,7 @@ package vn.edu.fpt.laboratory.service;
 
 import org.springframework.cache.annotation.CacheConfig;
 import org.springframework.cache.annotation.Cacheable;
+import vn.edu.fpt.laboratory.config.cache.CaffeineCacheConfiguration;
 
 /**
  * @author : Hoang Lam
@@ -10,13 +11,18 @@ import org.springframework.cache.annotation.Cacheable;
  * @created : 30/08/2022 - 19:35
  * @contact : 0834481768 - hoang.harley.work@gmail.com
  **/
-@CacheConfig(cacheNames = "displayMessage")
+@CacheConfig(cacheNames = CaffeineCacheConfiguration.DISPLAY_MESSAGE_CACHE)
 public interface DisplayMessageService {
-    @Cacheable
+
+    /**
+     * Both overloads share the {@code code:language} key, so the message of the request locale is read
+     * from redis once per TTL instead of on every response.
+     */
+    @Cacheable(key = "#code + ':' + T(org.springframework.context.i18n.LocaleContextHolder).getLocale().getLanguage()")
     String getDisplayMessage(String code);
 
 
-    @Cacheable
+    @Cacheable(key = "#code + ':' + (#language ?: T(vn.edu.fpt.laboratory.constant.AppConstant).DEFAULT_LANGUAGE)")
     String getDisplayMessage(String code, String language);
 
 }
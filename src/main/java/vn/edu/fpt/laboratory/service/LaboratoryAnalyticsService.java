@@ -0,0 +1,8 @@
+package vn.edu.fpt.laboratory.service;
+
+import vn.edu.fpt.laboratory.dto.response.laboratory.GetLaboratoryAnalyticsResponse;
+
+public interface LaboratoryAnalyticsService {
+
+    GetLaboratoryAnalyticsResponse getLaboratoryAnalytics(String laboratoryId);
+}
@@ -0,0 +1,31 @@
+package vn.edu.fpt.laboratory.service;
+
+import vn.edu.fpt.laboratory.entity.BorrowTime;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface MaterialAvailabilityService {
+
+    /**
+     * Highest amount of the material reserved at the same time in [from, to).
+     */
+    int peakReserved(String materialId, LocalDateTime from, LocalDateTime to);
+
+    int reservedAt(String materialId, LocalDateTime time);
+
+    void evict(String materialId);
+
+    /**
+     * Reserve the borrow time on the material without overbooking, retrying a bounded number of times
+     * when concurrent reservations change the material in between.
+     */
+    void reserve(String materialId, BorrowTime borrowTime);
+
+    /**
+     * Reserve as many of the borrow times as the material can hold, in the given order, with one write.
+     *
+     * @return the borrow times that were reserved
+     */
+    List<BorrowTime> reserveAll(String materialId, List<BorrowTime> borrowTimes);
+}
@@ -0,0 +1,29 @@
+package vn.edu.fpt.laboratory.service;
+
+import vn.edu.fpt.laboratory.dto.request.material.GetAvailabilityRequest;
+import vn.edu.fpt.laboratory.dto.response.material.GetMaterialAvailabilityResponse;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface MaterialCalendarService {
+
+    /**
+     * Add an approved reservation to the hourly usage buckets it overlaps.
+     */
+    void recordReservation(String materialId, LocalDateTime from, LocalDateTime to, Integer amount);
+
+    /**
+     * Give back the remaining hours of a reservation that was returned early.
+     */
+    void releaseReservation(String materialId, LocalDateTime returnedAt, LocalDateTime to, Integer amount);
+
+    /**
+     * Recompute the buckets from the current hour on out of the material's borrow time.
+     */
+    void rebuild(String materialId);
+
+    GetMaterialAvailabilityResponse getMaterialAvailability(String materialId, GetAvailabilityRequest request);
+
+    List<GetMaterialAvailabilityResponse> getLaboratoryAvailability(String laboratoryId, GetAvailabilityRequest request);
+}
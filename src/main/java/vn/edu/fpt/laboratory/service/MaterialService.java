@@ -26,14 +26,21 @@ public interface MaterialService {
 
     OrderMaterialResponse orderMaterial(String laboratoryId, String materialId, OrderMaterialRequest request);
 
+    /**
+     * Order several materials of a laboratory for the same interval, either every item is ordered or none is.
+     */
+    OrderCartResponse orderCart(String laboratoryId, OrderCartRequest request);
+
     void returnMaterial(String orderId);
 
     PageableResponse<GetOrderedResponse> getOrderByLabId(String laboratoryId, GetOrderRequest request);
 
-    PageableResponse<GetOrderedMaterialResponse> getOrderedMaterialInLabByAccountId(String laboratoryId, String accountId);
+    PageableResponse<GetOrderedMaterialResponse> getOrderedMaterialInLabByAccountId(String laboratoryId, String accountId, GetOrderedMaterialRequest request);
 
     void responseOrder(String orderId, ResponseOrderRequest request);
 
+    BulkResponseOrderResponse responseOrders(BulkResponseOrderRequest request);
+
     void removeImage(String materialId, String imageId);
 
     void addImage(String materialId, AddImageRequest request);
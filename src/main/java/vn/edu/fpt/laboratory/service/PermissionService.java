@@ -0,0 +1,20 @@
+package vn.edu.fpt.laboratory.service;
+
+import java.util.Optional;
+
+/**
+ * Role of an account in a laboratory or project, read from the indexed member_info lookup. A role is
+ * resolved at most once per request and kept for a short TTL across requests.
+ **/
+public interface PermissionService {
+
+    Optional<String> getLaboratoryRole(String laboratoryId, String accountId);
+
+    Optional<String> getProjectRole(String projectId, String accountId);
+
+    void evictLaboratoryRoles(String laboratoryId);
+
+    void evictProjectRoles(String projectId);
+
+    void evictAccountRoles(String accountId);
+}
@@ -38,5 +38,11 @@ public interface ProjectService {
 
     void removeMemberFromProject(String projectId, String memberId);
 
+    /**
+     * Remove the account from every project of the laboratory, deleting the projects left without members,
+     * and notify the workspaces of the projects it left.
+     */
+    void removeAccountFromLaboratoryProjects(String labId, String accountId);
+
     PageableResponse<GetMemberNotInProjectResponse> getMemberNotInProject(GetMemberNotInProjectRequest request);
 }
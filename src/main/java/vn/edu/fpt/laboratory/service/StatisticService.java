@@ -1,10 +1,22 @@
 package vn.edu.fpt.laboratory.service;
 
+import vn.edu.fpt.laboratory.dto.event.StatisticChangedEvent;
+import vn.edu.fpt.laboratory.dto.request.dashboard.GetDailyStatisticRequest;
+import vn.edu.fpt.laboratory.dto.request.dashboard.GetDistinctBorrowerRequest;
+import vn.edu.fpt.laboratory.dto.response.dashboard.GetDailyStatisticResponse;
+import vn.edu.fpt.laboratory.dto.response.dashboard.GetDistinctBorrowerResponse;
 import vn.edu.fpt.laboratory.dto.response.dashboard.GetStatisticsResponse;
-import vn.edu.fpt.laboratory.repository.LaboratoryRepository;
 
-import java.time.LocalDate;
+import java.util.List;
 
 public interface StatisticService {
     GetStatisticsResponse getStatistic();
+
+    List<GetDailyStatisticResponse> getDailyStatistic(GetDailyStatisticRequest request);
+
+    GetDistinctBorrowerResponse getDistinctBorrowers(GetDistinctBorrowerRequest request);
+
+    void recordChange(StatisticChangedEvent event);
+
+    void refreshSnapshot();
 }
@@ -0,0 +1,17 @@
+package vn.edu.fpt.laboratory.service;
+
+import vn.edu.fpt.laboratory.dto.response.material.GetTrendingMaterialResponse;
+
+import java.util.List;
+
+public interface TrendingMaterialService {
+
+    void recordApproval(String laboratoryId, String materialId);
+
+    /**
+     * Most approved materials of the laboratory, or of all laboratories when the id is null.
+     */
+    List<GetTrendingMaterialResponse> getTrendingMaterials(String laboratoryId);
+
+    void checkpoint();
+}
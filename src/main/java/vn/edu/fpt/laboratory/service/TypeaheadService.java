@@ -0,0 +1,21 @@
+package vn.edu.fpt.laboratory.service;
+
+import vn.edu.fpt.laboratory.constant.TypeaheadTypeEnum;
+import vn.edu.fpt.laboratory.dto.request.search.GetTypeaheadRequest;
+import vn.edu.fpt.laboratory.dto.response.search.GetTypeaheadResponse;
+
+import java.util.List;
+
+public interface TypeaheadService {
+
+    /**
+     * Names starting with the keyword, or having a word starting with it, read from memory only.
+     */
+    List<GetTypeaheadResponse> getTypeahead(GetTypeaheadRequest request);
+
+    void put(TypeaheadTypeEnum type, String id, String name, String laboratoryId);
+
+    void remove(TypeaheadTypeEnum type, String id);
+
+    void rebuild();
+}
@@ -0,0 +1,16 @@
+package vn.edu.fpt.laboratory.service;
+
+import vn.edu.fpt.laboratory.dto.cache.UserInfo;
+
+import java.util.Collection;
+
+/**
+ * Request scoped batching layer around {@link UserInfoService}.
+ * List endpoints prime every account id needed by the page, then converters load from memory.
+ **/
+public interface UserInfoLoader {
+
+    void prime(Collection<String> accountIds);
+
+    UserInfo load(String accountId);
+}
@@ -2,6 +2,9 @@ package vn.edu.fpt.laboratory.service;
 
 import vn.edu.fpt.laboratory.dto.cache.UserInfo;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * @author : Hoang Lam
  * @product : Charity Management System
@@ -13,6 +16,13 @@ public interface UserInfoService {
 
     UserInfo getUserInfo(String accountId);
 
+    /**
+     * Resolve many accounts with a single MGET. Accounts missing in redis are absent from the result.
+     */
+    Map<String, UserInfo> getUserInfo(Collection<String> accountIds);
+
+    void evictUserInfo(String accountId);
+
     String getAccountId();
 
 }
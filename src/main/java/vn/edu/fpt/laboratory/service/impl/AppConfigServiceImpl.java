@@ -2,11 +2,18 @@ package vn.edu.fpt.laboratory.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
+import vn.edu.fpt.laboratory.config.kafka.producer.AppConfigChangedProducer;
 import vn.edu.fpt.laboratory.constant.ResponseStatusEnum;
+import vn.edu.fpt.laboratory.dto.cache.AppConfigSnapshot;
+import vn.edu.fpt.laboratory.dto.common.CursorPage;
+import vn.edu.fpt.laboratory.dto.common.PageResult;
 import vn.edu.fpt.laboratory.dto.common.PageableResponse;
 import vn.edu.fpt.laboratory.dto.common.UserInfoResponse;
 import vn.edu.fpt.laboratory.dto.request.app_config.CreateAppConfigRequest;
@@ -21,11 +28,14 @@ import vn.edu.fpt.laboratory.entity.Material;
 import vn.edu.fpt.laboratory.exception.BusinessException;
 import vn.edu.fpt.laboratory.repository.AppConfigRepository;
 import vn.edu.fpt.laboratory.repository.BaseMongoRepository;
+import vn.edu.fpt.laboratory.repository.PagedQueryRepository;
 import vn.edu.fpt.laboratory.service.AppConfigService;
 import vn.edu.fpt.laboratory.service.UserInfoService;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 /**
@@ -40,9 +50,16 @@ import java.util.stream.Collectors;
 @Slf4j
 public class AppConfigServiceImpl implements AppConfigService {
 
+    private static final String VERSION_KEY = "app_config:version";
+
     private final AppConfigRepository appConfigRepository;
     private final MongoTemplate mongoTemplate;
+    private final PagedQueryRepository pagedQueryRepository;
     private final UserInfoService userInfoService;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final AppConfigChangedProducer appConfigChangedProducer;
+
+    private final AtomicReference<AppConfigSnapshot> snapshot = new AtomicReference<>(AppConfigSnapshot.EMPTY);
 
     @Override
     public CreateAppConfigResponse createAppConfig(CreateAppConfigRequest request) {
@@ -58,6 +75,7 @@ public class AppConfigServiceImpl implements AppConfigService {
         }catch (Exception ex){
             throw new BusinessException("Can't create app config to database: "+ ex.getMessage());
         }
+        publishAppConfigChanged();
         return CreateAppConfigResponse.builder()
                 .configId(appConfig.getConfigId())
                 .build();
@@ -82,6 +100,7 @@ public class AppConfigServiceImpl implements AppConfigService {
         }catch (Exception ex){
             throw new BusinessException("Can't update app config in database: "+ ex.getMessage());
         }
+        publishAppConfigChanged();
 
     }
 
@@ -94,6 +113,7 @@ public class AppConfigServiceImpl implements AppConfigService {
         }catch (Exception ex){
             throw new BusinessException("Can't delete app config in database: "+ ex.getMessage());
         }
+        publishAppConfigChanged();
 
     }
 
@@ -113,15 +133,67 @@ public class AppConfigServiceImpl implements AppConfigService {
 
         BaseMongoRepository.addCriteriaWithAuditable(query, request);
 
-        Long totalElements = mongoTemplate.count(query, AppConfig.class);
+        if (request.isCursorMode()) {
+            CursorPage<AppConfig> page = BaseMongoRepository.findWithCursor(mongoTemplate, query, request, AppConfig.class);
+            return new PageableResponse<>(request, page.getNextCursor(), page.getItems().stream().map(this::convertAppConfigToGetAppConfigResponse).collect(Collectors.toList()));
+        }
+
+        PageResult<AppConfig> page = pagedQueryRepository.findPage(query, request, AppConfig.class);
+        List<GetAppConfigResponse> getAppConfigResponses = page.getItems().stream().map(this::convertAppConfigToGetAppConfigResponse).collect(Collectors.toList());
+
+        return new PageableResponse<>(request, page.getTotalElements(), getAppConfigResponses);
+    }
+
+    @Override
+    public Optional<String> getConfigValue(String configKey) {
+        AppConfigSnapshot current = snapshot.get();
+        if (current == AppConfigSnapshot.EMPTY) {
+            current = reloadAppConfig(getVersion());
+        }
+        return current.getValue(configKey);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reloadAppConfig(getVersion());
+    }
 
-        BaseMongoRepository.addCriteriaWithPageable(query, request);
-        BaseMongoRepository.addCriteriaWithSorted(query, request);
+    @Override
+    public AppConfigSnapshot reloadAppConfig(Long version) {
+        AppConfigSnapshot current = snapshot.get();
+        if (current != AppConfigSnapshot.EMPTY && current.getVersion() >= version) {
+            return current;
+        }
+        AppConfigSnapshot loaded = AppConfigSnapshot.of(version, appConfigRepository.findAll());
+        // a slower reload of an older version must not replace a newer snapshot
+        AppConfigSnapshot result = snapshot.accumulateAndGet(loaded, (previous, next) -> next.isNotOlderThan(previous) ? next : previous);
+        log.info("App config snapshot at version {}: {} keys", result.getVersion(), result.getValues().size());
+        return result;
+    }
 
-        List<AppConfig> appConfigs = mongoTemplate.find(query, AppConfig.class);
-        List<GetAppConfigResponse> getAppConfigResponses = appConfigs.stream().map(this::convertAppConfigToGetAppConfigResponse).collect(Collectors.toList());
+    /**
+     * Bumps the shared version, reloads this instance right away and tells the others to reload.
+     */
+    private void publishAppConfigChanged() {
+        Long version;
+        try {
+            version = redisTemplate.opsForValue().increment(VERSION_KEY);
+        } catch (Exception ex) {
+            log.error("Can't increase app config version: {}", ex.getMessage());
+            version = snapshot.get().getVersion() + 1;
+        }
+        reloadAppConfig(version);
+        appConfigChangedProducer.sendMessage(version);
+    }
 
-        return new PageableResponse<>(request, totalElements, getAppConfigResponses);
+    private Long getVersion() {
+        try {
+            String version = redisTemplate.opsForValue().get(VERSION_KEY);
+            return Objects.isNull(version) ? 0L : Long.parseLong(version);
+        } catch (Exception ex) {
+            log.error("Can't get app config version: {}", ex.getMessage());
+            return 0L;
+        }
     }
 
     private GetAppConfigResponse convertAppConfigToGetAppConfigResponse(AppConfig appConfig) {
@@ -0,0 +1,161 @@
+package vn.edu.fpt.laboratory.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.stereotype.Service;
+import vn.edu.fpt.laboratory.constant.LaboratoryReferenceEnum;
+import vn.edu.fpt.laboratory.constant.OrderStatusEnum;
+import vn.edu.fpt.laboratory.constant.ResponseStatusEnum;
+import vn.edu.fpt.laboratory.dto.cache.UserInfo;
+import vn.edu.fpt.laboratory.dto.common.UserInfoResponse;
+import vn.edu.fpt.laboratory.dto.response.laboratory.BorrowerResponse;
+import vn.edu.fpt.laboratory.dto.response.laboratory.GetLaboratoryAnalyticsResponse;
+import vn.edu.fpt.laboratory.dto.response.laboratory.MaterialUsageResponse;
+import vn.edu.fpt.laboratory.exception.BusinessException;
+import vn.edu.fpt.laboratory.repository.LaboratoryReferenceRepository;
+import vn.edu.fpt.laboratory.repository.LaboratoryRepository;
+import vn.edu.fpt.laboratory.service.LaboratoryAnalyticsService;
+import vn.edu.fpt.laboratory.service.UserInfoService;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LaboratoryAnalyticsServiceImpl implements LaboratoryAnalyticsService {
+
+    private static final int TOP_SIZE = 10;
+    private static final double MILLIS_PER_HOUR = 3600000.0;
+    private static final double MILLIS_PER_MINUTE = 60000.0;
+    private static final String ORDER_COLLECTION = "borrow_histories";
+    private static final String MATERIAL_COLLECTION = "materials";
+
+    private final MongoTemplate mongoTemplate;
+    private final LaboratoryRepository laboratoryRepository;
+    private final LaboratoryReferenceRepository laboratoryReferenceRepository;
+    private final UserInfoService userInfoService;
+    private final Cache<String, GetLaboratoryAnalyticsResponse> laboratoryAnalyticsCache;
+
+    @Override
+    public GetLaboratoryAnalyticsResponse getLaboratoryAnalytics(String laboratoryId) {
+        return laboratoryAnalyticsCache.get(laboratoryId, this::computeAnalytics);
+    }
+
+    private GetLaboratoryAnalyticsResponse computeAnalytics(String laboratoryId) {
+        if (!laboratoryRepository.existsById(laboratoryId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist");
+        }
+        // every figure is one branch of the same $facet, so the whole tab costs one round trip to mongo
+        AggregationOperation facet = context -> new Document("$facet", new Document()
+                .append("status", List.of(
+                        new Document("$group", new Document("_id", "$status").append("count", new Document("$sum", 1)))))
+                .append("materials", List.of(
+                        groupAndRank("$materialId"),
+                        new Document("$sort", new Document("count", -1).append("_id", 1)),
+                        new Document("$limit", TOP_SIZE),
+                        new Document("$addFields", new Document("material_oid", new Document("$convert", new Document("input", "$_id")
+                                .append("to", "objectId")
+                                .append("onError", null)
+                                .append("onNull", null)))),
+                        new Document("$lookup", new Document("from", MATERIAL_COLLECTION)
+                                .append("localField", "material_oid")
+                                .append("foreignField", "_id")
+                                .append("as", "material")),
+                        new Document("$project", new Document("count", 1)
+                                .append("amount", 1)
+                                .append("material_name", new Document("$arrayElemAt", List.of("$material.material_name", 0))))))
+                .append("borrowers", List.of(
+                        groupAndRank("$created_by"),
+                        new Document("$sort", new Document("count", -1).append("_id", 1)),
+                        new Document("$limit", TOP_SIZE)))
+                .append("borrow_duration", List.of(
+                        new Document("$match", new Document("status", OrderStatusEnum.COMPLETED.getStatus())
+                                .append("actually_return", new Document("$ne", null))
+                                .append("order_from", new Document("$ne", null))),
+                        average("$actually_return", "$order_from")))
+                .append("approval_latency", List.of(
+                        new Document("$match", new Document("responded_date", new Document("$ne", null))
+                                .append("created_date", new Document("$ne", null))),
+                        average("$responded_date", "$created_date"))));
+
+        Document result = mongoTemplate.aggregate(Aggregation.newAggregation(
+                Aggregation.match(laboratoryReferenceRepository.belongTo(laboratoryId, LaboratoryReferenceEnum.ORDER)),
+                facet), ORDER_COLLECTION, Document.class).getUniqueMappedResult();
+        if (Objects.isNull(result)) {
+            result = new Document();
+        }
+
+        Map<String, Long> numOfOrderByStatus = new HashMap<>();
+        for (Document status : getList(result, "status")) {
+            numOfOrderByStatus.put(status.getString("_id"), getLong(status, "count"));
+        }
+
+        List<Document> borrowers = getList(result, "borrowers");
+        Map<String, UserInfo> userInfos = borrowers.isEmpty()
+                ? Collections.emptyMap()
+                : userInfoService.getUserInfo(borrowers.stream().map(v -> v.getString("_id")).filter(Objects::nonNull).collect(Collectors.toList()));
+
+        return GetLaboratoryAnalyticsResponse.builder()
+                .laboratoryId(laboratoryId)
+                .numOfOrder(numOfOrderByStatus.values().stream().mapToLong(Long::longValue).sum())
+                .numOfPendingOrder(numOfOrderByStatus.getOrDefault(OrderStatusEnum.WAITING_FOR_APPROVAL.getStatus(), 0L))
+                .numOfOrderByStatus(numOfOrderByStatus)
+                .topMaterials(getList(result, "materials").stream()
+                        .map(v -> MaterialUsageResponse.builder()
+                                .materialId(v.getString("_id"))
+                                .materialName(v.getString("material_name"))
+                                .numOfOrder(getLong(v, "count"))
+                                .amount(getLong(v, "amount"))
+                                .build())
+                        .collect(Collectors.toList()))
+                .topBorrowers(borrowers.stream()
+                        .map(v -> BorrowerResponse.builder()
+                                .borrower(UserInfoResponse.builder()
+                                        .accountId(v.getString("_id"))
+                                        .userInfo(userInfos.get(v.getString("_id")))
+                                        .build())
+                                .numOfOrder(getLong(v, "count"))
+                                .amount(getLong(v, "amount"))
+                                .build())
+                        .collect(Collectors.toList()))
+                .avgBorrowHours(getAverage(result, "borrow_duration", MILLIS_PER_HOUR))
+                .avgApprovalMinutes(getAverage(result, "approval_latency", MILLIS_PER_MINUTE))
+                .computedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private Document groupAndRank(String key) {
+        return new Document("$group", new Document("_id", key)
+                .append("count", new Document("$sum", 1))
+                .append("amount", new Document("$sum", "$amount")));
+    }
+
+    private Document average(String end, String start) {
+        return new Document("$group", new Document("_id", null)
+                .append("value", new Document("$avg", new Document("$subtract", List.of(end, start)))));
+    }
+
+    private List<Document> getList(Document document, String field) {
+        return document.getList(field, Document.class, Collections.emptyList());
+    }
+
+    private Double getAverage(Document document, String field, double unit) {
+        List<Document> values = getList(document, field);
+        if (values.isEmpty() || !(values.get(0).get("value") instanceof Number)) {
+            return null;
+        }
+        return ((Number) values.get(0).get("value")).doubleValue() / unit;
+    }
+
+    private long getLong(Document document, String field) {
+        Object value = document.get(field);
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+}
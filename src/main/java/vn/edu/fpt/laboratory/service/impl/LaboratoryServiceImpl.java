@@ -3,9 +3,11 @@ package vn.edu.fpt.laboratory.service.impl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
@@ -13,11 +15,18 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import vn.edu.fpt.laboratory.constant.StatisticMetricEnum;
+import vn.edu.fpt.laboratory.dto.event.StatisticChangedEvent;
+import vn.edu.fpt.laboratory.config.migration.AccountMembershipMigration;
 import vn.edu.fpt.laboratory.config.kafka.producer.SendEmailProducer;
 import vn.edu.fpt.laboratory.constant.ApplicationStatusEnum;
+import vn.edu.fpt.laboratory.constant.CountModeEnum;
+import vn.edu.fpt.laboratory.constant.LaboratoryReferenceEnum;
 import vn.edu.fpt.laboratory.constant.LaboratoryRoleEnum;
+import vn.edu.fpt.laboratory.constant.MembershipStatusEnum;
 import vn.edu.fpt.laboratory.constant.ResponseStatusEnum;
 import vn.edu.fpt.laboratory.constant.RoleInLaboratoryEnum;
+import vn.edu.fpt.laboratory.constant.TypeaheadTypeEnum;
 import vn.edu.fpt.laboratory.dto.cache.UserInfo;
 import vn.edu.fpt.laboratory.dto.common.*;
 import vn.edu.fpt.laboratory.dto.event.SendEmailEvent;
@@ -30,14 +39,19 @@ import vn.edu.fpt.laboratory.entity.*;
 import vn.edu.fpt.laboratory.exception.BusinessException;
 import vn.edu.fpt.laboratory.repository.*;
 import vn.edu.fpt.laboratory.service.AccountFeignService;
+import vn.edu.fpt.laboratory.service.AppConfigService;
 import vn.edu.fpt.laboratory.service.LaboratoryService;
+import vn.edu.fpt.laboratory.service.PermissionService;
 import vn.edu.fpt.laboratory.service.ProjectService;
+import vn.edu.fpt.laboratory.service.TypeaheadService;
+import vn.edu.fpt.laboratory.service.UserInfoLoader;
 import vn.edu.fpt.laboratory.service.UserInfoService;
 import vn.edu.fpt.laboratory.utils.ApplicationSortByStatus;
 import vn.edu.fpt.laboratory.utils.AuditorUtils;
 
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author : Hoang Lam
@@ -54,12 +68,21 @@ public class LaboratoryServiceImpl implements LaboratoryService {
     private final LaboratoryRepository laboratoryRepository;
     private final MemberInfoRepository memberInfoRepository;
     private final UserInfoService userInfoService;
+    private final UserInfoLoader userInfoLoader;
     private final ProjectService projectService;
     private final MongoTemplate mongoTemplate;
     private final ApplicationRepository applicationRepository;
-    private final AppConfigRepository appConfigRepository;
+    private final AppConfigService appConfigService;
+    private final PermissionService permissionService;
+    private final AccountMembershipRepository accountMembershipRepository;
+    private final AccountMembershipMigration accountMembershipMigration;
     private final SendEmailProducer sendEmailProducer;
     private final AccountFeignService accountFeignService;
+    private final LaboratoryReferenceRepository laboratoryReferenceRepository;
+    private final LaboratoryUpdateRepository laboratoryUpdateRepository;
+    private final PagedQueryRepository pagedQueryRepository;
+    private final TypeaheadService typeaheadService;
+    private final ApplicationEventPublisher applicationEventPublisher;
 
     @Override
     @Transactional(rollbackFor = BusinessException.class)
@@ -96,6 +119,18 @@ public class LaboratoryServiceImpl implements LaboratoryService {
         } catch (Exception ex) {
             throw new BusinessException("Can't create laboratory in database: " + ex.getMessage());
         }
+        try {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(new ObjectId(memberInfo.getMemberId()))),
+                    Update.update("laboratory_id", laboratory.getLaboratoryId()), MemberInfo.class);
+        } catch (Exception ex) {
+            throw new BusinessException("Can't update owner of laboratory in database: " + ex.getMessage());
+        }
+        accountMembershipRepository.saveMember(accountId, laboratory.getLaboratoryId(), LaboratoryRoleEnum.OWNER.getRole());
+        applicationEventPublisher.publishEvent(StatisticChangedEvent.builder()
+                .increment(StatisticMetricEnum.LABORATORY, 1L)
+                .increment(StatisticMetricEnum.MEMBER, 1L)
+                .build());
+        typeaheadService.put(TypeaheadTypeEnum.LABORATORY, laboratory.getLaboratoryId(), laboratory.getLaboratoryName(), laboratory.getLaboratoryId());
         return CreateLaboratoryResponse.builder()
                 .labId(laboratory.getLaboratoryId())
                 .build();
@@ -106,27 +141,29 @@ public class LaboratoryServiceImpl implements LaboratoryService {
         Laboratory laboratory = laboratoryRepository.findById(labId)
                 .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory id not found"));
 
+        Map<String, Object> fields = new HashMap<>();
         if (!laboratory.getLaboratoryName().equals(request.getLaboratoryName())) {
             if (Objects.nonNull(request.getLaboratoryName())) {
                 if (laboratoryRepository.findByLaboratoryName(request.getLaboratoryName()).isPresent()) {
                     throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory name already in database");
                 }
-                laboratory.setLaboratoryName(request.getLaboratoryName());
+                fields.put("laboratory_name", request.getLaboratoryName());
             }
         }
         if (Objects.nonNull(request.getDescription())) {
-            laboratory.setDescription(request.getDescription());
+            fields.put("description", request.getDescription());
         }
         if (Objects.nonNull(request.getMajor())) {
-            laboratory.setDescription(request.getMajor());
+            fields.put("major", request.getMajor());
         }
         if (Objects.nonNull(request.getOwnerBy()) && ObjectId.isValid(request.getOwnerBy())) {
             log.info("Update Laboratory name: {}", request.getLaboratoryName());
             MemberInfo currentOwnerBy = laboratory.getOwnerBy();
             currentOwnerBy.setRole(RoleInLaboratoryEnum.MEMBER.getRole());
-            MemberInfo memberInfo = laboratory.getMembers().stream().filter(v -> v.getMemberId().equals(request.getOwnerBy())).findAny().orElseThrow();
+            MemberInfo memberInfo = Optional.ofNullable(mongoTemplate.findOne(new Query(laboratoryReferenceRepository.belongTo(labId, LaboratoryReferenceEnum.MEMBER))
+                            .addCriteria(Criteria.where("_id").is(request.getOwnerBy())), MemberInfo.class))
+                    .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Owner is not member of laboratory"));
             memberInfo.setRole(RoleInLaboratoryEnum.OWNER.getRole());
-            laboratory.setOwnerBy(memberInfo);
             try {
                 memberInfoRepository.save(currentOwnerBy);
                 memberInfoRepository.save(memberInfo);
@@ -134,15 +171,22 @@ public class LaboratoryServiceImpl implements LaboratoryService {
             } catch (Exception ex) {
                 throw new BusinessException("Can't save Laboratory in database when update: " + ex.getMessage());
             }
+            accountMembershipRepository.updateRole(currentOwnerBy.getAccountId(), labId, RoleInLaboratoryEnum.MEMBER.getRole());
+            accountMembershipRepository.updateRole(memberInfo.getAccountId(), labId, RoleInLaboratoryEnum.OWNER.getRole());
+            permissionService.evictLaboratoryRoles(labId);
         } else {
             throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Invalid ownerBy");
         }
         try {
-            laboratoryRepository.save(laboratory);
+            laboratoryUpdateRepository.updateFields(labId, fields);
+            laboratoryUpdateRepository.updateOwner(labId, request.getOwnerBy());
             log.info("Update Laboratory success");
         } catch (Exception ex) {
             throw new BusinessException("Can't save Laboratory in database when update: " + ex.getMessage());
         }
+        if (fields.containsKey("laboratory_name")) {
+            typeaheadService.put(TypeaheadTypeEnum.LABORATORY, labId, request.getLaboratoryName(), labId);
+        }
 
     }
 
@@ -156,6 +200,8 @@ public class LaboratoryServiceImpl implements LaboratoryService {
         } catch (Exception ex) {
             throw new BusinessException("Can't delete Laboratory by ID: " + ex.getMessage());
         }
+        accountMembershipRepository.removeLaboratory(labId);
+        typeaheadService.remove(TypeaheadTypeEnum.LABORATORY, labId);
     }
 
     @Override
@@ -163,7 +209,7 @@ public class LaboratoryServiceImpl implements LaboratoryService {
         Laboratory laboratory = laboratoryRepository.findById(labId)
                 .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist"));
         String accountId = userInfoService.getAccountId();
-        Optional<MemberInfo> memberInfoOptional = laboratory.getMembers().stream().filter(v -> v.getAccountId().equals(accountId)).findFirst();
+        Optional<MemberInfo> memberInfoOptional = findMemberInLab(labId, accountId);
         MemberInfoResponse memberInfoResponse = null;
         if (memberInfoOptional.isPresent()) {
             MemberInfo memberInfo = memberInfoOptional.get();
@@ -174,35 +220,48 @@ public class LaboratoryServiceImpl implements LaboratoryService {
                     .build();
         }
         MemberInfo ownerBy = laboratory.getOwnerBy();
+        userInfoLoader.prime(Arrays.asList(ownerBy.getAccountId(), laboratory.getCreatedBy(), laboratory.getLastModifiedBy()));
         return GetLaboratoryDetailResponse.builder()
                 .laboratoryId(laboratory.getLaboratoryId())
                 .laboratoryName(laboratory.getLaboratoryName())
                 .memberInfo(memberInfoResponse)
                 .major(laboratory.getMajor())
-                .members(laboratory.getMembers().size())
+                .members((int) laboratoryReferenceRepository.countByLaboratory(labId, LaboratoryReferenceEnum.MEMBER))
                 .description(laboratory.getDescription())
-                .projects(laboratory.getProjects().stream()
+                .projects(mongoTemplate.find(new Query(laboratoryReferenceRepository.belongTo(labId, LaboratoryReferenceEnum.PROJECT)), Project.class).stream()
                         .map(this::convertProjectToGetProjectResponse)
                         .collect(Collectors.toList()))
                 .ownerBy(MemberInfoResponse.builder()
                         .memberId(ownerBy.getMemberId())
                         .accountId(ownerBy.getAccountId())
                         .role(ownerBy.getRole())
-                        .userInfo(userInfoService.getUserInfo(ownerBy.getAccountId()))
+                        .userInfo(userInfoLoader.load(ownerBy.getAccountId()))
                         .build())
                 .createdBy(UserInfoResponse.builder()
                         .accountId(laboratory.getCreatedBy())
-                        .userInfo(userInfoService.getUserInfo(laboratory.getCreatedBy()))
+                        .userInfo(userInfoLoader.load(laboratory.getCreatedBy()))
                         .build())
                 .createdDate(laboratory.getCreatedDate())
                 .lastModifiedBy(UserInfoResponse.builder()
                         .accountId(laboratory.getLastModifiedBy())
-                        .userInfo(userInfoService.getUserInfo(laboratory.getLastModifiedBy()))
+                        .userInfo(userInfoLoader.load(laboratory.getLastModifiedBy()))
                         .build())
                 .lastModifiedDate(laboratory.getLastModifiedDate())
                 .build();
     }
 
+    private Optional<MemberInfo> findMemberInLab(String labId, String accountId) {
+        Query query = new Query(laboratoryReferenceRepository.belongTo(labId, LaboratoryReferenceEnum.MEMBER));
+        query.addCriteria(Criteria.where("account_id").is(accountId));
+        return Optional.ofNullable(mongoTemplate.findOne(query, MemberInfo.class));
+    }
+
+    private List<MemberInfo> findManagersInLab(String labId) {
+        Query query = new Query(laboratoryReferenceRepository.belongTo(labId, LaboratoryReferenceEnum.MEMBER));
+        query.addCriteria(Criteria.where("role").in(LaboratoryRoleEnum.OWNER.getRole(), LaboratoryRoleEnum.MANAGER.getRole()));
+        return mongoTemplate.find(query, MemberInfo.class);
+    }
+
     private GetProjectResponse convertProjectToGetProjectResponse(Project project) {
         return GetProjectResponse.builder()
                 .projectId(project.getProjectId())
@@ -222,65 +281,62 @@ public class LaboratoryServiceImpl implements LaboratoryService {
             query.addCriteria(Criteria.where("role").is(request.getRole()));
         }
 
-        Laboratory laboratory = laboratoryRepository.findById(labId)
-                .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Lab ID not exist"));
-        List<MemberInfo> memberInfos = laboratory.getMembers();
-        List<ObjectId> memberInfoIds = memberInfos.stream().map(MemberInfo::getMemberId).map(ObjectId::new).collect(Collectors.toList());
-        query.addCriteria(Criteria.where("_id").in(memberInfoIds));
+        if (!laboratoryRepository.existsById(labId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Lab ID not exist");
+        }
+        query.addCriteria(laboratoryReferenceRepository.belongTo(labId, LaboratoryReferenceEnum.MEMBER));
 
         BaseMongoRepository.addCriteriaWithAuditable(query, request);
-        Long totalElements = mongoTemplate.count(query, MemberInfo.class);
-        BaseMongoRepository.addCriteriaWithPageable(query, request);
-        BaseMongoRepository.addCriteriaWithSorted(query, request);
-        List<MemberInfo> memberInfoList = mongoTemplate.find(query, MemberInfo.class);
+        if (request.isCursorMode()) {
+            CursorPage<MemberInfo> page = BaseMongoRepository.findWithCursor(mongoTemplate, query, request, MemberInfo.class);
+            return new PageableResponse<>(request, page.getNextCursor(), convertMembersToGetMemberResponses(page.getItems()));
+        }
+        PageResult<MemberInfo> page = pagedQueryRepository.findPage(query, request, MemberInfo.class);
+        return new PageableResponse<>(request, page.getTotalElements(), convertMembersToGetMemberResponses(page.getItems()));
+    }
 
-        List<GetMemberResponse> getMemberResponses = memberInfoList.stream().map(this::convertMemberToGetMemberResponse).collect(Collectors.toList());
-        return new PageableResponse<>(request, totalElements, getMemberResponses);
+    private List<GetMemberResponse> convertMembersToGetMemberResponses(List<MemberInfo> memberInfoList) {
+        userInfoLoader.prime(memberInfoList.stream().map(MemberInfo::getAccountId).collect(Collectors.toList()));
+        return memberInfoList.stream().map(this::convertMemberToGetMemberResponse).collect(Collectors.toList());
     }
 
     @Override
     public void removeMemberFromLaboratory(String labId, String memberId) {
-        Laboratory laboratory = laboratoryRepository.findById(labId)
-                .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Role id not found"));
+        if (!laboratoryRepository.existsById(labId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Role id not found");
+        }
         MemberInfo memberInfo = memberInfoRepository.findById(memberId)
                 .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Member id not found"));
-        List<Project> projects = laboratory.getProjects();
-        for (Project p : projects) {
-            List<MemberInfo> memberInfos = p.getMembers();
-            for (MemberInfo m : memberInfos) {
-                if (m.getAccountId().equals(memberInfo.getAccountId())) {
-                    projectService.removeMemberFromProject(p.getProjectId(), m.getMemberId());
-                }
-            }
-        }
-        List<MemberInfo> memberInfos = laboratory.getMembers();
-        if (memberInfos.size() == 1) {
-            deleteLaboratory(labId);
-        }
+        projectService.removeAccountFromLaboratoryProjects(labId, memberInfo.getAccountId());
+        List<MemberInfo> memberInfos = mongoTemplate.find(new Query(laboratoryReferenceRepository.belongTo(labId, LaboratoryReferenceEnum.MEMBER)), MemberInfo.class);
         Optional<MemberInfo> member = memberInfos.stream().filter(v -> v.getMemberId().equals(memberId)).findFirst();
 
         if (member.isEmpty()) {
             throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Member id not found");
         }
         memberInfos.removeIf(v -> v.getMemberId().equals(memberId));
-        if (member.get().getRole().equals(RoleInLaboratoryEnum.OWNER.getRole())) {
-            Optional<MemberInfo> newOwner = memberInfos.stream().findFirst();
-            newOwner.get().setRole(RoleInLaboratoryEnum.OWNER.getRole());
+        if (memberInfos.isEmpty()) {
+            deleteLaboratory(labId);
+        }
+        if (!memberInfos.isEmpty()) {
             try {
-                memberInfoRepository.save(newOwner.get());
-                log.info("Save new owner in database success");
+                laboratoryUpdateRepository.pullReference(labId, LaboratoryReferenceEnum.MEMBER, memberId);
+                log.info("Remove member from lab success");
             } catch (Exception ex) {
-                throw new BusinessException(ResponseStatusEnum.INTERNAL_SERVER_ERROR, "Can't save new owner in database");
+                throw new BusinessException(ResponseStatusEnum.INTERNAL_SERVER_ERROR, "Can't update lab in database after remove member");
+            }
+            if (member.get().getRole().equals(RoleInLaboratoryEnum.OWNER.getRole())) {
+                MemberInfo newOwner = memberInfos.get(0);
+                newOwner.setRole(RoleInLaboratoryEnum.OWNER.getRole());
+                try {
+                    memberInfoRepository.save(newOwner);
+                    laboratoryUpdateRepository.updateOwner(labId, newOwner.getMemberId());
+                    accountMembershipRepository.updateRole(newOwner.getAccountId(), labId, RoleInLaboratoryEnum.OWNER.getRole());
+                    log.info("Save new owner in database success");
+                } catch (Exception ex) {
+                    throw new BusinessException(ResponseStatusEnum.INTERNAL_SERVER_ERROR, "Can't save new owner in database");
+                }
             }
-            laboratory.setOwnerBy(newOwner.get());
-        }
-
-        laboratory.setMembers(memberInfos);
-        try {
-            laboratoryRepository.save(laboratory);
-            log.info("Remove member from lab success");
-        } catch (Exception ex) {
-            throw new BusinessException(ResponseStatusEnum.INTERNAL_SERVER_ERROR, "Can't update lab in database after remove member");
         }
         try {
             memberInfoRepository.deleteById(memberId);
@@ -288,6 +344,9 @@ public class LaboratoryServiceImpl implements LaboratoryService {
         } catch (Exception ex) {
             throw new BusinessException(ResponseStatusEnum.INTERNAL_SERVER_ERROR, "Can't remove member in database");
         }
+        accountMembershipRepository.remove(memberInfo.getAccountId(), labId);
+        permissionService.evictLaboratoryRoles(labId);
+        permissionService.evictAccountRoles(memberInfo.getAccountId());
 
     }
 
@@ -297,7 +356,7 @@ public class LaboratoryServiceImpl implements LaboratoryService {
                 .role(memberInfo.getRole())
                 .userInfo(UserInfoResponse.builder()
                         .accountId(memberInfo.getAccountId())
-                        .userInfo(userInfoService.getUserInfo(memberInfo.getAccountId()))
+                        .userInfo(userInfoLoader.load(memberInfo.getAccountId()))
                         .build())
                 .build();
     }
@@ -349,34 +408,76 @@ public class LaboratoryServiceImpl implements LaboratoryService {
         if (Objects.nonNull(request.getDescription())) {
             query.addCriteria(Criteria.where("description").regex(request.getDescription()));
         }
+        BaseMongoRepository.addCriteriaWithKeyword(query, request.getKeyword());
         if (Objects.nonNull(request.getAccountId())) {
             if (!ObjectId.isValid(request.getAccountId())) {
                 throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "User ID invalid");
             }
-            List<MemberInfo> memberInfos = memberInfoRepository.findAllByAccountId(request.getAccountId());
-            List<ObjectId> memberId = memberInfos.stream().map(MemberInfo::getMemberId).map(ObjectId::new).collect(Collectors.toList());
-            if (Boolean.TRUE.equals(request.getIsContain())) {
-                query.addCriteria(Criteria.where("members.$id").in(memberId));
+            if (accountMembershipMigration.isCompleted()) {
+                if (Boolean.TRUE.equals(request.getIsContain())) {
+                    query.addCriteria(laboratoriesOf(request.getAccountId(), MembershipStatusEnum.MEMBER));
+                } else {
+                    // suggestions skip the labs the account is a member of or has a pending application in
+                    List<ObjectId> laboratoryIds = toObjectIds(accountMembershipRepository.findLaboratoryIds(request.getAccountId(), null));
+                    query.addCriteria(new Criteria().andOperator(Criteria.where("_id").nin(laboratoryIds)));
+                }
             } else {
-                List<Application> applications = applicationRepository.findAllByAccountIdAndStatus(request.getAccountId(), ApplicationStatusEnum.WAITING_FOR_APPROVE);
-                List<ObjectId> applicationId = applications.stream().map(Application::getApplicationId).map(ObjectId::new).collect(Collectors.toList());
-                query.addCriteria(Criteria.where("members.$id").nin(memberId));
-                query.addCriteria(Criteria.where("application.$id").nin(applicationId));
+                List<MemberInfo> memberInfos = memberInfoRepository.findAllByAccountId(request.getAccountId());
+                List<ObjectId> memberId = memberInfos.stream().map(MemberInfo::getMemberId).map(ObjectId::new).collect(Collectors.toList());
+                if (Boolean.TRUE.equals(request.getIsContain())) {
+                    query.addCriteria(Criteria.where("members.$id").in(memberId));
+                } else {
+                    List<Application> applications = applicationRepository.findAllByAccountIdAndStatus(request.getAccountId(), ApplicationStatusEnum.WAITING_FOR_APPROVE);
+                    List<ObjectId> applicationId = applications.stream().map(Application::getApplicationId).map(ObjectId::new).collect(Collectors.toList());
+                    query.addCriteria(Criteria.where("members.$id").nin(memberId));
+                    query.addCriteria(Criteria.where("application.$id").nin(applicationId));
+                }
             }
         }
 
-        Long totalElement = mongoTemplate.count(query, Laboratory.class);
+        if (request.isCursorMode()) {
+            CursorPage<Laboratory> page = BaseMongoRepository.findWithCursor(mongoTemplate, query, request, Laboratory.class);
+            primeOwnerUserInfo(page.getItems());
+            return new PageableResponse<>(request, page.getNextCursor(), convertLaboratoriesToGetLaboratoryResponses(page.getItems()));
+        }
 
-        BaseMongoRepository.addCriteriaWithPageable(query, request);
+        PageResult<Laboratory> page = pagedQueryRepository.findPage(query, request, Laboratory.class, CountModeEnum.ESTIMATED);
+        primeOwnerUserInfo(page.getItems());
 
-        List<Laboratory> laboratories = mongoTemplate.find(query, Laboratory.class);
+        List<GetLaboratoryResponse> getLaboratoryDetailResponses = convertLaboratoriesToGetLaboratoryResponses(page.getItems());
 
-        List<GetLaboratoryResponse> getLaboratoryDetailResponses = laboratories.stream().map(this::convertLaboratoryToGetLaboratoryResponse).collect(Collectors.toList());
+        return new PageableResponse<>(request, page.getTotalElements(), getLaboratoryDetailResponses);
+    }
 
-        return new PageableResponse<>(request, totalElement, getLaboratoryDetailResponses);
+    private Criteria laboratoriesOf(String accountId, MembershipStatusEnum status) {
+        // Wrapped so it can be combined with the laboratory id filter on _id in the same query
+        return new Criteria().andOperator(Criteria.where("_id").in(toObjectIds(accountMembershipRepository.findLaboratoryIds(accountId, status))));
     }
 
-    private GetLaboratoryResponse convertLaboratoryToGetLaboratoryResponse(Laboratory laboratory) {
+    private List<ObjectId> toObjectIds(List<String> ids) {
+        return ids.stream().filter(ObjectId::isValid).map(ObjectId::new).collect(Collectors.toList());
+    }
+
+    private void primeOwnerUserInfo(List<Laboratory> laboratories) {
+        userInfoLoader.prime(laboratories.stream()
+                .map(Laboratory::getOwnerBy)
+                .filter(Objects::nonNull)
+                .map(MemberInfo::getAccountId)
+                .collect(Collectors.toList()));
+    }
+
+    private List<GetLaboratoryResponse> convertLaboratoriesToGetLaboratoryResponses(List<Laboratory> laboratories) {
+        List<String> laboratoryIds = laboratories.stream().map(Laboratory::getLaboratoryId).collect(Collectors.toList());
+        Map<String, Long> projects = laboratoryReferenceRepository.countByLaboratories(laboratoryIds, LaboratoryReferenceEnum.PROJECT);
+        Map<String, Long> members = laboratoryReferenceRepository.countByLaboratories(laboratoryIds, LaboratoryReferenceEnum.MEMBER);
+        return laboratories.stream()
+                .map(v -> convertLaboratoryToGetLaboratoryResponse(v,
+                        projects.getOrDefault(v.getLaboratoryId(), 0L).intValue(),
+                        members.getOrDefault(v.getLaboratoryId(), 0L).intValue()))
+                .collect(Collectors.toList());
+    }
+
+    private GetLaboratoryResponse convertLaboratoryToGetLaboratoryResponse(Laboratory laboratory, Integer projects, Integer members) {
         MemberInfo ownerBy = laboratory.getOwnerBy();
         try {
             return GetLaboratoryResponse.builder()
@@ -384,13 +485,13 @@ public class LaboratoryServiceImpl implements LaboratoryService {
                     .laboratoryName(laboratory.getLaboratoryName())
                     .description(laboratory.getDescription())
                     .major(laboratory.getMajor())
-                    .projects(laboratory.getProjects().size())
-                    .members(laboratory.getMembers().size())
+                    .projects(projects)
+                    .members(members)
                     .ownerBy(MemberInfoResponse.builder()
                             .memberId(ownerBy.getMemberId())
                             .accountId(ownerBy.getAccountId())
                             .role(ownerBy.getRole())
-                            .userInfo(userInfoService.getUserInfo(ownerBy.getAccountId()))
+                            .userInfo(userInfoLoader.load(ownerBy.getAccountId()))
                             .build())
                     .build();
         } catch (Exception ex) {
@@ -405,46 +506,44 @@ public class LaboratoryServiceImpl implements LaboratoryService {
         Laboratory laboratory = laboratoryRepository.findById(labId)
                 .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "laboratory id not found"));
 
-        List<MemberInfo> memberInfos = laboratory.getMembers();
-        if (memberInfos.stream().anyMatch(v -> v.getAccountId().equals(request.getAccountId()))) {
+        if (findMemberInLab(labId, request.getAccountId()).isPresent()) {
             throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Account ID already exist in lab");
         }
         Application application = Application.builder()
+                .laboratoryId(labId)
                 .accountId(request.getAccountId())
                 .reason(request.getReason())
                 .cvKey(request.getCvKey())
                 .status(ApplicationStatusEnum.WAITING_FOR_APPROVE)
                 .build();
-        List<Application> applications = laboratory.getApplications();
         try {
             application = applicationRepository.save(application);
             log.info("Apply CV to Lab success");
         } catch (Exception ex) {
             throw new BusinessException("Can't apply CV in database: " + ex.getMessage());
         }
-        applications.add(application);
-        laboratory.setApplications(applications);
         try {
-            laboratoryRepository.save(laboratory);
+            laboratoryUpdateRepository.pushReference(labId, LaboratoryReferenceEnum.APPLICATION, application.getApplicationId());
             log.info("Add application to laboratory success");
         } catch (Exception ex) {
             throw new BusinessException("Can't add application to laboratory in database: " + ex.getMessage());
         }
-        Optional<AppConfig> appConfigOptional = appConfigRepository.findByConfigKey("NOTIFY_MANAGER_TEMPLATE_ID");
-        if (appConfigOptional.isPresent()) {
-            AppConfig appConfig = appConfigOptional.get();
-            List<MemberInfo> managerMemberInfo = laboratory.getMembers().stream()
-                    .filter(v -> LaboratoryRoleEnum.OWNER.getRole().equals(v.getRole()) || LaboratoryRoleEnum.MANAGER.getRole().equals(v.getRole()))
-                    .collect(Collectors.toList());
+        accountMembershipRepository.saveWaiting(request.getAccountId(), labId);
+        Optional<String> templateId = appConfigService.getConfigValue("NOTIFY_MANAGER_TEMPLATE_ID");
+        if (templateId.isPresent()) {
+            List<MemberInfo> managerMemberInfo = findManagersInLab(labId);
+            List<String> accountIds = managerMemberInfo.stream().map(MemberInfo::getAccountId).collect(Collectors.toList());
+            accountIds.add(request.getAccountId());
+            userInfoLoader.prime(accountIds);
             List<String> emails = managerMemberInfo.stream().map(this::getEmailOfMemberInfo).collect(Collectors.toList());
             List<String> correctEmail = emails.stream().filter(Objects::nonNull).collect(Collectors.toList());
             for (String email : correctEmail) {
                 SendEmailEvent event = SendEmailEvent.builder()
-                        .templateId(appConfig.getConfigValue())
+                        .templateId(templateId.get())
                         .sendTo(email)
                         .cc(null)
                         .bcc(null)
-                        .params(Map.of("LAB_NAME", laboratory.getLaboratoryName(), "USER", userInfoService.getUserInfo(request.getAccountId()).getFullName()))
+                        .params(Map.of("LAB_NAME", laboratory.getLaboratoryName(), "USER", userInfoLoader.load(request.getAccountId()).getFullName()))
                         .build();
                 sendEmailProducer.sendMessage(event);
             }
@@ -455,7 +554,7 @@ public class LaboratoryServiceImpl implements LaboratoryService {
     }
 
     private String getEmailOfMemberInfo(MemberInfo memberInfo) {
-        UserInfo userInfo = userInfoService.getUserInfo(memberInfo.getAccountId());
+        UserInfo userInfo = userInfoLoader.load(memberInfo.getAccountId());
         if (userInfo != null) {
             return userInfo.getEmail();
         } else {
@@ -466,6 +565,7 @@ public class LaboratoryServiceImpl implements LaboratoryService {
     @Override
     public GetApplicationDetailResponse getApplicationByApplicationId(String applicationId) {
         Application application = applicationRepository.findById(applicationId).orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Application id is not exist"));
+        userInfoLoader.prime(Arrays.asList(application.getCreatedBy(), application.getLastModifiedBy()));
         return GetApplicationDetailResponse.builder()
                 .applicationId(application.getApplicationId())
                 .status(application.getStatus())
@@ -475,12 +575,12 @@ public class LaboratoryServiceImpl implements LaboratoryService {
                 .comment(application.getComment())
                 .createdBy(UserInfoResponse.builder()
                         .accountId(application.getCreatedBy())
-                        .userInfo(userInfoService.getUserInfo(application.getCreatedBy()))
+                        .userInfo(userInfoLoader.load(application.getCreatedBy()))
                         .build())
                 .createdDate(application.getCreatedDate())
                 .lastModifiedBy(UserInfoResponse.builder()
                         .accountId(application.getLastModifiedBy())
-                        .userInfo(userInfoService.getUserInfo(application.getLastModifiedBy()))
+                        .userInfo(userInfoLoader.load(application.getLastModifiedBy()))
                         .build())
                 .lastModifiedDate(application.getLastModifiedDate())
                 .build();
@@ -495,32 +595,48 @@ public class LaboratoryServiceImpl implements LaboratoryService {
         if (Objects.nonNull(request.getStatus())) {
             query.addCriteria(Criteria.where("cv_name").is(request.getStatus()));
         }
-        Laboratory laboratory = laboratoryRepository.findById(labId).orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Lab id is not exist"));
-        List<ObjectId> applicationIds = laboratory.getApplications().stream().map(Application::getApplicationId).map(ObjectId::new).collect(Collectors.toList());
-        query.addCriteria(Criteria.where("_id").in(applicationIds));
+        if (!laboratoryRepository.existsById(labId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Lab id is not exist");
+        }
+        query.addCriteria(laboratoryReferenceRepository.belongTo(labId, LaboratoryReferenceEnum.APPLICATION));
 
         BaseMongoRepository.addCriteriaWithAuditable(query, request);
-        Long totalElements = mongoTemplate.count(query, Application.class);
-        BaseMongoRepository.addCriteriaWithPageable(query, request);
-        BaseMongoRepository.addCriteriaWithSorted(query, request);
-        List<Application> applications = mongoTemplate.find(query, Application.class);
-        applications.sort(new ApplicationSortByStatus());
-        List<GetApplicationResponse> getApplicationResponses = applications.stream().map(this::convertApplicationToGetApplicationResponse).collect(Collectors.toList());
-        return new PageableResponse<>(request, totalElements, getApplicationResponses);
+        if (request.isCursorMode()) {
+            CursorPage<Application> page = BaseMongoRepository.findWithCursor(mongoTemplate, query, request, Application.class);
+            return new PageableResponse<>(request, page.getNextCursor(), convertApplicationsToGetApplicationResponses(page.getItems()));
+        }
+        PageResult<Application> page = pagedQueryRepository.findPage(query, request, Application.class);
+        return new PageableResponse<>(request, page.getTotalElements(), convertApplicationsToGetApplicationResponses(page.getItems()));
+    }
+
+    private List<GetApplicationResponse> convertApplicationsToGetApplicationResponses(List<Application> applications) {
+        userInfoLoader.prime(applications.stream()
+                .flatMap(v -> Stream.of(v.getCreatedBy(), v.getLastModifiedBy()))
+                .collect(Collectors.toList()));
+        return applications.stream()
+                .sorted(new ApplicationSortByStatus())
+                .map(this::convertApplicationToGetApplicationResponse)
+                .collect(Collectors.toList());
     }
 
     @Override
     public Long countApplicationOfLab(String labId) {
-        Laboratory laboratory = laboratoryRepository.findById(labId)
-                .orElseThrow(()-> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Lab ID not exist"));
-        return laboratory.getApplications().stream().filter(v->v.getStatus().equals(ApplicationStatusEnum.WAITING_FOR_APPROVE)).count();
+        if (!laboratoryRepository.existsById(labId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Lab ID not exist");
+        }
+        Query query = new Query(laboratoryReferenceRepository.belongTo(labId, LaboratoryReferenceEnum.APPLICATION));
+        query.addCriteria(Criteria.where("status").is(ApplicationStatusEnum.WAITING_FOR_APPROVE));
+        return mongoTemplate.count(query, Application.class);
     }
 
     @Override
     public void reviewApplication(String labId, String applicationId, ReviewApplicationRequest request) {
         Laboratory laboratory = laboratoryRepository.findById(labId)
                 .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Lab Id not exist"));
-        Application application = laboratory.getApplications().stream().filter(v -> v.getApplicationId().equals(applicationId)).findFirst().orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Application Id not exist"));
+        Query applicationQuery = new Query(laboratoryReferenceRepository.belongTo(labId, LaboratoryReferenceEnum.APPLICATION));
+        applicationQuery.addCriteria(Criteria.where("_id").is(applicationId));
+        Application application = Optional.ofNullable(mongoTemplate.findOne(applicationQuery, Application.class))
+                .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Application Id not exist"));
 
         try {
             ApplicationStatusEnum statusEnum = ApplicationStatusEnum.valueOf(request.getStatus());
@@ -534,13 +650,12 @@ public class LaboratoryServiceImpl implements LaboratoryService {
         } catch (Exception ex) {
             throw new BusinessException("Can't update application in database");
         }
-        Optional<AppConfig> appConfigOptional = appConfigRepository.findByConfigKey("NOTIFY_MEMBER_AFTER_REVIEW_APPLICATION");
-        if (appConfigOptional.isPresent()) {
-            AppConfig appConfig = appConfigOptional.get();
+        Optional<String> templateId = appConfigService.getConfigValue("NOTIFY_MEMBER_AFTER_REVIEW_APPLICATION");
+        if (templateId.isPresent()) {
             UserInfo userInfo = userInfoService.getUserInfo(application.getAccountId());
             if (Objects.nonNull(userInfo) && Objects.nonNull(userInfo.getEmail())) {
                 SendEmailEvent sendEmailEvent = SendEmailEvent.builder()
-                        .templateId(appConfig.getConfigValue())
+                        .templateId(templateId.get())
                         .sendTo(userInfo.getEmail())
                         .bcc(null)
                         .cc(null)
@@ -549,32 +664,40 @@ public class LaboratoryServiceImpl implements LaboratoryService {
                 sendEmailProducer.sendMessage(sendEmailEvent);
             }
         }
-        MemberInfo memberInfo = MemberInfo.builder()
-                .accountId(application.getAccountId())
-                .role(LaboratoryRoleEnum.MEMBER.getRole())
-                .build();
-        try {
-            memberInfo = memberInfoRepository.save(memberInfo);
-        } catch (Exception ex) {
-            throw new BusinessException("Can't create member info in database");
-        }
         if (request.getStatus().equals(ApplicationStatusEnum.APPROVED.getStatusName())) {
-            List<MemberInfo> memberInfos = laboratory.getMembers();
-            memberInfos.add(memberInfo);
-            laboratory.setMembers(memberInfos);
+            MemberInfo memberInfo = MemberInfo.builder()
+                    .accountId(application.getAccountId())
+                    .role(LaboratoryRoleEnum.MEMBER.getRole())
+                    .laboratoryId(labId)
+                    .build();
+            try {
+                memberInfo = memberInfoRepository.save(memberInfo);
+            } catch (Exception ex) {
+                throw new BusinessException("Can't create member info in database");
+            }
             try {
-                laboratoryRepository.save(laboratory);
+                laboratoryUpdateRepository.pushReference(labId, LaboratoryReferenceEnum.MEMBER, memberInfo.getMemberId());
             } catch (Exception ex) {
                 throw new BusinessException("Can't save laboratory after add member in database");
             }
+            accountMembershipRepository.saveMember(application.getAccountId(), labId, LaboratoryRoleEnum.MEMBER.getRole());
+            permissionService.evictLaboratoryRoles(labId);
+            applicationEventPublisher.publishEvent(StatisticChangedEvent.builder()
+                    .increment(StatisticMetricEnum.MEMBER, 1L)
+                    .build());
+        } else {
+            accountMembershipRepository.removeWaiting(application.getAccountId(), labId);
         }
     }
 
     @Override
     public PageableResponse<GetMemberNotInLabResponse> getMemberNotInLab(String labId, String username, Integer page, Integer size) {
-        Laboratory laboratory = laboratoryRepository.findById(labId)
-                .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Lab Id not exist"));
-        List<MemberInfo> memberInfos = laboratory.getMembers();
+        if (!laboratoryRepository.existsById(labId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Lab Id not exist");
+        }
+        Query query = new Query(laboratoryReferenceRepository.belongTo(labId, LaboratoryReferenceEnum.MEMBER));
+        query.fields().include("account_id");
+        List<MemberInfo> memberInfos = mongoTemplate.find(query, MemberInfo.class);
         List<String> accountIds = memberInfos.stream().map(MemberInfo::getAccountId).collect(Collectors.toList());
         GetAccountNotInLabRequest request = GetAccountNotInLabRequest.builder()
                 .username(username)
@@ -600,12 +723,12 @@ public class LaboratoryServiceImpl implements LaboratoryService {
                 .status(application.getStatus().getStatusName())
                 .createdBy(UserInfoResponse.builder()
                         .accountId(application.getCreatedBy())
-                        .userInfo(userInfoService.getUserInfo(application.getCreatedBy()))
+                        .userInfo(userInfoLoader.load(application.getCreatedBy()))
                         .build())
                 .createdDate(application.getCreatedDate())
                 .lastModifiedBy(UserInfoResponse.builder()
                         .accountId(application.getLastModifiedBy())
-                        .userInfo(userInfoService.getUserInfo(application.getLastModifiedBy()))
+                        .userInfo(userInfoLoader.load(application.getLastModifiedBy()))
                         .build())
                 .lastModifiedDate(application.getLastModifiedDate())
                 .build();
@@ -632,19 +755,26 @@ public class LaboratoryServiceImpl implements LaboratoryService {
             if (!ObjectId.isValid(request.getAccountId())) {
                 throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "User ID invalid");
             }
-            List<Application> applications = applicationRepository.findAllByAccountIdAndStatus(request.getAccountId(), ApplicationStatusEnum.WAITING_FOR_APPROVE);
-            List<ObjectId> applicationId = applications.stream().map(Application::getApplicationId).map(ObjectId::new).collect(Collectors.toList());
-            query.addCriteria(Criteria.where("application.$id").in(applicationId));
+            if (accountMembershipMigration.isCompleted()) {
+                query.addCriteria(laboratoriesOf(request.getAccountId(), MembershipStatusEnum.WAITING));
+            } else {
+                List<Application> applications = applicationRepository.findAllByAccountIdAndStatus(request.getAccountId(), ApplicationStatusEnum.WAITING_FOR_APPROVE);
+                List<ObjectId> applicationId = applications.stream().map(Application::getApplicationId).map(ObjectId::new).collect(Collectors.toList());
+                query.addCriteria(Criteria.where("application.$id").in(applicationId));
+            }
         }
 
-        Long totalElement = mongoTemplate.count(query, Laboratory.class);
-
-        BaseMongoRepository.addCriteriaWithPageable(query, request);
+        if (request.isCursorMode()) {
+            CursorPage<Laboratory> page = BaseMongoRepository.findWithCursor(mongoTemplate, query, request, Laboratory.class);
+            primeOwnerUserInfo(page.getItems());
+            return new PageableResponse<>(request, page.getNextCursor(), convertLaboratoriesToGetLaboratoryResponses(page.getItems()));
+        }
 
-        List<Laboratory> laboratories = mongoTemplate.find(query, Laboratory.class);
+        PageResult<Laboratory> page = pagedQueryRepository.findPage(query, request, Laboratory.class, CountModeEnum.ESTIMATED);
+        primeOwnerUserInfo(page.getItems());
 
-        List<GetLaboratoryResponse> getLaboratoryDetailResponses = laboratories.stream().map(this::convertLaboratoryToGetLaboratoryResponse).collect(Collectors.toList());
+        List<GetLaboratoryResponse> getLaboratoryDetailResponses = convertLaboratoriesToGetLaboratoryResponses(page.getItems());
 
-        return new PageableResponse<>(request, totalElement, getLaboratoryDetailResponses);
+        return new PageableResponse<>(request, page.getTotalElements(), getLaboratoryDetailResponses);
     }
 }
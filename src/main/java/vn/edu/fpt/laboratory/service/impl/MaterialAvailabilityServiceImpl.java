@@ -0,0 +1,93 @@
+package vn.edu.fpt.laboratory.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import vn.edu.fpt.laboratory.constant.ResponseStatusEnum;
+import vn.edu.fpt.laboratory.entity.BorrowTime;
+import vn.edu.fpt.laboratory.entity.Material;
+import vn.edu.fpt.laboratory.exception.BusinessException;
+import vn.edu.fpt.laboratory.repository.MaterialUpdateRepository;
+import vn.edu.fpt.laboratory.service.MaterialAvailabilityService;
+import vn.edu.fpt.laboratory.utils.ReservationSegmentTree;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MaterialAvailabilityServiceImpl implements MaterialAvailabilityService {
+
+    /**
+     * Every lost attempt means another reservation of the same material succeeded in between,
+     * so this also bounds how many units can be taken away while a request keeps retrying.
+     */
+    private static final int MAX_RESERVE_ATTEMPTS = 10;
+
+    private final MaterialUpdateRepository materialUpdateRepository;
+    private final Cache<String, ReservationSegmentTree> materialReservationCache;
+
+    @Override
+    public int peakReserved(String materialId, LocalDateTime from, LocalDateTime to) {
+        return getTree(materialId).peak(from, to);
+    }
+
+    @Override
+    public int reservedAt(String materialId, LocalDateTime time) {
+        return getTree(materialId).reservedAt(time);
+    }
+
+    @Override
+    public void evict(String materialId) {
+        materialReservationCache.invalidate(materialId);
+    }
+
+    @Override
+    public void reserve(String materialId, BorrowTime borrowTime) {
+        if (reserveAll(materialId, List.of(borrowTime)).isEmpty()) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Not enough material for this ticket");
+        }
+    }
+
+    @Override
+    public List<BorrowTime> reserveAll(String materialId, List<BorrowTime> borrowTimes) {
+        for (int attempt = 1; attempt <= MAX_RESERVE_ATTEMPTS; attempt++) {
+            Material material = materialUpdateRepository.findReservationState(materialId);
+            List<BorrowTime> accepted = new ArrayList<>();
+            int remaining = material.getAmount();
+            // the tree already has the slots of every requested borrow time, accepted ones are added in place
+            ReservationSegmentTree tree = ReservationSegmentTree.of(material.getBorrowTime(), borrowTimes);
+            for (BorrowTime borrowTime : borrowTimes) {
+                int peak = tree.peak(borrowTime.getFromDate(), borrowTime.getReturnDate());
+                if (remaining >= borrowTime.getAmount() && material.getTotalAmount() - peak >= borrowTime.getAmount()) {
+                    accepted.add(borrowTime);
+                    remaining -= borrowTime.getAmount();
+                    tree.add(borrowTime);
+                }
+            }
+            if (accepted.isEmpty()) {
+                return accepted;
+            }
+            if (Objects.nonNull(materialUpdateRepository.reserve(materialId, material.getVersion(), accepted))) {
+                evict(materialId);
+                return accepted;
+            }
+            log.debug("Reserve material {} lost attempt {}", materialId, attempt);
+        }
+        throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material is being ordered by other members, please try again");
+    }
+
+    private ReservationSegmentTree getTree(String materialId) {
+        return materialReservationCache.get(materialId, this::buildTree);
+    }
+
+    private ReservationSegmentTree buildTree(String materialId) {
+        ReservationSegmentTree tree = ReservationSegmentTree.of(materialUpdateRepository.findReservationState(materialId).getBorrowTime());
+        log.debug("Build reservation tree of material {} with {} slots", materialId, tree.size());
+        return tree;
+    }
+}
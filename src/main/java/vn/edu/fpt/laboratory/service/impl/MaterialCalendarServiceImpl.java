@@ -0,0 +1,221 @@
+package vn.edu.fpt.laboratory.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import vn.edu.fpt.laboratory.constant.AvailabilityGranularityEnum;
+import vn.edu.fpt.laboratory.constant.LaboratoryReferenceEnum;
+import vn.edu.fpt.laboratory.constant.ResponseStatusEnum;
+import vn.edu.fpt.laboratory.dto.request.material.GetAvailabilityRequest;
+import vn.edu.fpt.laboratory.dto.response.material.AvailabilitySlotResponse;
+import vn.edu.fpt.laboratory.dto.response.material.GetMaterialAvailabilityResponse;
+import vn.edu.fpt.laboratory.entity.BorrowTime;
+import vn.edu.fpt.laboratory.entity.Material;
+import vn.edu.fpt.laboratory.entity.MaterialUsageBucket;
+import vn.edu.fpt.laboratory.exception.BusinessException;
+import vn.edu.fpt.laboratory.repository.LaboratoryReferenceRepository;
+import vn.edu.fpt.laboratory.repository.LaboratoryRepository;
+import vn.edu.fpt.laboratory.repository.MaterialUpdateRepository;
+import vn.edu.fpt.laboratory.service.MaterialCalendarService;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MaterialCalendarServiceImpl implements MaterialCalendarService {
+
+    private static final long MAX_RANGE_DAYS = 31;
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final LaboratoryRepository laboratoryRepository;
+    private final LaboratoryReferenceRepository laboratoryReferenceRepository;
+    private final MaterialUpdateRepository materialUpdateRepository;
+
+    @Override
+    public void recordReservation(String materialId, LocalDateTime from, LocalDateTime to, Integer amount) {
+        LocalDateTime currentHour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        // hours already passed are never rebuilt, and their borrow time may be pruned, so they are only counted up
+        incrementBuckets(materialId, from, to.isBefore(currentHour) ? to : currentHour, amount);
+        refreshBuckets(materialId, currentHour);
+    }
+
+    @Override
+    public void releaseReservation(String materialId, LocalDateTime returnedAt, LocalDateTime to, Integer amount) {
+        // the borrow time already ends at returnedAt, the hour it is returned in stays reserved since the
+        // reservation still overlaps it
+        refreshBuckets(materialId, LocalDateTime.now().truncatedTo(ChronoUnit.HOURS));
+    }
+
+    @Override
+    public void rebuild(String materialId) {
+        refreshBuckets(materialId, LocalDateTime.now().truncatedTo(ChronoUnit.HOURS));
+    }
+
+    /**
+     * Write the buckets from the current hour on as absolute amounts computed from one snapshot of the material,
+     * guarded by its version. Approvals, returns and rebuilds running at the same time then never lose or double
+     * an amount: every bucket ends up with the amount of the newest snapshot written to it.
+     */
+    private void refreshBuckets(String materialId, LocalDateTime currentHour) {
+        Material material = materialUpdateRepository.findReservationState(materialId);
+        if (Objects.isNull(material)) {
+            return;
+        }
+        Long version = Objects.requireNonNullElse(material.getVersion(), 0L);
+
+        Map<LocalDateTime, Integer> reserved = new HashMap<>();
+        for (BorrowTime borrowTime : Objects.requireNonNullElse(material.getBorrowTime(), Collections.<BorrowTime>emptyList())) {
+            if (Objects.isNull(borrowTime.getReturnDate()) || !borrowTime.getReturnDate().isAfter(currentHour)) {
+                continue;
+            }
+            LocalDateTime from = borrowTime.getFromDate().isBefore(currentHour) ? currentHour : borrowTime.getFromDate();
+            hoursBetween(from, borrowTime.getReturnDate()).forEach(v -> reserved.merge(v, borrowTime.getAmount(), Integer::sum));
+        }
+        // buckets are overwritten in place instead of deleted and inserted again, so they never hit the unique index
+        mongoTemplate.updateMulti(Query.query(Criteria.where("material_id").is(materialId)
+                        .and("bucket_start").gte(currentHour).nin(reserved.keySet())
+                        .orOperator(olderThan(version))),
+                Update.update("reserved", 0).set("version", version), MaterialUsageBucket.class);
+        if (reserved.isEmpty()) {
+            return;
+        }
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MaterialUsageBucket.class);
+        reserved.forEach((hour, amount) -> bulkOperations.upsert(
+                Query.query(Criteria.where("material_id").is(materialId).and("bucket_start").is(hour)
+                        .orOperator(olderThan(version))),
+                Update.update("reserved", amount).set("version", version)));
+        try {
+            bulkOperations.execute();
+        } catch (BulkOperationException ex) {
+            // a bucket already written from a newer snapshot misses the guard and its upsert hits the unique index
+            ex.getErrors().stream()
+                    .filter(v -> v.getCode() != DUPLICATE_KEY)
+                    .findFirst()
+                    .ifPresent(v -> log.error("Can't update usage buckets of material {}: {}", materialId, v.getMessage()));
+        }
+    }
+
+    private Criteria[] olderThan(Long version) {
+        return new Criteria[]{Criteria.where("version").lt(version), Criteria.where("version").exists(false)};
+    }
+
+    @Override
+    public GetMaterialAvailabilityResponse getMaterialAvailability(String materialId, GetAvailabilityRequest request) {
+        Query query = Query.query(Criteria.where("_id").is(new ObjectId(materialId)));
+        includeCalendarFields(query);
+        Material material = mongoTemplate.findOne(query, Material.class);
+        if (Objects.isNull(material)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material ID not exist");
+        }
+        return getAvailability(List.of(material), request).get(0);
+    }
+
+    @Override
+    public List<GetMaterialAvailabilityResponse> getLaboratoryAvailability(String laboratoryId, GetAvailabilityRequest request) {
+        if (!laboratoryRepository.existsById(laboratoryId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist");
+        }
+        Query query = new Query(laboratoryReferenceRepository.belongTo(laboratoryId, LaboratoryReferenceEnum.MATERIAL));
+        query.addCriteria(Criteria.where("is_delete").is(false));
+        includeCalendarFields(query);
+        return getAvailability(mongoTemplate.find(query, Material.class), request);
+    }
+
+    private void includeCalendarFields(Query query) {
+        query.fields().include("material_name", "total_amount");
+    }
+
+    private List<GetMaterialAvailabilityResponse> getAvailability(List<Material> materials, GetAvailabilityRequest request) {
+        if (Objects.isNull(request.getFrom()) || Objects.isNull(request.getTo()) || request.getTo().isBefore(request.getFrom())) {
+            throw new BusinessException(ResponseStatusEnum.VALIDATION_ERROR, "Date range is invalid");
+        }
+        if (ChronoUnit.DAYS.between(request.getFrom(), request.getTo()) >= MAX_RANGE_DAYS) {
+            throw new BusinessException(ResponseStatusEnum.VALIDATION_ERROR, "Date range must not exceed " + MAX_RANGE_DAYS + " days");
+        }
+        AvailabilityGranularityEnum granularity = Arrays.stream(AvailabilityGranularityEnum.values())
+                .filter(v -> v.getGranularity().equalsIgnoreCase(Objects.requireNonNullElse(request.getGranularity(), AvailabilityGranularityEnum.DAY.getGranularity())))
+                .findFirst()
+                .orElseThrow(() -> new BusinessException(ResponseStatusEnum.VALIDATION_ERROR, "Granularity must be HOUR or DAY"));
+
+        LocalDateTime start = request.getFrom().atStartOfDay();
+        LocalDateTime end = request.getTo().plusDays(1).atStartOfDay();
+        Map<String, Map<LocalDateTime, Integer>> reserved = findReserved(materials.stream().map(Material::getMaterialId).collect(Collectors.toList()), start, end);
+
+        List<GetMaterialAvailabilityResponse> responses = new ArrayList<>();
+        for (Material material : materials) {
+            Map<LocalDateTime, Integer> materialReserved = reserved.getOrDefault(material.getMaterialId(), Collections.emptyMap());
+            int totalAmount = Objects.requireNonNullElse(material.getTotalAmount(), 0);
+            List<AvailabilitySlotResponse> slots = new ArrayList<>();
+            for (LocalDateTime slot = start; slot.isBefore(end); slot = slot.plus(1, granularity.getUnit())) {
+                LocalDateTime slotEnd = slot.plus(1, granularity.getUnit());
+                int peak = hoursBetween(slot, slotEnd).stream()
+                        .mapToInt(v -> materialReserved.getOrDefault(v, 0))
+                        .max()
+                        .orElse(0);
+                slots.add(AvailabilitySlotResponse.builder()
+                        .from(slot)
+                        .to(slotEnd)
+                        .freeAmount(Math.max(0, totalAmount - peak))
+                        .build());
+            }
+            responses.add(GetMaterialAvailabilityResponse.builder()
+                    .materialId(material.getMaterialId())
+                    .materialName(material.getMaterialName())
+                    .totalAmount(totalAmount)
+                    .granularity(granularity.getGranularity())
+                    .slots(slots)
+                    .build());
+        }
+        return responses;
+    }
+
+    private Map<String, Map<LocalDateTime, Integer>> findReserved(List<String> materialIds, LocalDateTime start, LocalDateTime end) {
+        if (materialIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Query query = Query.query(Criteria.where("material_id").in(materialIds).and("bucket_start").gte(start).lt(end));
+        query.fields().include("material_id", "bucket_start", "reserved");
+        Map<String, Map<LocalDateTime, Integer>> reserved = new HashMap<>();
+        for (MaterialUsageBucket bucket : mongoTemplate.find(query, MaterialUsageBucket.class)) {
+            reserved.computeIfAbsent(bucket.getMaterialId(), v -> new HashMap<>()).put(bucket.getBucketStart(), bucket.getReserved());
+        }
+        return reserved;
+    }
+
+    private void incrementBuckets(String materialId, LocalDateTime from, LocalDateTime to, Integer amount) {
+        List<LocalDateTime> hours = hoursBetween(from, to);
+        if (hours.isEmpty()) {
+            return;
+        }
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MaterialUsageBucket.class);
+        for (LocalDateTime hour : hours) {
+            bulkOperations.upsert(Query.query(Criteria.where("material_id").is(materialId).and("bucket_start").is(hour)),
+                    new Update().inc("reserved", amount));
+        }
+        try {
+            bulkOperations.execute();
+        } catch (Exception ex) {
+            log.error("Can't update usage buckets of material {}: {}", materialId, ex.getMessage());
+        }
+    }
+
+    private List<LocalDateTime> hoursBetween(LocalDateTime from, LocalDateTime to) {
+        List<LocalDateTime> hours = new ArrayList<>();
+        for (LocalDateTime hour = from.truncatedTo(ChronoUnit.HOURS); hour.isBefore(to); hour = hour.plusHours(1)) {
+            hours.add(hour);
+        }
+        return hours;
+    }
+}
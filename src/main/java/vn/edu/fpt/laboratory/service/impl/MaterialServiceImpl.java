@@ -1,16 +1,28 @@
 package vn.edu.fpt.laboratory.service.impl;
 
+import com.mongodb.DBRef;
+import com.mongodb.client.result.UpdateResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import vn.edu.fpt.laboratory.constant.StatisticMetricEnum;
+import vn.edu.fpt.laboratory.dto.event.StatisticChangedEvent;
 import vn.edu.fpt.laboratory.config.kafka.producer.SendEmailProducer;
 import vn.edu.fpt.laboratory.constant.*;
 import vn.edu.fpt.laboratory.dto.common.CreateFileRequest;
+import vn.edu.fpt.laboratory.dto.common.CursorPage;
+import vn.edu.fpt.laboratory.dto.common.PageResult;
 import vn.edu.fpt.laboratory.dto.common.PageableResponse;
+import vn.edu.fpt.laboratory.dto.cache.UserInfo;
 import vn.edu.fpt.laboratory.dto.common.UserInfoResponse;
 import vn.edu.fpt.laboratory.dto.event.SendEmailEvent;
 import vn.edu.fpt.laboratory.dto.request.laboratory.GetOrderRequest;
@@ -20,14 +32,18 @@ import vn.edu.fpt.laboratory.dto.response.material.*;
 import vn.edu.fpt.laboratory.entity.*;
 import vn.edu.fpt.laboratory.exception.BusinessException;
 import vn.edu.fpt.laboratory.repository.*;
+import vn.edu.fpt.laboratory.service.AppConfigService;
+import vn.edu.fpt.laboratory.service.MaterialAvailabilityService;
+import vn.edu.fpt.laboratory.service.MaterialCalendarService;
 import vn.edu.fpt.laboratory.service.MaterialService;
 import vn.edu.fpt.laboratory.service.S3BucketStorageService;
-import vn.edu.fpt.laboratory.service.UserInfoService;
+import vn.edu.fpt.laboratory.service.TrendingMaterialService;
+import vn.edu.fpt.laboratory.service.TypeaheadService;
+import vn.edu.fpt.laboratory.service.UserInfoLoader;
 import vn.edu.fpt.laboratory.utils.FileUtils;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 /**
@@ -47,18 +63,28 @@ public class MaterialServiceImpl implements MaterialService {
     private final _ImageRepository imageRepository;
     private final OrderHistoryRepository orderHistoryRepository;
     private final SendEmailProducer sendEmailProducer;
-    private final AppConfigRepository appConfigRepository;
+    private final AppConfigService appConfigService;
     private final MongoTemplate mongoTemplate;
-    private final UserInfoService userInfoService;
+    private final UserInfoLoader userInfoLoader;
     private final S3BucketStorageService s3BucketStorageService;
+    private final LaboratoryReferenceRepository laboratoryReferenceRepository;
+    private final LaboratoryUpdateRepository laboratoryUpdateRepository;
+    private final MaterialUpdateRepository materialUpdateRepository;
+    private final MaterialAvailabilityService materialAvailabilityService;
+    private final MaterialCalendarService materialCalendarService;
+    private final OrderMaterialViewRepository orderMaterialViewRepository;
+    private final PagedQueryRepository pagedQueryRepository;
+    private final TypeaheadService typeaheadService;
+    private final TrendingMaterialService trendingMaterialService;
+    private final ApplicationEventPublisher applicationEventPublisher;
 
     @Override
     public CreateMaterialResponse createMaterial(String labId, CreateMaterialRequest request) {
-        Laboratory laboratory = laboratoryRepository.findById(labId)
-                .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Lab ID not exist"));
+        if (!laboratoryRepository.existsById(labId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Lab ID not exist");
+        }
 
-        List<Material> currentMaterial = laboratory.getMaterials();
-        if (currentMaterial.stream().anyMatch(v -> v.getMaterialName().equals(request.getMaterialName()))) {
+        if (existsMaterialName(labId, request.getMaterialName())) {
             throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material name already exist");
         }
         _Image image = null;
@@ -91,6 +117,7 @@ public class MaterialServiceImpl implements MaterialService {
                 .totalAmount(request.getAmount())
                 .note(request.getNote())
                 .images(image)
+                .laboratoryId(labId)
                 .build();
 
         try {
@@ -99,14 +126,15 @@ public class MaterialServiceImpl implements MaterialService {
             throw new BusinessException("Can't save material to database: " + ex.getMessage());
         }
 
-        currentMaterial.add(material);
-        laboratory.setMaterials(currentMaterial);
-
         try {
-            laboratoryRepository.save(laboratory);
+            laboratoryUpdateRepository.pushReference(labId, LaboratoryReferenceEnum.MATERIAL, material.getMaterialId());
         } catch (Exception ex) {
             throw new BusinessException("Can't update laboratory after add material to database: " + ex.getMessage());
         }
+        applicationEventPublisher.publishEvent(StatisticChangedEvent.builder()
+                .increment(StatisticMetricEnum.MATERIAL, 1L)
+                .build());
+        typeaheadService.put(TypeaheadTypeEnum.MATERIAL, material.getMaterialId(), material.getMaterialName(), labId);
         return CreateMaterialResponse.builder()
                 .materialId(material.getMaterialId())
                 .build();
@@ -115,33 +143,40 @@ public class MaterialServiceImpl implements MaterialService {
 
     @Override
     public void updateMaterial(String laboratoryId, String materialId, UpdateMaterialRequest request) {
-        Laboratory laboratory = laboratoryRepository.findById(laboratoryId)
-                .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist"));
-        List<Material> materials = laboratory.getMaterials();
+        if (!laboratoryRepository.existsById(laboratoryId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist");
+        }
         Material material = materialRepository.findById(materialId)
                 .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material ID not exist"));
 
-        if (materials.stream().noneMatch(m -> m.getMaterialId().equals(materialId))) {
+        Query materialQuery = new Query(laboratoryReferenceRepository.belongTo(laboratoryId, LaboratoryReferenceEnum.MATERIAL));
+        materialQuery.addCriteria(Criteria.where("_id").is(materialId));
+        if (!mongoTemplate.exists(materialQuery, Material.class)) {
             throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory not contain this material");
         }
 
+        // only the fields of the request are set, so amount, borrow time and version written by a concurrent
+        // reservation are kept
+        Map<String, Object> fields = new HashMap<>();
         if (!material.getMaterialName().equals(request.getMaterialName())){
             if (Objects.nonNull(request.getMaterialName())) {
-                if (materials.stream().anyMatch(m -> m.getMaterialName().equals(request.getMaterialName()))) {
+                if (existsMaterialName(laboratoryId, request.getMaterialName())) {
                     throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material name is already exist");
                 } else {
                     material.setMaterialName(request.getMaterialName());
+                    fields.put("material_name", request.getMaterialName());
                 }
             }
         }
         if (Objects.nonNull(request.getDescription())) {
-            material.setDescription(request.getDescription());
+            fields.put("description", request.getDescription());
         }
         if (Objects.nonNull(request.getStatus())) {
-            material.setStatus(request.getStatus());
+            fields.put("status", request.getStatus());
         }
-        if (Objects.nonNull(request.getAmount()) && request.getAmount() > 0) {
-            material.setAmount(request.getAmount());
+        boolean updateAmount = Objects.nonNull(request.getAmount()) && request.getAmount() > 0;
+        if (updateAmount) {
+            fields.put("amount", request.getAmount());
         }
         if (Objects.nonNull(request.getImage())) {
             String fileKey = UUID.randomUUID().toString();
@@ -161,51 +196,59 @@ public class MaterialServiceImpl implements MaterialService {
             } catch (Exception ex) {
                 throw new BusinessException("Can't save image to database: " + ex.getMessage());
             }
-            material.setImages(image);
+            fields.put("images", new DBRef("images", new ObjectId(image.getImageId())));
         }
         if (Objects.nonNull(request.getNote())) {
-            material.setNote(request.getNote());
+            fields.put("note", request.getNote());
         }
 
+        boolean updated;
         try {
-            materialRepository.save(material);
+            // the amount is only set when no reservation took from the stock since the material was read
+            updated = materialUpdateRepository.updateFields(materialId, fields, updateAmount ? material.getVersion() : null);
         } catch (Exception ex) {
             throw new BusinessException("Can't save material to database: " + ex.getMessage());
         }
+        if (!updated) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material is being ordered by other members, please try again");
+        }
+        typeaheadService.put(TypeaheadTypeEnum.MATERIAL, materialId, material.getMaterialName(), laboratoryId);
+    }
 
+    private boolean existsMaterialName(String laboratoryId, String materialName) {
+        Query query = new Query(laboratoryReferenceRepository.belongTo(laboratoryId, LaboratoryReferenceEnum.MATERIAL));
+        query.addCriteria(Criteria.where("material_name").is(materialName));
+        return mongoTemplate.exists(query, Material.class);
     }
 
     @Override
     public void deleteMaterial(String laboratoryId, String materialId) {
-        Laboratory laboratory = laboratoryRepository.findById(laboratoryId)
-                .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist"));
-
-        List<Material> materialInLab = laboratory.getMaterials();
-        Material material = materialInLab.stream().filter(m -> m.getMaterialId().equals(materialId)).findAny()
-                .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material ID not exist"));
-
-        materialInLab.remove(material);
-        laboratory.setMaterials(materialInLab);
+        if (!laboratoryRepository.existsById(laboratoryId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist");
+        }
+        Query materialQuery = new Query(laboratoryReferenceRepository.belongTo(laboratoryId, LaboratoryReferenceEnum.MATERIAL));
+        materialQuery.addCriteria(Criteria.where("_id").is(materialId));
+        if (!mongoTemplate.exists(materialQuery, Material.class)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material ID not exist");
+        }
 
         try {
-            laboratoryRepository.save(laboratory);
+            laboratoryUpdateRepository.pullReference(laboratoryId, LaboratoryReferenceEnum.MATERIAL, materialId);
         } catch (Exception ex) {
             throw new BusinessException("Can't update laboratory in database");
         }
-        material.setDelete(true);
 
         try {
-            materialRepository.save(material);
+            materialUpdateRepository.markDeleted(materialId);
         } catch (Exception ex) {
             throw new BusinessException("Can't delete material in database");
         }
+        typeaheadService.remove(TypeaheadTypeEnum.MATERIAL, materialId);
 
-        List<OrderHistory> orderHistories = orderHistoryRepository.findByMaterialIdAndStatus(materialId, OrderStatusEnum.WAITING_FOR_APPROVAL.getStatus());
-        for (OrderHistory o : orderHistories) {
-            o.setStatus(OrderStatusEnum.REJECTED.getStatus());
-        }
+        Query orderQuery = Query.query(Criteria.where("materialId").is(materialId)
+                .and("status").is(OrderStatusEnum.WAITING_FOR_APPROVAL.getStatus()));
         try {
-            orderHistoryRepository.saveAll(orderHistories);
+            mongoTemplate.updateMulti(orderQuery, Update.update("status", OrderStatusEnum.REJECTED.getStatus()), OrderHistory.class);
         } catch (Exception ex) {
             throw new BusinessException("Can't update order history in database");
         }
@@ -213,13 +256,14 @@ public class MaterialServiceImpl implements MaterialService {
 
     @Override
     public PageableResponse<GetMaterialResponse> getMaterial(GetMaterialRequest request) {
-        Laboratory laboratory = laboratoryRepository.findById(request.getLaboratoryId().toString())
-                .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Lab Id not exist"));
-        List<ObjectId> materialIds = laboratory.getMaterials().stream().map(Material::getMaterialId).map(ObjectId::new).collect(Collectors.toList());
+        String laboratoryId = request.getLaboratoryId().toString();
+        if (!laboratoryRepository.existsById(laboratoryId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Lab Id not exist");
+        }
 
         Query query = new Query();
 
-        query.addCriteria(Criteria.where("_id").in(materialIds));
+        query.addCriteria(laboratoryReferenceRepository.belongTo(laboratoryId, LaboratoryReferenceEnum.MATERIAL));
         if (Objects.nonNull(request.getMaterialId())) {
             query.addCriteria(Criteria.where("_id").is(request.getMaterialId()));
         }
@@ -233,17 +277,18 @@ public class MaterialServiceImpl implements MaterialService {
         if (Objects.nonNull(request.getDescription())) {
             query.addCriteria(Criteria.where("description").regex(request.getDescription()));
         }
+        BaseMongoRepository.addCriteriaWithKeyword(query, request.getKeyword());
         BaseMongoRepository.addCriteriaWithAuditable(query, request);
 
-        Long totalElements = mongoTemplate.count(query, Material.class);
-
-        BaseMongoRepository.addCriteriaWithPageable(query, request);
-        BaseMongoRepository.addCriteriaWithSorted(query, request);
+        if (request.isCursorMode()) {
+            CursorPage<Material> page = BaseMongoRepository.findWithCursor(mongoTemplate, query, request, Material.class);
+            return new PageableResponse<>(request, page.getNextCursor(), page.getItems().stream().map(this::convertMaterialToGetMaterialResponse).collect(Collectors.toList()));
+        }
 
-        List<Material> materials = mongoTemplate.find(query, Material.class);
-        List<GetMaterialResponse> getMaterialResponses = materials.stream().map(this::convertMaterialToGetMaterialResponse).collect(Collectors.toList());
+        PageResult<Material> page = pagedQueryRepository.findPage(query, request, Material.class);
+        List<GetMaterialResponse> getMaterialResponses = page.getItems().stream().map(this::convertMaterialToGetMaterialResponse).collect(Collectors.toList());
 
-        return new PageableResponse<>(request, totalElements, getMaterialResponses);
+        return new PageableResponse<>(request, page.getTotalElements(), getMaterialResponses);
     }
 
     private GetMaterialResponse convertMaterialToGetMaterialResponse(Material material) {
@@ -263,42 +308,37 @@ public class MaterialServiceImpl implements MaterialService {
                 .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material ID not exist"));
 
         _Image image = material.getImages();
-        List<BorrowTime> borrowTimes = material.getBorrowTime();
-        borrowTimes.removeIf(v -> v.getReturnDate().isBefore(LocalDateTime.now()));
-        material.setBorrowTime(borrowTimes);
-        try {
-            materialRepository.save(material);
-        }catch (Exception ex){
-            throw new BusinessException("Can't save material to database"+ ex.getMessage());
-        }
-
         LocalDateTime currentDate = LocalDateTime.now();
-
-        AtomicReference<Integer> freeAmount = new AtomicReference<>(0);
-        borrowTimes.forEach(v -> {
-            if(v.getFromDate().isBefore(currentDate) && v.getReturnDate().isAfter(currentDate)){
-                freeAmount.updateAndGet(s -> s + v.getAmount());
+        List<BorrowTime> borrowTimes = material.getBorrowTime();
+        if (borrowTimes.removeIf(v -> v.getReturnDate().isBefore(currentDate))) {
+            try {
+                materialUpdateRepository.pruneBorrowTime(materialId, currentDate);
+            } catch (Exception ex) {
+                throw new BusinessException("Can't save material to database" + ex.getMessage());
             }
-        });
+            materialAvailabilityService.evict(materialId);
+        }
 
+        Integer freeAmount = material.getTotalAmount() - materialAvailabilityService.reservedAt(materialId, currentDate);
 
+        userInfoLoader.prime(Arrays.asList(material.getCreatedBy(), material.getLastModifiedBy()));
         return GetMaterialDetailResponse.builder()
                 .materialId(material.getMaterialId())
                 .materialName(material.getMaterialName())
                 .description(material.getDescription())
-                .status((material.getTotalAmount() - freeAmount.get())  <= 0 ? MaterialStatusEnum.IN_USED.getStatus() : MaterialStatusEnum.FREE.getStatus())
+                .status(freeAmount <= 0 ? MaterialStatusEnum.IN_USED.getStatus() : MaterialStatusEnum.FREE.getStatus())
                 .images(convertImageToGetImageResponse(image))
                 .note(material.getNote())
-                .amount(material.getTotalAmount() - freeAmount.get())
+                .amount(freeAmount)
                 .borrowTime(material.getBorrowTime())
                 .createdBy(UserInfoResponse.builder()
                         .accountId(material.getCreatedBy())
-                        .userInfo(userInfoService.getUserInfo(material.getCreatedBy()))
+                        .userInfo(userInfoLoader.load(material.getCreatedBy()))
                         .build())
                 .createdDate(material.getCreatedDate())
                 .lastModifiedBy(UserInfoResponse.builder()
                         .accountId(material.getLastModifiedBy())
-                        .userInfo(userInfoService.getUserInfo(material.getLastModifiedBy()))
+                        .userInfo(userInfoLoader.load(material.getLastModifiedBy()))
                         .build())
                 .lastModifiedDate(material.getLastModifiedDate())
                 .build();
@@ -314,27 +354,14 @@ public class MaterialServiceImpl implements MaterialService {
 
     @Override
     public OrderMaterialResponse orderMaterial(String laboratoryId, String materialId, OrderMaterialRequest request) {
-        Laboratory laboratory = laboratoryRepository.findById(laboratoryId)
-                .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist"));
+        if (!laboratoryRepository.existsById(laboratoryId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist");
+        }
         Material material = materialRepository.findById(materialId)
                 .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material ID not exist"));
 
-        List<BorrowTime> borrowTimeList = material.getBorrowTime();
-
-        AtomicReference<Integer> freeAmount = new AtomicReference<>(0);
-        borrowTimeList.forEach(v -> {
-                    if (
-                            v.getReturnDate().isBefore(request.getOrderFrom()) ||
-                                    v.getReturnDate().equals(request.getOrderFrom()) ||
-                                    v.getFromDate().isAfter(request.getOrderTo()) ||
-                                    v.getFromDate().equals(request.getOrderTo())
-                    ) {
-                        freeAmount.updateAndGet(v1 -> v1 + v.getAmount());
-                    }
-                }
-        );
-
-        if(material.getAmount()+freeAmount.get() < request.getAmount()){
+        int reserved = materialAvailabilityService.peakReserved(materialId, request.getOrderFrom(), request.getOrderTo());
+        if (material.getTotalAmount() - reserved < request.getAmount()) {
             throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Not enough amount for request");
         }
         OrderHistory orderHistory = OrderHistory.builder()
@@ -344,77 +371,174 @@ public class MaterialServiceImpl implements MaterialService {
                 .orderFrom(request.getOrderFrom())
                 .orderTo(request.getOrderTo())
                 .status(OrderStatusEnum.WAITING_FOR_APPROVAL.getStatus())
+                .laboratoryId(laboratoryId)
                 .build();
 
-        List<MemberInfo> managers = laboratory.getMembers().stream()
-                .filter(v -> v.getRole().equals(LaboratoryRoleEnum.MANAGER.getRole()) || v.getRole().equals(LaboratoryRoleEnum.OWNER.getRole()))
-                .collect(Collectors.toList());
-        if (!managers.isEmpty()) {
-            Optional<AppConfig> orderMaterialTemplateId = appConfigRepository.findByConfigKey("ORDER_MATERIAL_TEMPLATE_ID");
-            if (orderMaterialTemplateId.isPresent()) {
-                for (MemberInfo member : managers) {
-                    String memberEmail = userInfoService.getUserInfo(member.getAccountId()).getEmail();
-                    SendEmailEvent sendEmailEvent = SendEmailEvent.builder()
-                            .sendTo(memberEmail)
-                            .bcc(null)
-                            .cc(null)
-                            .templateId(orderMaterialTemplateId.get().getConfigValue())
-                            .params(Map.of("ORDER_ID", orderHistory.getOrderId()))
-                            .build();
-                    sendEmailProducer.sendMessage(sendEmailEvent);
-                }
-            }else{
-                log.info("Missing config key: ORDER_MATERIAL_TEMPLATE_ID");
-            }
-        }else{
-            log.info("Laboratory don't has manager");
+        try {
+            orderHistory = orderHistoryRepository.save(orderHistory);
+        } catch (Exception ex) {
+            throw new BusinessException("Can't save order history to database: " + ex.getMessage());
         }
-
         try {
-            materialRepository.save(material);
+            laboratoryUpdateRepository.pushReference(laboratoryId, LaboratoryReferenceEnum.ORDER, orderHistory.getOrderId());
         } catch (Exception ex) {
-            throw new BusinessException("Can't save material to database: " + ex.getMessage());
+            throw new BusinessException("Can't save laboratory to database: " + ex.getMessage());
+        }
+        notifyManagers(laboratoryId, List.of(orderHistory.getOrderId()));
+        return OrderMaterialResponse.builder()
+                .orderId(orderHistory.getOrderId())
+                .build();
+    }
+
+    @Override
+    public OrderCartResponse orderCart(String laboratoryId, OrderCartRequest request) {
+        if (!laboratoryRepository.existsById(laboratoryId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist");
+        }
+        if (Objects.isNull(request.getItems()) || request.getItems().isEmpty()) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Cart is empty");
+        }
+        if (Objects.isNull(request.getOrderFrom()) || Objects.isNull(request.getOrderTo()) || !request.getOrderFrom().isBefore(request.getOrderTo())) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Order time is invalid");
+        }
+        Map<String, Integer> amounts = new LinkedHashMap<>();
+        for (OrderCartItemRequest item : request.getItems()) {
+            if (Objects.isNull(item.getMaterialId()) || !ObjectId.isValid(item.getMaterialId()) || Objects.isNull(item.getAmount()) || item.getAmount() <= 0) {
+                throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Cart item is invalid");
+            }
+            amounts.merge(item.getMaterialId(), item.getAmount(), Integer::sum);
         }
 
+        Query materialQuery = new Query(laboratoryReferenceRepository.belongTo(laboratoryId, LaboratoryReferenceEnum.MATERIAL));
+        materialQuery.addCriteria(Criteria.where("_id").in(amounts.keySet().stream().map(ObjectId::new).collect(Collectors.toList())));
+        materialQuery.fields().include("material_name", "total_amount");
+        List<Material> materials = mongoTemplate.find(materialQuery, Material.class);
+        if (materials.size() != amounts.size()) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material ID not exist");
+        }
+        List<String> notEnough = materials.stream()
+                .filter(v -> v.getTotalAmount() - materialAvailabilityService.peakReserved(v.getMaterialId(), request.getOrderFrom(), request.getOrderTo()) < amounts.get(v.getMaterialId()))
+                .map(Material::getMaterialName)
+                .collect(Collectors.toList());
+        if (!notEnough.isEmpty()) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Not enough amount for request: " + String.join(", ", notEnough));
+        }
+
+        // ids are assigned up front so a partially written cart can be removed again
+        List<OrderHistory> orderHistories = amounts.entrySet().stream()
+                .map(v -> OrderHistory.builder()
+                        .orderId(new ObjectId().toHexString())
+                        .reason(request.getReason())
+                        .materialId(v.getKey())
+                        .amount(v.getValue())
+                        .orderFrom(request.getOrderFrom())
+                        .orderTo(request.getOrderTo())
+                        .status(OrderStatusEnum.WAITING_FOR_APPROVAL.getStatus())
+                        .laboratoryId(laboratoryId)
+                        .build())
+                .collect(Collectors.toList());
+        List<String> orderIds = orderHistories.stream().map(OrderHistory::getOrderId).collect(Collectors.toList());
         try {
-            orderHistory = orderHistoryRepository.save(orderHistory);
+            orderHistoryRepository.insert(orderHistories);
         } catch (Exception ex) {
+            removeOrders(orderIds);
             throw new BusinessException("Can't save order history to database: " + ex.getMessage());
         }
-        List<OrderHistory> orders = laboratory.getOrders();
-        orders.add(orderHistory);
-        laboratory.setOrders(orders);
         try {
-            laboratoryRepository.save(laboratory);
+            laboratoryUpdateRepository.pushReferences(laboratoryId, LaboratoryReferenceEnum.ORDER, orderIds);
         } catch (Exception ex) {
+            removeOrders(orderIds);
             throw new BusinessException("Can't save laboratory to database: " + ex.getMessage());
         }
-        return OrderMaterialResponse.builder()
-                .orderId(orderHistory.getOrderId())
+        notifyManagers(laboratoryId, orderIds);
+        return OrderCartResponse.builder()
+                .orderIds(orderIds)
                 .build();
     }
 
+    private void removeOrders(List<String> orderIds) {
+        try {
+            orderHistoryRepository.deleteAllById(orderIds);
+        } catch (Exception ex) {
+            log.error("Can't remove orders {} of a failed cart: {}", orderIds, ex.getMessage());
+        }
+    }
+
+    /**
+     * Send one email per manager of the laboratory for all orders created by the same request.
+     */
+    private void notifyManagers(String laboratoryId, List<String> orderIds) {
+        Query managerQuery = new Query(laboratoryReferenceRepository.belongTo(laboratoryId, LaboratoryReferenceEnum.MEMBER));
+        managerQuery.addCriteria(Criteria.where("role").in(LaboratoryRoleEnum.MANAGER.getRole(), LaboratoryRoleEnum.OWNER.getRole()));
+        List<MemberInfo> managers = mongoTemplate.find(managerQuery, MemberInfo.class);
+        if (managers.isEmpty()) {
+            log.info("Laboratory don't has manager");
+            return;
+        }
+        Optional<String> orderMaterialTemplateId = appConfigService.getConfigValue("ORDER_MATERIAL_TEMPLATE_ID");
+        if (orderMaterialTemplateId.isEmpty()) {
+            log.info("Missing config key: ORDER_MATERIAL_TEMPLATE_ID");
+            return;
+        }
+        userInfoLoader.prime(managers.stream().map(MemberInfo::getAccountId).collect(Collectors.toList()));
+        for (MemberInfo member : managers) {
+            UserInfo userInfo = userInfoLoader.load(member.getAccountId());
+            if (Objects.isNull(userInfo)) {
+                continue;
+            }
+            SendEmailEvent sendEmailEvent = SendEmailEvent.builder()
+                    .sendTo(userInfo.getEmail())
+                    .bcc(null)
+                    .cc(null)
+                    .templateId(orderMaterialTemplateId.get())
+                    .params(Map.of("ORDER_ID", String.join(", ", orderIds)))
+                    .build();
+            sendEmailProducer.sendMessage(sendEmailEvent);
+        }
+    }
+
     @Override
     public void returnMaterial(String orderId) {
-        OrderHistory orderHistory = orderHistoryRepository.findById(orderId)
-                .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Order history not exist"));
-        orderHistory.setActuallyReturn(LocalDateTime.now());
-        orderHistory.setStatus(OrderStatusEnum.COMPLETED.getStatus());
+        if (!ObjectId.isValid(orderId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Order history not exist");
+        }
+        // only a lent order can be returned, and only once, so the stock and the statistics never count it twice
+        Query query = Query.query(Criteria.where("_id").is(new ObjectId(orderId)).and("status").is(OrderStatusEnum.APPROVED.getStatus()));
+        Update update = Update.update("status", OrderStatusEnum.COMPLETED.getStatus())
+                .set("actually_return", LocalDateTime.now());
+        OrderHistory orderHistory;
         try {
-            orderHistoryRepository.save(orderHistory);
+            orderHistory = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), OrderHistory.class);
         } catch (Exception ex) {
             throw new BusinessException("Can't save order history to database: " + ex.getMessage());
         }
+        if (Objects.isNull(orderHistory)) {
+            if (!orderHistoryRepository.existsById(orderId)) {
+                throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Order history not exist");
+            }
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Order is not borrowed or already returned");
+        }
 
-        Material material = materialRepository.findById(orderHistory.getMaterialId())
-                .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material Id not eixst"));
-        material.setAmount(material.getAmount() + orderHistory.getAmount());
-        material.setStatus(MaterialStatusEnum.FREE.getStatus());
-        try {
-            materialRepository.save(material);
-        } catch (Exception ex) {
-            throw new BusinessException("Can't save material to database: " + ex.getMessage());
+        materialUpdateRepository.returnAmount(orderHistory.getMaterialId(), orderHistory.getAmount());
+        if (orderHistory.getActuallyReturn().isBefore(orderHistory.getOrderTo())) {
+            BorrowTime borrowTime = BorrowTime.builder()
+                    .fromDate(orderHistory.getOrderFrom())
+                    .returnDate(orderHistory.getOrderTo())
+                    .amount(orderHistory.getAmount())
+                    .orderId(orderHistory.getOrderId())
+                    .build();
+            // the reservation ends now in the material as well, otherwise the reservation tree and a rebuild
+            // of the buckets would keep counting the hours the calendar gives back
+            if (materialUpdateRepository.endBorrowTime(orderHistory.getMaterialId(), borrowTime, orderHistory.getActuallyReturn())) {
+                materialAvailabilityService.evict(orderHistory.getMaterialId());
+            }
+            materialCalendarService.releaseReservation(orderHistory.getMaterialId(), orderHistory.getActuallyReturn(), orderHistory.getOrderTo(), orderHistory.getAmount());
         }
+        applicationEventPublisher.publishEvent(StatisticChangedEvent.builder()
+                .increment(StatisticMetricEnum.MATERIAL_BORROWED, orderHistory.getAmount().longValue())
+                .laboratoryId(orderHistory.getLaboratoryId())
+                .borrowerId(orderHistory.getCreatedBy())
+                .build());
     }
 
     @Override
@@ -423,76 +547,82 @@ public class MaterialServiceImpl implements MaterialService {
         if (Objects.nonNull(request.getOrderId())) {
             query.addCriteria(Criteria.where("_id").is(request.getOrderId()));
         }
-        if (Objects.nonNull(request.getMaterialName())) {
-            query.addCriteria(Criteria.where("material_name").regex(request.getMaterialName()));
-        }
         if (Objects.nonNull(request.getStatus())) {
             query.addCriteria(Criteria.where("status").is(request.getStatus()));
         }
 
-        Laboratory laboratory = laboratoryRepository.findById(laboratoryId)
-                .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist"));
-        List<ObjectId> orderIds = laboratory.getOrders().stream().map(OrderHistory::getOrderId).map(ObjectId::new).collect(Collectors.toList());
-        query.addCriteria(Criteria.where("_id").in(orderIds));
+        if (!laboratoryRepository.existsById(laboratoryId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist");
+        }
+        query.addCriteria(laboratoryReferenceRepository.belongTo(laboratoryId, LaboratoryReferenceEnum.ORDER));
 
         BaseMongoRepository.addCriteriaWithAuditable(query, request);
-        Long totalElements = mongoTemplate.count(query, OrderHistory.class);
-        BaseMongoRepository.addCriteriaWithPageable(query, request);
-        BaseMongoRepository.addCriteriaWithSorted(query, request);
-        List<OrderHistory> orders = mongoTemplate.find(query, OrderHistory.class);
+        if (request.isCursorMode()) {
+            CursorPage<OrderMaterialView> page = orderMaterialViewRepository.findWithCursor(query, request.getMaterialName(), request);
+            return new PageableResponse<>(request, page.getNextCursor(), convertOrderMaterialViewsToGetOrderedResponses(page.getItems()));
+        }
+        Long totalElements = orderMaterialViewRepository.count(query, request.getMaterialName());
+        List<OrderMaterialView> orders = orderMaterialViewRepository.find(query, request.getMaterialName(), request);
+        return new PageableResponse<> (request, totalElements, convertOrderMaterialViewsToGetOrderedResponses(orders));
+    }
 
-        List<GetOrderedResponse> orderedMaterialResponses = orders.stream().map(this::convertOrderHistoryToGetOrderedResponse).collect(Collectors.toList());
-        return new PageableResponse<> (request, totalElements, orderedMaterialResponses);
+    private List<GetOrderedResponse> convertOrderMaterialViewsToGetOrderedResponses(List<OrderMaterialView> orders) {
+        userInfoLoader.prime(orders.stream().map(OrderMaterialView::getCreatedBy).collect(Collectors.toList()));
+        return orders.stream().map(this::convertOrderMaterialViewToGetOrderedResponse).collect(Collectors.toList());
     }
 
-    private GetOrderedResponse convertOrderHistoryToGetOrderedResponse(OrderHistory orderHistory) {
-        if (orderHistory == null){
-            return null;
-        } else {
-            Material material = materialRepository.findById(orderHistory.getMaterialId())
-                    .orElseThrow(()->new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material ID in order history not exist"));
-            UserInfoResponse userInfoResponse = UserInfoResponse.builder()
-                    .accountId(orderHistory.getCreatedBy())
-                    .userInfo(userInfoService.getUserInfo(orderHistory.getCreatedBy()))
-                    .build();
-            return GetOrderedResponse.builder()
-                    .orderId(orderHistory.getOrderId())
-                    .materialName(material.getMaterialName())
-                    .borrowBy(userInfoResponse)
-                    .amount(orderHistory.getAmount())
-                    .reason(orderHistory.getReason())
-                    .status(orderHistory.getStatus())
-                    .orderFromDate(orderHistory.getOrderFrom())
-                    .orderToDate(orderHistory.getOrderTo())
-                    .build();
-        }
+    private GetOrderedResponse convertOrderMaterialViewToGetOrderedResponse(OrderMaterialView orderMaterialView) {
+        UserInfoResponse userInfoResponse = UserInfoResponse.builder()
+                .accountId(orderMaterialView.getCreatedBy())
+                .userInfo(userInfoLoader.load(orderMaterialView.getCreatedBy()))
+                .build();
+        return GetOrderedResponse.builder()
+                .orderId(orderMaterialView.getOrderId())
+                .materialName(orderMaterialView.getMaterialName())
+                .borrowBy(userInfoResponse)
+                .amount(orderMaterialView.getAmount())
+                .reason(orderMaterialView.getReason())
+                .status(orderMaterialView.getStatus())
+                .orderFromDate(orderMaterialView.getOrderFrom())
+                .orderToDate(orderMaterialView.getOrderTo())
+                .build();
     }
 
     @Override
-    public PageableResponse<GetOrderedMaterialResponse> getOrderedMaterialInLabByAccountId(String laboratoryId, String accountId) {
-        Laboratory laboratory = laboratoryRepository.findById(laboratoryId)
-                .orElseThrow(()-> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist"));
-        List<OrderHistory> orderHistories = laboratory.getOrders().stream().filter(m->m.getCreatedBy().equals(accountId)).collect(Collectors.toList());
-        List<GetOrderedMaterialResponse> orderedMaterialResponses = orderHistories.stream().map(this::convertOrderHistoryToGetOrderedMaterialResponse).collect(Collectors.toList());
-        return new PageableResponse<> (orderedMaterialResponses);
+    public PageableResponse<GetOrderedMaterialResponse> getOrderedMaterialInLabByAccountId(String laboratoryId, String accountId, GetOrderedMaterialRequest request) {
+        if (!laboratoryRepository.existsById(laboratoryId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist");
+        }
+        // served by the (laboratory_id, created_by, order_from) index, a page reads at most page size orders
+        Query query = new Query(laboratoryReferenceRepository.belongTo(laboratoryId, LaboratoryReferenceEnum.ORDER));
+        query.addCriteria(Criteria.where("created_by").is(accountId));
+        if (Objects.nonNull(request.getStatus())) {
+            query.addCriteria(Criteria.where("status").is(request.getStatus()));
+        }
+        if (request.isCursorMode()) {
+            CursorPage<OrderMaterialView> page = orderMaterialViewRepository.findWithCursor(query, null, request);
+            return new PageableResponse<>(request, page.getNextCursor(), page.getItems().stream().map(this::convertOrderMaterialViewToGetOrderedMaterialResponse).collect(Collectors.toList()));
+        }
+        Long totalElements = orderMaterialViewRepository.count(query, null);
+        List<OrderMaterialView> orders = orderMaterialViewRepository.find(query, null, request);
+        List<GetOrderedMaterialResponse> orderedMaterialResponses = orders.stream().map(this::convertOrderMaterialViewToGetOrderedMaterialResponse).collect(Collectors.toList());
+        return new PageableResponse<> (request, totalElements, orderedMaterialResponses);
     }
 
-    private GetOrderedMaterialResponse convertOrderHistoryToGetOrderedMaterialResponse(OrderHistory orderHistory){
-        Material material = materialRepository.findById(orderHistory.getMaterialId())
-                .orElseThrow(()-> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material ID not exist"));
-        GetImageResponse imageResponse = GetImageResponse.builder()
-                .imageId(material.getImages().getImageId())
-                .imageName(material.getImages().getImageName())
-                .url(s3BucketStorageService.getPublicURL(material.getImages().getFileKey()))
+    private GetOrderedMaterialResponse convertOrderMaterialViewToGetOrderedMaterialResponse(OrderMaterialView orderMaterialView){
+        GetImageResponse imageResponse = Objects.isNull(orderMaterialView.getImageId()) ? null : GetImageResponse.builder()
+                .imageId(orderMaterialView.getImageId())
+                .imageName(orderMaterialView.getImageName())
+                .url(s3BucketStorageService.getPublicURL(orderMaterialView.getFileKey()))
                 .build();
         return GetOrderedMaterialResponse.builder()
-                .orderId(orderHistory.getOrderId())
-                .materialId(orderHistory.getMaterialId())
-                .materialName(material.getMaterialName())
+                .orderId(orderMaterialView.getOrderId())
+                .materialId(orderMaterialView.getMaterialId())
+                .materialName(orderMaterialView.getMaterialName())
                 .images(imageResponse)
-                .status(orderHistory.getStatus())
-                .orderFromDate(orderHistory.getOrderFrom())
-                .orderToDate(orderHistory.getOrderTo())
+                .status(orderMaterialView.getStatus())
+                .orderFromDate(orderMaterialView.getOrderFrom())
+                .orderToDate(orderMaterialView.getOrderTo())
                 .build();
     }
 
@@ -500,47 +630,176 @@ public class MaterialServiceImpl implements MaterialService {
     public void responseOrder(String orderId, ResponseOrderRequest request) {
         OrderHistory orderHistory = orderHistoryRepository.findById(orderId)
                 .orElseThrow(()->new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Order ID not exist"));
-        Material material = materialRepository.findById(orderHistory.getMaterialId())
-                .orElseThrow(()->new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material ID not exist"));
-        if (Objects.nonNull(request.getStatus())) {
-            if (request.getStatus().equals(OrderStatusEnum.APPROVED.getStatus())) {
-
-                orderHistory.setStatus(OrderStatusEnum.APPROVED.getStatus());
-                BorrowTime borrowTime = BorrowTime.builder()
-                        .fromDate(orderHistory.getOrderFrom())
-                        .returnDate(orderHistory.getOrderTo())
-                        .amount(orderHistory.getAmount())
-                        .build();
-                List<BorrowTime> borrowTimeList = material.getBorrowTime();
-                borrowTimeList.add(borrowTime);
-                if(material.getTotalAmount() < orderHistory.getAmount()){
-                    orderHistory.setStatus(OrderStatusEnum.REJECTED.getStatus());
-                    try {
-                        orderHistoryRepository.save(orderHistory);
-                    }catch (Exception ex){
-                        throw new BusinessException("Can't update order history: "+ ex.getMessage());
-                    }
-                    throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Not enough material for this ticket");
-                }
-                if(material.getAmount() - orderHistory.getAmount() == 0){
-                    material.setStatus(MaterialStatusEnum.IN_USED.getStatus());
+        if (!materialRepository.existsById(orderHistory.getMaterialId())) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Material ID not exist");
+        }
+        if (Objects.isNull(request.getStatus())) {
+            return;
+        }
+        if (request.getStatus().equals(OrderStatusEnum.APPROVED.getStatus())) {
+            changeOrderStatus(orderId, OrderStatusEnum.WAITING_FOR_APPROVAL, OrderStatusEnum.APPROVED);
+            BorrowTime borrowTime = BorrowTime.builder()
+                    .fromDate(orderHistory.getOrderFrom())
+                    .returnDate(orderHistory.getOrderTo())
+                    .amount(orderHistory.getAmount())
+                    .orderId(orderHistory.getOrderId())
+                    .build();
+            List<BorrowTime> reserved;
+            try {
+                reserved = materialAvailabilityService.reserveAll(orderHistory.getMaterialId(), List.of(borrowTime));
+            } catch (Exception ex) {
+                // contention or a database failure says nothing about the order, leave it waiting for another response
+                changeOrderStatus(orderId, OrderStatusEnum.APPROVED, OrderStatusEnum.WAITING_FOR_APPROVAL);
+                if (ex instanceof BusinessException) {
+                    throw (BusinessException) ex;
                 }
-                material.setAmount(material.getAmount() - orderHistory.getAmount());
-                material.setBorrowTime(borrowTimeList);
-            } else {
-                orderHistory.setStatus(OrderStatusEnum.REJECTED.getStatus());
+                throw new BusinessException("Can't save material to database: " + ex.getMessage());
+            }
+            if (reserved.isEmpty()) {
+                changeOrderStatus(orderId, OrderStatusEnum.APPROVED, OrderStatusEnum.REJECTED);
+                throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Not enough material for this ticket");
             }
+            materialCalendarService.recordReservation(orderHistory.getMaterialId(), orderHistory.getOrderFrom(), orderHistory.getOrderTo(), orderHistory.getAmount());
+            trendingMaterialService.recordApproval(orderHistory.getLaboratoryId(), orderHistory.getMaterialId());
+        } else {
+            changeOrderStatus(orderId, OrderStatusEnum.WAITING_FOR_APPROVAL, OrderStatusEnum.REJECTED);
         }
+    }
+
+    /**
+     * Move the order to the next status only if it is still in the expected one, so the same order can't be responded twice.
+     */
+    private void changeOrderStatus(String orderId, OrderStatusEnum from, OrderStatusEnum to) {
+        Query query = Query.query(Criteria.where("_id").is(new ObjectId(orderId)).and("status").is(from.getStatus()));
+        Update update = Update.update("status", to.getStatus());
+        if (from == OrderStatusEnum.WAITING_FOR_APPROVAL) {
+            update.set("responded_date", LocalDateTime.now());
+        } else if (to == OrderStatusEnum.WAITING_FOR_APPROVAL) {
+            update.unset("responded_date");
+        }
+        UpdateResult result;
         try {
-            orderHistoryRepository.save(orderHistory);
+            result = mongoTemplate.updateFirst(query, update, OrderHistory.class);
         } catch (Exception ex) {
             throw new BusinessException("Can't save order history to database: " + ex.getMessage());
         }
+        if (result.getMatchedCount() == 0) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Order is already responded");
+        }
+    }
+
+    @Override
+    public BulkResponseOrderResponse responseOrders(BulkResponseOrderRequest request) {
+        if (Objects.isNull(request.getOrders()) || request.getOrders().isEmpty()) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Order list is empty");
+        }
+        Map<String, ResponseOrderResultResponse> results = new LinkedHashMap<>();
+        List<ObjectId> approveIds = new ArrayList<>();
+        List<ObjectId> rejectIds = new ArrayList<>();
+        for (ResponseOrderItemRequest item : request.getOrders()) {
+            if (Objects.isNull(item.getOrderId()) || !ObjectId.isValid(item.getOrderId()) || Objects.isNull(item.getStatus()) || results.containsKey(item.getOrderId())) {
+                continue;
+            }
+            results.put(item.getOrderId(), ResponseOrderResultResponse.builder()
+                    .orderId(item.getOrderId())
+                    .message("Order ID not exist or already responded")
+                    .build());
+            if (item.getStatus().equals(OrderStatusEnum.APPROVED.getStatus())) {
+                approveIds.add(new ObjectId(item.getOrderId()));
+            } else {
+                rejectIds.add(new ObjectId(item.getOrderId()));
+            }
+        }
+
+        // claim the waiting orders with a token, the orders carrying it afterwards are the ones this request responds to
+        String responseId = UUID.randomUUID().toString();
+        LocalDateTime respondedDate = LocalDateTime.now();
+        BulkOperations claimOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OrderHistory.class);
+        if (!approveIds.isEmpty()) {
+            claimOperations.updateMulti(Query.query(Criteria.where("_id").in(approveIds).and("status").is(OrderStatusEnum.WAITING_FOR_APPROVAL.getStatus())),
+                    Update.update("status", OrderStatusEnum.APPROVED.getStatus()).set("response_id", responseId).set("responded_date", respondedDate));
+        }
+        if (!rejectIds.isEmpty()) {
+            claimOperations.updateMulti(Query.query(Criteria.where("_id").in(rejectIds).and("status").is(OrderStatusEnum.WAITING_FOR_APPROVAL.getStatus())),
+                    Update.update("status", OrderStatusEnum.REJECTED.getStatus()).set("response_id", responseId).set("responded_date", respondedDate));
+        }
+        if (approveIds.isEmpty() && rejectIds.isEmpty()) {
+            return BulkResponseOrderResponse.builder().results(new ArrayList<>(results.values())).build();
+        }
         try {
-            materialRepository.save(material);
+            claimOperations.execute();
         } catch (Exception ex) {
-            throw new BusinessException("Can't save material to database: " + ex.getMessage());
+            throw new BusinessException("Can't save order history to database: " + ex.getMessage());
         }
+        List<ObjectId> orderIds = new ArrayList<>(approveIds);
+        orderIds.addAll(rejectIds);
+        Query claimedQuery = Query.query(Criteria.where("_id").in(orderIds).and("response_id").is(responseId));
+        claimedQuery.with(Sort.by(Sort.Direction.ASC, "created_date"));
+        List<OrderHistory> claimed = mongoTemplate.find(claimedQuery, OrderHistory.class);
+
+        Map<String, List<OrderHistory>> approvedByMaterial = new LinkedHashMap<>();
+        for (OrderHistory orderHistory : claimed) {
+            ResponseOrderResultResponse result = results.get(orderHistory.getOrderId());
+            result.setStatus(orderHistory.getStatus());
+            result.setMessage(null);
+            if (orderHistory.getStatus().equals(OrderStatusEnum.APPROVED.getStatus())) {
+                approvedByMaterial.computeIfAbsent(orderHistory.getMaterialId(), v -> new ArrayList<>()).add(orderHistory);
+            }
+        }
+
+        BulkOperations resultOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OrderHistory.class);
+        boolean hasResultUpdate = false;
+        for (Map.Entry<String, List<OrderHistory>> entry : approvedByMaterial.entrySet()) {
+            List<BorrowTime> borrowTimes = entry.getValue().stream()
+                    .map(v -> BorrowTime.builder()
+                            .fromDate(v.getOrderFrom())
+                            .returnDate(v.getOrderTo())
+                            .amount(v.getAmount())
+                            .orderId(v.getOrderId())
+                            .build())
+                    .collect(Collectors.toList());
+            Set<String> acceptedOrderIds;
+            String status;
+            String message;
+            try {
+                acceptedOrderIds = materialAvailabilityService.reserveAll(entry.getKey(), borrowTimes).stream()
+                        .map(BorrowTime::getOrderId)
+                        .collect(Collectors.toSet());
+                status = OrderStatusEnum.REJECTED.getStatus();
+                message = "Not enough material for this ticket";
+            } catch (Exception ex) {
+                // the material could not be read or stayed contended, leave its orders waiting for another response
+                acceptedOrderIds = Set.of();
+                status = OrderStatusEnum.WAITING_FOR_APPROVAL.getStatus();
+                message = ex instanceof BusinessException ? ex.getMessage() : "Can't save material to database: " + ex.getMessage();
+            }
+            for (OrderHistory orderHistory : entry.getValue()) {
+                if (acceptedOrderIds.contains(orderHistory.getOrderId())) {
+                    materialCalendarService.recordReservation(orderHistory.getMaterialId(), orderHistory.getOrderFrom(), orderHistory.getOrderTo(), orderHistory.getAmount());
+                    trendingMaterialService.recordApproval(orderHistory.getLaboratoryId(), orderHistory.getMaterialId());
+                    continue;
+                }
+                Update update = Update.update("status", status);
+                if (OrderStatusEnum.WAITING_FOR_APPROVAL.getStatus().equals(status)) {
+                    update.unset("responded_date");
+                }
+                resultOperations.updateOne(Query.query(Criteria.where("_id").is(new ObjectId(orderHistory.getOrderId())).and("response_id").is(responseId)), update);
+                hasResultUpdate = true;
+                ResponseOrderResultResponse result = results.get(orderHistory.getOrderId());
+                result.setStatus(status);
+                result.setMessage(message);
+            }
+        }
+        if (hasResultUpdate) {
+            try {
+                resultOperations.execute();
+            } catch (Exception ex) {
+                throw new BusinessException("Can't save order history to database: " + ex.getMessage());
+            }
+        }
+        return BulkResponseOrderResponse.builder()
+                .results(new ArrayList<>(results.values()))
+                .build();
     }
 
     @Override
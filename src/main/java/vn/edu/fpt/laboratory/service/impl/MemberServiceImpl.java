@@ -3,9 +3,16 @@ package vn.edu.fpt.laboratory.service.impl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import vn.edu.fpt.laboratory.constant.StatisticMetricEnum;
+import vn.edu.fpt.laboratory.dto.event.StatisticChangedEvent;
 import vn.edu.fpt.laboratory.config.kafka.producer.ModifyMembersToWorkspaceProducer;
+import vn.edu.fpt.laboratory.constant.LaboratoryReferenceEnum;
 import vn.edu.fpt.laboratory.constant.LaboratoryRoleEnum;
 import vn.edu.fpt.laboratory.constant.ResponseStatusEnum;
 import vn.edu.fpt.laboratory.dto.event.ModifyMembersToWorkspaceEvent;
@@ -14,12 +21,18 @@ import vn.edu.fpt.laboratory.dto.request.member.AddMemberToProjectRequest;
 import vn.edu.fpt.laboratory.dto.request.member.UpdateMemberInfoRequest;
 import vn.edu.fpt.laboratory.entity.*;
 import vn.edu.fpt.laboratory.exception.BusinessException;
+import vn.edu.fpt.laboratory.repository.AccountMembershipRepository;
+import vn.edu.fpt.laboratory.repository.LaboratoryReferenceRepository;
 import vn.edu.fpt.laboratory.repository.LaboratoryRepository;
+import vn.edu.fpt.laboratory.repository.LaboratoryUpdateRepository;
 import vn.edu.fpt.laboratory.repository.MemberInfoRepository;
 import vn.edu.fpt.laboratory.repository.ProjectRepository;
 import vn.edu.fpt.laboratory.service.MemberInfoService;
+import vn.edu.fpt.laboratory.service.PermissionService;
+import vn.edu.fpt.laboratory.service.ProjectService;
 import vn.edu.fpt.laboratory.service.UserInfoService;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -44,6 +57,12 @@ public class MemberServiceImpl implements MemberInfoService {
     private final UserInfoService userInfoService;
     private final MongoTemplate mongoTemplate;
     private final ModifyMembersToWorkspaceProducer modifyMembersToWorkspaceProducer;
+    private final LaboratoryReferenceRepository laboratoryReferenceRepository;
+    private final LaboratoryUpdateRepository laboratoryUpdateRepository;
+    private final ProjectService projectService;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final PermissionService permissionService;
+    private final AccountMembershipRepository accountMembershipRepository;
 
     @Override
     public void addMemberToProject(String projectId, AddMemberToProjectRequest request) {
@@ -59,6 +78,7 @@ public class MemberServiceImpl implements MemberInfoService {
             MemberInfo memberInfoForProject = MemberInfo.builder()
                     .accountId(memberInfo.getAccountId())
                     .role(LaboratoryRoleEnum.MEMBER.getRole())
+                    .projectId(projectId)
                     .build();
             try {
                 memberInfoForProject = memberInfoRepository.save(memberInfoForProject);
@@ -66,6 +86,9 @@ public class MemberServiceImpl implements MemberInfoService {
                 throw new BusinessException("Can't save member info for project to database" + ex.getMessage());
             }
             memberInfos.add(memberInfoForProject);
+            if (Objects.nonNull(project.getLaboratoryId())) {
+                accountMembershipRepository.addProject(memberInfo.getAccountId(), project.getLaboratoryId(), projectId);
+            }
             modifyMembersToWorkspaceProducer.sendMessage(ModifyMembersToWorkspaceEvent.builder()
                     .workspaceId(projectId)
                     .accountId(memberInfo.getAccountId())
@@ -79,38 +102,48 @@ public class MemberServiceImpl implements MemberInfoService {
         } catch (Exception ex) {
             throw new BusinessException(ResponseStatusEnum.INTERNAL_SERVER_ERROR, "Can not add member to project in database: " + ex.getMessage());
         }
+        permissionService.evictProjectRoles(projectId);
+        applicationEventPublisher.publishEvent(StatisticChangedEvent.builder()
+                .increment(StatisticMetricEnum.MEMBER, (long) request.getMemberIds().size())
+                .build());
     }
 
     @Override
     public void addMemberToLaboratory(String labId, AddMemberToLaboratoryRequest request) {
-        Laboratory laboratory = laboratoryRepository.findById(labId)
-                .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "laboratory id not found"));
-        List<MemberInfo> memberInfos = laboratory.getMembers();
+        if (!laboratoryRepository.existsById(labId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "laboratory id not found");
+        }
+        Query query = new Query(laboratoryReferenceRepository.belongTo(labId, LaboratoryReferenceEnum.MEMBER));
+        query.addCriteria(Criteria.where("account_id").in(request.getAccountIds()));
+        if (mongoTemplate.exists(query, MemberInfo.class)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Member already contain this project");
+        }
+        List<String> memberIds = new ArrayList<>();
         for (String s : request.getAccountIds()) {
-            Optional<MemberInfo> memberInProject = laboratory.getMembers().stream().filter(v -> v.getMemberId().equals(s))
-                    .findAny();
-            if (memberInProject.isPresent()) {
-                throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Member already contain this project");
-            }
             MemberInfo memberInfo = MemberInfo.builder()
                     .accountId(s)
                     .role(LaboratoryRoleEnum.MEMBER.getRole())
+                    .laboratoryId(labId)
                     .build();
             try {
                 memberInfo = memberInfoRepository.save(memberInfo);
             } catch (Exception ex) {
                 throw new BusinessException("Can't save member info to database: " + ex.getMessage());
             }
-            memberInfos.add(memberInfo);
+            memberIds.add(memberInfo.getMemberId());
+            accountMembershipRepository.saveMember(s, labId, LaboratoryRoleEnum.MEMBER.getRole());
         }
 
-        laboratory.setMembers(memberInfos);
         try {
-            laboratoryRepository.save(laboratory);
+            laboratoryUpdateRepository.pushReferences(labId, LaboratoryReferenceEnum.MEMBER, memberIds);
             log.info("Add member to laboratory success");
         } catch (Exception ex) {
             throw new BusinessException(ResponseStatusEnum.INTERNAL_SERVER_ERROR, "Can not add member to project in database: " + ex.getMessage());
         }
+        permissionService.evictLaboratoryRoles(labId);
+        applicationEventPublisher.publishEvent(StatisticChangedEvent.builder()
+                .increment(StatisticMetricEnum.MEMBER, (long) memberIds.size())
+                .build());
     }
 
     @Override
@@ -126,6 +159,10 @@ public class MemberServiceImpl implements MemberInfoService {
         } catch (Exception ex) {
             throw new BusinessException("Can't save Member in database when update folder: " + ex.getMessage());
         }
+        if (Objects.nonNull(memberInfo.getLaboratoryId()) && Objects.nonNull(request.getRole())) {
+            accountMembershipRepository.updateRole(memberInfo.getAccountId(), memberInfo.getLaboratoryId(), request.getRole());
+        }
+        permissionService.evictAccountRoles(memberInfo.getAccountId());
     }
 
     @Override
@@ -146,6 +183,10 @@ public class MemberServiceImpl implements MemberInfoService {
         }
         MemberInfo memberInfo = memberInfoRepository.findById(memberId)
                         .orElseThrow(()->new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Member ID not exist"));
+        // the project member lookup goes through project_id, so it has to go with the DBRef
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(new ObjectId(memberId))), new Update().unset("project_id"), MemberInfo.class);
+        accountMembershipRepository.removeProject(memberInfo.getAccountId(), projectId);
+        permissionService.evictProjectRoles(projectId);
         modifyMembersToWorkspaceProducer.sendMessage(ModifyMembersToWorkspaceEvent.builder()
                 .workspaceId(projectId)
                 .accountId(memberInfo.getAccountId())
@@ -155,18 +196,17 @@ public class MemberServiceImpl implements MemberInfoService {
 
     @Override
     public void removeMemberFromLaboratory(String labId, String memberId) {
-        Laboratory laboratory = laboratoryRepository.findById(labId)
-                .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not found"));
+        if (!laboratoryRepository.existsById(labId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not found");
+        }
         MemberInfo memberInfo = memberInfoRepository.findById(memberId)
                 .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Member ID not exist"));
-        List<MemberInfo> memberInfos = laboratory.getMembers();
-        if (memberInfos.stream().noneMatch(m -> m.getMemberId().equals(memberId))) {
+        Query memberQuery = new Query(laboratoryReferenceRepository.belongTo(labId, LaboratoryReferenceEnum.MEMBER))
+                .addCriteria(Criteria.where("_id").is(new ObjectId(memberId)));
+        if (!mongoTemplate.exists(memberQuery, MemberInfo.class)) {
             throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Member ID is not exist in Laboratory");
         }
-        List<Project> projectList = laboratory.getProjects();
-        projectList.stream().map(Project::getProjectId).forEach((projectId) -> this.removeMemberFromProject(projectId, memberId));
-        memberInfos.removeIf(v -> v.getMemberId().equals(memberId));
-        laboratory.setMembers(memberInfos);
+        projectService.removeAccountFromLaboratoryProjects(labId, memberInfo.getAccountId());
         try {
             memberInfoRepository.deleteById(memberId);
             log.info("Delete member success");
@@ -174,10 +214,13 @@ public class MemberServiceImpl implements MemberInfoService {
             throw new BusinessException("Can't delete member in database  " + ex.getMessage());
         }
         try {
-            laboratoryRepository.save(laboratory);
+            laboratoryUpdateRepository.pullReference(labId, LaboratoryReferenceEnum.MEMBER, memberId);
             log.info("Save laboratory success");
         } catch (Exception ex) {
             throw new BusinessException("Can't save laboratory in database  " + ex.getMessage());
         }
+        accountMembershipRepository.remove(memberInfo.getAccountId(), labId);
+        permissionService.evictLaboratoryRoles(labId);
+        permissionService.evictAccountRoles(memberInfo.getAccountId());
     }
 }
@@ -0,0 +1,109 @@
+package vn.edu.fpt.laboratory.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import vn.edu.fpt.laboratory.constant.LaboratoryReferenceEnum;
+import vn.edu.fpt.laboratory.entity.MemberInfo;
+import vn.edu.fpt.laboratory.repository.LaboratoryReferenceRepository;
+import vn.edu.fpt.laboratory.service.PermissionService;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PermissionServiceImpl implements PermissionService {
+
+    private static final String REQUEST_ROLES_ATTRIBUTE = PermissionServiceImpl.class.getName() + ".roles";
+    private static final String LABORATORY_PREFIX = "laboratory:";
+    private static final String PROJECT_PREFIX = "project:";
+
+    private final MongoTemplate mongoTemplate;
+    private final LaboratoryReferenceRepository laboratoryReferenceRepository;
+    private final Cache<String, Optional<String>> memberRoleCache;
+
+    @Override
+    public Optional<String> getLaboratoryRole(String laboratoryId, String accountId) {
+        return getRole(LABORATORY_PREFIX + laboratoryId + ":" + accountId,
+                key -> findRole(laboratoryReferenceRepository.belongTo(laboratoryId, LaboratoryReferenceEnum.MEMBER), accountId));
+    }
+
+    @Override
+    public Optional<String> getProjectRole(String projectId, String accountId) {
+        return getRole(PROJECT_PREFIX + projectId + ":" + accountId,
+                key -> findRole(laboratoryReferenceRepository.memberOfProject(projectId), accountId));
+    }
+
+    @Override
+    public void evictLaboratoryRoles(String laboratoryId) {
+        evict(LABORATORY_PREFIX + laboratoryId + ":");
+    }
+
+    @Override
+    public void evictProjectRoles(String projectId) {
+        evict(PROJECT_PREFIX + projectId + ":");
+    }
+
+    @Override
+    public void evictAccountRoles(String accountId) {
+        String suffix = ":" + accountId;
+        evict(v -> v.endsWith(suffix));
+    }
+
+    private void evict(String prefix) {
+        evict(v -> v.startsWith(prefix));
+    }
+
+    private void evict(Predicate<String> keyFilter) {
+        memberRoleCache.asMap().keySet().removeIf(keyFilter);
+        Map<String, Optional<String>> requestRoles = getRequestRoles();
+        if (Objects.nonNull(requestRoles)) {
+            requestRoles.keySet().removeIf(keyFilter);
+        }
+    }
+
+    /**
+     * Request memo first, then the shared cache, then mongo. Outside of a request only the shared cache is used.
+     */
+    private Optional<String> getRole(String key, Function<String, Optional<String>> loader) {
+        Map<String, Optional<String>> requestRoles = getRequestRoles();
+        if (Objects.isNull(requestRoles)) {
+            return memberRoleCache.get(key, loader);
+        }
+        return requestRoles.computeIfAbsent(key, v -> memberRoleCache.get(v, loader));
+    }
+
+    private Optional<String> findRole(Criteria belongTo, String accountId) {
+        Query query = new Query(belongTo);
+        query.addCriteria(Criteria.where("account_id").is(accountId));
+        query.fields().include("role");
+        return Optional.ofNullable(mongoTemplate.findOne(query, MemberInfo.class))
+                .map(MemberInfo::getRole);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Optional<String>> getRequestRoles() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (Objects.isNull(attributes)) {
+            return null;
+        }
+        Map<String, Optional<String>> roles = (Map<String, Optional<String>>) attributes.getAttribute(REQUEST_ROLES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (Objects.isNull(roles)) {
+            roles = new HashMap<>();
+            attributes.setAttribute(REQUEST_ROLES_ATTRIBUTE, roles, RequestAttributes.SCOPE_REQUEST);
+        }
+        return roles;
+    }
+}
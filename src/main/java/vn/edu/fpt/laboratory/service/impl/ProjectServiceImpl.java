@@ -3,26 +3,38 @@ package vn.edu.fpt.laboratory.service.impl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import vn.edu.fpt.laboratory.constant.StatisticMetricEnum;
+import vn.edu.fpt.laboratory.dto.event.StatisticChangedEvent;
 import vn.edu.fpt.laboratory.config.kafka.producer.GenerateProjectAppProducer;
+import vn.edu.fpt.laboratory.config.kafka.producer.ModifyMembersToWorkspaceProducer;
+import vn.edu.fpt.laboratory.constant.CountModeEnum;
+import vn.edu.fpt.laboratory.constant.LaboratoryReferenceEnum;
 import vn.edu.fpt.laboratory.constant.LaboratoryRoleEnum;
 import vn.edu.fpt.laboratory.constant.ProjectRoleEnum;
 import vn.edu.fpt.laboratory.constant.ResponseStatusEnum;
 import vn.edu.fpt.laboratory.constant.RoleInLaboratoryEnum;
+import vn.edu.fpt.laboratory.constant.TypeaheadTypeEnum;
 import vn.edu.fpt.laboratory.dto.cache.UserInfo;
 import vn.edu.fpt.laboratory.dto.common.GeneralResponse;
 import vn.edu.fpt.laboratory.dto.common.MemberInfoResponse;
+import vn.edu.fpt.laboratory.dto.common.CursorPage;
+import vn.edu.fpt.laboratory.dto.common.PageResult;
 import vn.edu.fpt.laboratory.dto.common.PageableResponse;
+import vn.edu.fpt.laboratory.dto.common.ProjectMemberRemoval;
 import vn.edu.fpt.laboratory.dto.common.UserInfoResponse;
 import vn.edu.fpt.laboratory.dto.event.GenerateProjectAppEvent;
+import vn.edu.fpt.laboratory.dto.event.ModifyMembersToWorkspaceEvent;
 import vn.edu.fpt.laboratory.dto.request.member.GetMemberNotInProjectRequest;
 import vn.edu.fpt.laboratory.dto.request.project._CreateProjectRequest;
 import vn.edu.fpt.laboratory.dto.request.project._GetProjectRequest;
@@ -36,14 +48,23 @@ import vn.edu.fpt.laboratory.entity.Laboratory;
 import vn.edu.fpt.laboratory.entity.MemberInfo;
 import vn.edu.fpt.laboratory.entity.Project;
 import vn.edu.fpt.laboratory.exception.BusinessException;
+import vn.edu.fpt.laboratory.repository.AccountMembershipRepository;
 import vn.edu.fpt.laboratory.repository.BaseMongoRepository;
+import vn.edu.fpt.laboratory.repository.LaboratoryReferenceRepository;
 import vn.edu.fpt.laboratory.repository.LaboratoryRepository;
+import vn.edu.fpt.laboratory.repository.LaboratoryUpdateRepository;
 import vn.edu.fpt.laboratory.repository.MemberInfoRepository;
+import vn.edu.fpt.laboratory.repository.PagedQueryRepository;
+import vn.edu.fpt.laboratory.repository.ProjectMemberRepository;
 import vn.edu.fpt.laboratory.repository.ProjectRepository;
+import vn.edu.fpt.laboratory.service.PermissionService;
 import vn.edu.fpt.laboratory.service.ProjectService;
+import vn.edu.fpt.laboratory.service.TypeaheadService;
+import vn.edu.fpt.laboratory.service.UserInfoLoader;
 import vn.edu.fpt.laboratory.service.UserInfoService;
 import vn.edu.fpt.laboratory.utils.AuditorUtils;
 
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -65,8 +86,18 @@ public class ProjectServiceImpl implements ProjectService {
     private final ProjectRepository projectRepository;
     private final MemberInfoRepository memberInfoRepository;
     private final UserInfoService userInfoService;
+    private final UserInfoLoader userInfoLoader;
     private final MongoTemplate mongoTemplate;
     private final GenerateProjectAppProducer generateProjectAppProducer;
+    private final LaboratoryReferenceRepository laboratoryReferenceRepository;
+    private final LaboratoryUpdateRepository laboratoryUpdateRepository;
+    private final PagedQueryRepository pagedQueryRepository;
+    private final TypeaheadService typeaheadService;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final PermissionService permissionService;
+    private final AccountMembershipRepository accountMembershipRepository;
+    private final ProjectMemberRepository projectMemberRepository;
+    private final ModifyMembersToWorkspaceProducer modifyMembersToWorkspaceProducer;
 
     @Override
     @Transactional
@@ -76,17 +107,16 @@ public class ProjectServiceImpl implements ProjectService {
         Laboratory laboratory = laboratoryRepository.findById(labId)
                 .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist when create project: "+ labId));
 
-        Optional<Project> projectInDb = laboratory.getProjects().stream().filter(v->v.getProjectName().equals(request.getProjectName())).findFirst();
-        if (projectInDb.isPresent()) {
+        if (existsProjectName(labId, request.getProjectName())) {
             throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Project name already exist");
         }
 
         String accountId = auditorUtils.getAccountId();
 
-        MemberInfo memberInfoInLab = laboratory.getMembers().stream().filter(m -> m.getAccountId().equals(accountId)).findAny()
+        String roleInLab = permissionService.getLaboratoryRole(labId, accountId)
                 .orElseThrow(() -> new BusinessException("Account ID not contain in repository member"));
 
-        if (!memberInfoInLab.getRole().equals(LaboratoryRoleEnum.OWNER.getRole()) && !memberInfoInLab.getRole().equals(LaboratoryRoleEnum.MANAGER.getRole())) {
+        if (!roleInLab.equals(LaboratoryRoleEnum.OWNER.getRole()) && !roleInLab.equals(LaboratoryRoleEnum.MANAGER.getRole())) {
             throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Invalid role for create project");
         }
 
@@ -109,6 +139,7 @@ public class ProjectServiceImpl implements ProjectService {
                 .toDate(request.getToDate())
                 .ownerBy(memberInfo)
                 .members(List.of(memberInfo))
+                .laboratoryId(labId)
                 .build();
 
         try {
@@ -117,17 +148,26 @@ public class ProjectServiceImpl implements ProjectService {
         } catch (Exception ex) {
             throw new BusinessException("Can't create project in database: " + ex.getMessage());
         }
-
-        List<Project> currentProject = laboratory.getProjects();
-        currentProject.add(project);
-        laboratory.setProjects(currentProject);
+        try {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(new ObjectId(memberInfo.getMemberId()))),
+                    Update.update("project_id", project.getProjectId()), MemberInfo.class);
+        } catch (Exception ex) {
+            throw new BusinessException("Can't update owner of project in database: " + ex.getMessage());
+        }
+        accountMembershipRepository.addProject(accountId, labId, project.getProjectId());
 
         try {
-            laboratoryRepository.save(laboratory);
+            laboratoryUpdateRepository.pushReference(labId, LaboratoryReferenceEnum.PROJECT, project.getProjectId());
             log.info("Update laboratory success");
         } catch (Exception ex) {
             throw new BusinessException("Can't update laboratory in database: " + ex.getMessage());
         }
+        applicationEventPublisher.publishEvent(StatisticChangedEvent.builder()
+                .increment(StatisticMetricEnum.PROJECT, 1L)
+                .increment(StatisticMetricEnum.PROJECT_HOURS, projectHours(project))
+                .increment(StatisticMetricEnum.MEMBER, 1L)
+                .build());
+        typeaheadService.put(TypeaheadTypeEnum.PROJECT, project.getProjectId(), project.getProjectName(), labId);
 
         generateProjectAppProducer.sendMessage(GenerateProjectAppEvent.builder()
                         .projectId(project.getProjectId())
@@ -142,28 +182,29 @@ public class ProjectServiceImpl implements ProjectService {
 
     @Override
     public void updateProject(String labId, String projectId, _UpdateProjectRequest request) {
-        Laboratory laboratory = laboratoryRepository.findById(labId)
-                .orElseThrow(()-> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist when update project: "+ labId));
+        if (!laboratoryRepository.existsById(labId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist when update project: "+ labId);
+        }
         Project project = projectRepository.findById(projectId)
                 .orElseThrow(()-> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Project ID not exist when update project: "+ projectId));
-        List<Project> projects = laboratory.getProjects();
 
-        if (projects.stream().noneMatch(m -> m.getProjectId().equals(projectId))) {
+        Query projectQuery = new Query(laboratoryReferenceRepository.belongTo(labId, LaboratoryReferenceEnum.PROJECT));
+        projectQuery.addCriteria(Criteria.where("_id").is(projectId));
+        if (!mongoTemplate.exists(projectQuery, Project.class)) {
             throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory not contain this project");
         }
 
         String accountId = userInfoService.getAccountId();
 
-        MemberInfo memberInfo = project.getMembers().stream()
-                .filter(v -> v.getAccountId().equals(accountId))
-                .findAny().orElseThrow(()-> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Account Id not in project"));
+        String role = permissionService.getProjectRole(projectId, accountId)
+                .orElseThrow(()-> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Account Id not in project"));
 
-        if(!memberInfo.getRole().equals("OWNER") && !memberInfo.getRole().equals("MANAGER")){
+        if(!role.equals(ProjectRoleEnum.OWNER.getRole()) && !role.equals(ProjectRoleEnum.MANAGER.getRole())){
             throw new BusinessException("You don't have permission to update role");
         }
         if (!project.getProjectName().equals(request.getProjectName())) {
             if (Objects.nonNull(request.getProjectName())) {
-                if (projects.stream().anyMatch(m -> m.getProjectName().equals(request.getProjectName()))) {
+                if (existsProjectName(labId, request.getProjectName())) {
                     throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Project name is already exist");
                 } else {
                     project.setProjectName(request.getProjectName());
@@ -184,34 +225,34 @@ public class ProjectServiceImpl implements ProjectService {
         } catch (Exception ex) {
             throw new BusinessException("Can't save project to database: " + ex.getMessage());
         }
+        typeaheadService.put(TypeaheadTypeEnum.PROJECT, projectId, project.getProjectName(), labId);
+    }
+
+    private boolean existsProjectName(String labId, String projectName) {
+        Query query = new Query(laboratoryReferenceRepository.belongTo(labId, LaboratoryReferenceEnum.PROJECT));
+        query.addCriteria(Criteria.where("project_name").is(projectName));
+        return mongoTemplate.exists(query, Project.class);
     }
 
     @Override
     public void deleteProject(String labId, String projectId) {
-        Laboratory laboratory = laboratoryRepository.findById(labId)
-                .orElseThrow(()-> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist when delete project: "+ labId));
+        if (!laboratoryRepository.existsById(labId)) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist when delete project: "+ labId);
+        }
 
-        List<Project> projects = laboratory.getProjects();
         String accountId = userInfoService.getAccountId();
-        Project project = projects.stream()
-                .filter(v -> v.getProjectId().equals(projectId))
-                .findAny()
+        Query projectQuery = new Query(laboratoryReferenceRepository.belongTo(labId, LaboratoryReferenceEnum.PROJECT));
+        projectQuery.addCriteria(Criteria.where("_id").is(projectId));
+        projectQuery.fields().include("project_name");
+        Project project = Optional.ofNullable(mongoTemplate.findOne(projectQuery, Project.class))
                 .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Project Id not exist"));
-        MemberInfo memberInfo = project.getMembers().stream()
-                .filter(v -> v.getAccountId().equals(accountId))
-                .findAny()
+        String role = permissionService.getProjectRole(projectId, accountId)
                 .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Account Id not in project member"));
-        if(!memberInfo.getRole().equals("OWNER")){
+        if(!role.equals(ProjectRoleEnum.OWNER.getRole())){
             throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "You don't have permission to delete project");
         }
-        if(projects.removeIf(v -> v.getProjectId().equals(projectId))){
-            log.info("Delete success");
-        }else{
-            log.error("Can't delete project");
-        }
-        laboratory.setProjects(projects);
         try {
-            laboratoryRepository.save(laboratory);
+            laboratoryUpdateRepository.pullReference(labId, LaboratoryReferenceEnum.PROJECT, projectId);
         } catch (Exception ex) {
             throw new BusinessException("Can't update laboratory in database");
         }
@@ -221,6 +262,29 @@ public class ProjectServiceImpl implements ProjectService {
         } catch (Exception ex) {
             throw new BusinessException("Can't delete project in database");
         }
+        onProjectDeleted(projectId);
+    }
+
+    @Override
+    public void removeAccountFromLaboratoryProjects(String labId, String accountId) {
+        ProjectMemberRemoval removal = projectMemberRepository.removeAccountFromLaboratoryProjects(labId, accountId);
+        removal.getDeletedProjectIds().forEach(this::onProjectDeleted);
+        for (String projectId : removal.getAffectedProjectIds()) {
+            // also drops the cached role of a member who became owner
+            permissionService.evictProjectRoles(projectId);
+            accountMembershipRepository.removeProject(accountId, projectId);
+            modifyMembersToWorkspaceProducer.sendMessage(ModifyMembersToWorkspaceEvent.builder()
+                    .workspaceId(projectId)
+                    .accountId(accountId)
+                    .type("DELETE")
+                    .build());
+        }
+    }
+
+    private void onProjectDeleted(String projectId) {
+        typeaheadService.remove(TypeaheadTypeEnum.PROJECT, projectId);
+        accountMembershipRepository.removeProject(projectId);
+        permissionService.evictProjectRoles(projectId);
     }
 
     @Override
@@ -237,6 +301,7 @@ public class ProjectServiceImpl implements ProjectService {
         if (Objects.nonNull(request.getDescription())) {
             query.addCriteria(Criteria.where("description").regex(request.getDescription()));
         }
+        BaseMongoRepository.addCriteriaWithKeyword(query, request.getKeyword());
 
         query.addCriteria(Criteria.where("start_date").gte(request.getStartDateFrom()).lte(request.getStartDateTo()));
 
@@ -244,16 +309,16 @@ public class ProjectServiceImpl implements ProjectService {
 
         BaseMongoRepository.addCriteriaWithAuditable(query, request);
 
-        Long totalElements = mongoTemplate.count(query, Project.class);
-
-        BaseMongoRepository.addCriteriaWithPageable(query, request);
-        BaseMongoRepository.addCriteriaWithSorted(query, request);
+        if (request.isCursorMode()) {
+            CursorPage<Project> page = BaseMongoRepository.findWithCursor(mongoTemplate, query, request, Project.class);
+            return new PageableResponse<>(request, page.getNextCursor(), page.getItems().stream().map(this::convertProjectToGetProjectResponse).collect(Collectors.toList()));
+        }
 
-        List<Project> projects = mongoTemplate.find(query, Project.class);
+        PageResult<Project> page = pagedQueryRepository.findPage(query, request, Project.class, CountModeEnum.CACHED);
 
-        List<GetProjectResponse> getProjectResponses = projects.stream().map(this::convertProjectToGetProjectResponse).collect(Collectors.toList());
+        List<GetProjectResponse> getProjectResponses = page.getItems().stream().map(this::convertProjectToGetProjectResponse).collect(Collectors.toList());
 
-        return new PageableResponse<>(request, totalElements, getProjectResponses);
+        return new PageableResponse<>(request, page.getTotalElements(), getProjectResponses);
     }
 
     @Override
@@ -275,6 +340,7 @@ public class ProjectServiceImpl implements ProjectService {
         Project project = projectRepository.findById(projectId)
                 .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Project ID not exist when get member in project: "+ projectId));
         List<MemberInfo> memberInfos = project.getMembers();
+        userInfoLoader.prime(memberInfos.stream().map(MemberInfo::getAccountId).collect(Collectors.toList()));
         List<GetMemberResponse> getMemberResponses = memberInfos.stream().map(this::convertMemberToGetMemberInfoResponse).collect(Collectors.toList());
         return new PageableResponse<>(getMemberResponses);
     }
@@ -285,7 +351,7 @@ public class ProjectServiceImpl implements ProjectService {
                 .role(memberInfo.getRole())
                 .userInfo(UserInfoResponse.builder()
                         .accountId(memberInfo.getAccountId())
-                        .userInfo(userInfoService.getUserInfo(memberInfo.getAccountId()))
+                        .userInfo(userInfoLoader.load(memberInfo.getAccountId()))
                         .build())
                 .build();
     }
@@ -308,6 +374,10 @@ public class ProjectServiceImpl implements ProjectService {
                 .filter(v -> v.getAccountId().equals(accountId))
                 .findFirst()
                 .orElse(null);
+        List<String> accountIds = project.getMembers().stream().map(MemberInfo::getAccountId).collect(Collectors.toList());
+        accountIds.add(project.getCreatedBy());
+        accountIds.add(project.getLastModifiedBy());
+        userInfoLoader.prime(accountIds);
         return GetProjectDetailResponse.builder()
                 .projectId(project.getProjectId())
                 .projectName(project.getProjectName())
@@ -319,12 +389,12 @@ public class ProjectServiceImpl implements ProjectService {
                         .collect(Collectors.toList()))
                 .createdBy(UserInfoResponse.builder()
                         .accountId(project.getCreatedBy())
-                        .userInfo(userInfoService.getUserInfo(project.getCreatedBy()))
+                        .userInfo(userInfoLoader.load(project.getCreatedBy()))
                         .build())
                 .createdDate(project.getCreatedDate())
                 .lastModifiedBy(UserInfoResponse.builder()
                         .accountId(project.getLastModifiedBy())
-                        .userInfo(userInfoService.getUserInfo(project.getLastModifiedBy()))
+                        .userInfo(userInfoLoader.load(project.getLastModifiedBy()))
                         .build())
                 .lastModifiedDate(project.getLastModifiedDate())
                 .build();
@@ -336,19 +406,19 @@ public class ProjectServiceImpl implements ProjectService {
                 .orElseThrow(() -> new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Project id not found"));
 
         List<MemberInfo> memberInfos = project.getMembers();
-        Optional<Laboratory> lab = laboratoryRepository.findAll().stream().filter(v->v.getProjects().stream().anyMatch(t->t.getProjectId().equals(projectId))).findFirst();
-        if (lab.isEmpty()) {
+        String laboratoryId = findLaboratoryIdOfProject(project);
+        if (Objects.isNull(laboratoryId)) {
             throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Project not in any lab");
         }
-        if (memberInfos.size() == 1) {
-            deleteProject(lab.get().getLaboratoryId(), projectId);
-        }
-
         Optional<MemberInfo> member = memberInfos.stream().filter(v -> v.getMemberId().equals(memberId)).findFirst();
 
         if (member.isEmpty()) {
             throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Member id not found removeMemberFromProject");
         }
+        if (memberInfos.size() == 1) {
+            deleteProject(laboratoryId, projectId);
+            return;
+        }
 
         memberInfos.removeIf(v->v.getMemberId().equals(memberId));
         if (member.get().getRole().equals(RoleInLaboratoryEnum.OWNER.getRole())) {
@@ -376,6 +446,26 @@ public class ProjectServiceImpl implements ProjectService {
         } catch (Exception ex) {
             throw new BusinessException(ResponseStatusEnum.INTERNAL_SERVER_ERROR, "Can't remove member in database");
         }
+        accountMembershipRepository.removeProject(member.get().getAccountId(), projectId);
+        permissionService.evictProjectRoles(projectId);
+    }
+
+    private long projectHours(Project project) {
+        if (Objects.isNull(project.getStartDate()) || Objects.isNull(project.getToDate())) {
+            return 0L;
+        }
+        return Math.max(0L, ChronoUnit.HOURS.between(project.getStartDate().atStartOfDay(), project.getToDate().atStartOfDay()));
+    }
+
+    private String findLaboratoryIdOfProject(Project project) {
+        if (Objects.nonNull(project.getLaboratoryId())) {
+            return project.getLaboratoryId();
+        }
+        // project created before laboratory_id was backfilled
+        Query query = Query.query(Criteria.where("projects.$id").is(new ObjectId(project.getProjectId())));
+        query.fields().include("_id");
+        Laboratory laboratory = mongoTemplate.findOne(query, Laboratory.class);
+        return Objects.isNull(laboratory) ? null : laboratory.getLaboratoryId();
     }
 
     @Override
@@ -397,12 +487,13 @@ public class ProjectServiceImpl implements ProjectService {
         BaseMongoRepository.addCriteriaWithSorted(query, request);
         BaseMongoRepository.addCriteriaWithPageable(query, request);
         List<MemberInfo> memberInfoInLabNotInProject = mongoTemplate.find(query, MemberInfo.class);
+        userInfoLoader.prime(memberInfoInLabNotInProject.stream().map(MemberInfo::getAccountId).collect(Collectors.toList()));
         List<GetMemberNotInProjectResponse> getMemberNotInProjectResponses = memberInfoInLabNotInProject.stream().map(this::convertMemberNotInProject).filter(Objects::nonNull).collect(Collectors.toList());
         return new PageableResponse<>(request, (long)memberIbInLabNotInProject.size(), getMemberNotInProjectResponses);
     }
 
     private GetMemberNotInProjectResponse convertMemberNotInProject(MemberInfo memberInfo){
-        UserInfo userInfo = userInfoService.getUserInfo(memberInfo.getAccountId());
+        UserInfo userInfo = userInfoLoader.load(memberInfo.getAccountId());
         if(Objects.nonNull(userInfo)){
             return GetMemberNotInProjectResponse.builder()
                     .memberId(memberInfo.getMemberId())
@@ -421,7 +512,7 @@ public class ProjectServiceImpl implements ProjectService {
                 .memberId(memberInfo.getMemberId())
                 .role(memberInfo.getRole())
                 .accountId(memberInfo.getAccountId())
-                .userInfo(userInfoService.getUserInfo(memberInfo.getAccountId()))
+                .userInfo(userInfoLoader.load(memberInfo.getAccountId()))
                 .build();
     }
 }
@@ -2,19 +2,37 @@ package vn.edu.fpt.laboratory.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import vn.edu.fpt.laboratory.constant.OrderStatusEnum;
+import vn.edu.fpt.laboratory.constant.ResponseStatusEnum;
+import vn.edu.fpt.laboratory.constant.StatisticMetricEnum;
+import vn.edu.fpt.laboratory.dto.event.StatisticChangedEvent;
+import vn.edu.fpt.laboratory.dto.request.dashboard.GetDailyStatisticRequest;
+import vn.edu.fpt.laboratory.dto.request.dashboard.GetDistinctBorrowerRequest;
+import vn.edu.fpt.laboratory.dto.response.dashboard.GetDailyStatisticResponse;
+import vn.edu.fpt.laboratory.dto.response.dashboard.GetDistinctBorrowerResponse;
 import vn.edu.fpt.laboratory.dto.response.dashboard.GetStatisticsResponse;
-import vn.edu.fpt.laboratory.entity.*;
+import vn.edu.fpt.laboratory.entity.StatisticBucket;
 import vn.edu.fpt.laboratory.exception.BusinessException;
-import vn.edu.fpt.laboratory.repository.*;
+import vn.edu.fpt.laboratory.repository.BorrowerCounterRepository;
+import vn.edu.fpt.laboratory.repository.LaboratoryRepository;
 import vn.edu.fpt.laboratory.service.StatisticService;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 
 @Service
@@ -22,94 +40,143 @@ import java.util.Objects;
 @Slf4j
 public class StatisticServiceImpl implements StatisticService {
 
-    private final StatisticRepository statisticRepository;
+    private static final long MAX_RANGE_DAYS = 366;
+    private static final String BUCKET_COLLECTION = "statistic_buckets";
+
+    private final MongoTemplate mongoTemplate;
+    private final BorrowerCounterRepository borrowerCounterRepository;
     private final LaboratoryRepository laboratoryRepository;
-    private final ProjectRepository projectRepository;
-    private final MaterialRepository materialRepository;
-    private final MemberInfoRepository memberInfoRepository;
-    private final OrderHistoryRepository orderHistoryRepository;
+    private final AtomicReference<GetStatisticsResponse> snapshot = new AtomicReference<>();
 
     @Override
     public GetStatisticsResponse getStatistic() {
-        Statistic statistic = statisticRepository.findTopByOrderByLastModifiedDateDesc();
-        Integer numOfLab = 0;
-        Integer numOfProject = 0;
-        Integer numOfMaterial = 0;
-        Integer numOfMember = 0;
-        Long timeOfProject = Long.valueOf(0);
-        Integer numOfItemBorrowed = 0;
-        LocalDateTime dateTime = LocalDateTime.parse("2022-01-01T00:00:00");
-
-        if (Objects.nonNull(statistic)) {
-            numOfLab = statistic.getNumOfLab();
-            numOfProject = statistic.getNumOfProject();
-            numOfMaterial = statistic.getNumOfMaterial();
-            numOfMember = statistic.getNumOfMember();
-            timeOfProject = statistic.getTotalTimeOfProject();
-            numOfItemBorrowed = statistic.getNumOfMaterialBorrowed();
-            dateTime = statistic.getLastModifiedDate();
+        GetStatisticsResponse statistic = snapshot.get();
+        if (Objects.isNull(statistic)) {
+            refreshSnapshot();
+            statistic = snapshot.get();
         }
+        return statistic;
+    }
 
-        Integer numOfLabOnDay = laboratoryRepository.countByCreatedDateBetween(dateTime, LocalDateTime.now());
-        Integer totalLab = numOfLab + numOfLabOnDay;
-
-        Integer numOfProjectOnDay = projectRepository.countByCreatedDateBetween(dateTime, LocalDateTime.now());
-        Integer totalProject = numOfProject + numOfProjectOnDay;
-
-
-        Integer numOfMaterialOnDay = materialRepository.countByCreatedDateBetween(dateTime, LocalDateTime.now());
-        Integer totalMaterial = numOfMaterial + numOfMaterialOnDay;
-
-
-        Integer numOfMemberOnDay = memberInfoRepository.countByCreatedDateBetween(dateTime, LocalDateTime.now());
-        Integer totalMember = numOfMember + numOfMemberOnDay;
-
-        Long timeOfProjectOnDay = Long.valueOf(0);
-        List<Project> projects = projectRepository.findByCreatedDateBetween(dateTime, LocalDateTime.now());
-        for (Project p : projects) {
-            timeOfProjectOnDay = timeOfProjectOnDay + ChronoUnit.HOURS.between(dateTime, LocalDateTime.now());
+    @Override
+    public List<GetDailyStatisticResponse> getDailyStatistic(GetDailyStatisticRequest request) {
+        validateRange(request.getFrom(), request.getTo());
+        Query query = Query.query(Criteria.where("_id").gte(request.getFrom().toString()).lte(request.getTo().toString()));
+        Map<String, StatisticBucket> buckets = mongoTemplate.find(query, StatisticBucket.class).stream()
+                .collect(Collectors.toMap(StatisticBucket::getBucketId, Function.identity()));
+
+        List<GetDailyStatisticResponse> responses = new ArrayList<>();
+        for (LocalDate day = request.getFrom(); !day.isAfter(request.getTo()); day = day.plusDays(1)) {
+            StatisticBucket bucket = buckets.getOrDefault(day.toString(), StatisticBucket.builder().build());
+            responses.add(GetDailyStatisticResponse.builder()
+                    .day(day)
+                    .numOfLab(bucket.getNumOfLab())
+                    .numOfProject(bucket.getNumOfProject())
+                    .totalTimeOfProject(bucket.getTotalTimeOfProject())
+                    .numOfMaterial(bucket.getNumOfMaterial())
+                    .numOfMember(bucket.getNumOfMember())
+                    .numOfItemBorrowed(bucket.getNumOfMaterialBorrowed())
+                    .build());
         }
-        Long totalTimeOfProject = timeOfProject + timeOfProjectOnDay;
-
+        return responses;
+    }
 
-        List<OrderHistory> orderHistories = orderHistoryRepository.findByStatusAndActuallyReturnBetween(OrderStatusEnum.COMPLETED, dateTime, LocalDateTime.now());
-        Integer numOfItemBorrowedOnDay = 0;
-        for (OrderHistory o : orderHistories) {
-            numOfItemBorrowedOnDay = numOfItemBorrowedOnDay + o.getAmount();
+    @Override
+    public GetDistinctBorrowerResponse getDistinctBorrowers(GetDistinctBorrowerRequest request) {
+        if (Objects.nonNull(request.getLaboratoryId()) && !laboratoryRepository.existsById(request.getLaboratoryId())) {
+            throw new BusinessException(ResponseStatusEnum.BAD_REQUEST, "Laboratory ID not exist");
         }
-        Integer totalItemBorrowed = numOfItemBorrowed + numOfItemBorrowedOnDay;
+        long numOfMemberBorrowed;
+        if (Objects.isNull(request.getFrom()) && Objects.isNull(request.getTo())) {
+            numOfMemberBorrowed = borrowerCounterRepository.count(request.getLaboratoryId());
+        } else {
+            validateRange(request.getFrom(), request.getTo());
+            numOfMemberBorrowed = borrowerCounterRepository.count(request.getLaboratoryId(), request.getFrom(), request.getTo());
+        }
+        return GetDistinctBorrowerResponse.builder()
+                .laboratoryId(request.getLaboratoryId())
+                .from(request.getFrom())
+                .to(request.getTo())
+                .numOfMemberBorrowed(numOfMemberBorrowed)
+                .build();
+    }
 
-        //Integer numOfMemberBorrowed = statistic.getNumOfMemberBorrowed();
-        Integer totalMemberBorrowed = orderHistoryRepository.countCreateByInOrderHistoriesByActuallyReturnBetween(dateTime, LocalDateTime.now()).size();
-        //Integer totalMemberBorrowed = numOfMemberBorrowed + numOfMemberBorrowedOnDay;
+    @Override
+    @Async
+    @EventListener
+    public void recordChange(StatisticChangedEvent event) {
+        LocalDate day = event.getOccurredAt().toLocalDate();
+        if (Objects.nonNull(event.getIncrements()) && !event.getIncrements().isEmpty()) {
+            Update update = new Update().setOnInsert("day", day);
+            event.getIncrements().forEach((metric, amount) -> update.inc(metric.getField(), amount));
+            try {
+                mongoTemplate.upsert(Query.query(Criteria.where("_id").is(day.toString())), update, StatisticBucket.class);
+            } catch (Exception ex) {
+                log.error("Can't record statistic change {}: {}", event, ex.getMessage());
+            }
+        }
+        if (Objects.nonNull(event.getBorrowerId())) {
+            try {
+                borrowerCounterRepository.add(event.getLaboratoryId(), day, event.getBorrowerId());
+            } catch (Exception ex) {
+                log.error("Can't count borrower of {}: {}", event, ex.getMessage());
+            }
+        }
+    }
 
-        if (Objects.isNull(statistic)) statistic = new Statistic();
-        statistic.setNumOfLab(totalLab);
-        statistic.setNumOfMember(totalMember);
-        statistic.setNumOfProject(totalProject);
-        statistic.setTotalTimeOfProject(totalTimeOfProject);
-        statistic.setNumOfMaterial(totalMaterial);
-        statistic.setNumOfMaterialBorrowed(totalItemBorrowed);
-        statistic.setNumOfMemberBorrowed(totalMemberBorrowed);
+    @Override
+    @Scheduled(fixedDelayString = "${app.statistic.refresh-interval:60000}")
+    public void refreshSnapshot() {
+        GroupOperation group = Aggregation.group();
+        for (StatisticMetricEnum metric : StatisticMetricEnum.values()) {
+            group = group.sum(metric.getField()).as(metric.getField());
+        }
+        Document totals = mongoTemplate.aggregate(Aggregation.newAggregation(group), BUCKET_COLLECTION, Document.class)
+                .getUniqueMappedResult();
+        Map<StatisticMetricEnum, Long> values = new EnumMap<>(StatisticMetricEnum.class);
+        for (StatisticMetricEnum metric : StatisticMetricEnum.values()) {
+            values.put(metric, Objects.isNull(totals) ? 0L : getLong(totals, metric.getField()));
+        }
 
+        GetStatisticsResponse previous = snapshot.get();
+        Integer numOfMemberBorrowed = Objects.isNull(previous) ? 0 : previous.getNumOfMemberBorrowed();
         try {
-            statisticRepository.save(statistic);
-            log.info("Update statistic to database success");
+            numOfMemberBorrowed = (int) borrowerCounterRepository.count(null);
         } catch (Exception ex) {
-            throw new BusinessException("Can't Update statistic in database: " + ex.getMessage());
+            log.error("Can't count distinct borrowers: {}", ex.getMessage());
         }
 
-        GetStatisticsResponse response = GetStatisticsResponse.builder()
-                .numOfLab(totalLab)
-                .numOfProject(totalProject)
-                .numOfMaterial(totalMaterial)
-                .avgProjectInLab(totalProject*1.0/totalLab)
-                .avgMemberInLab(totalMember*1.0/totalLab)
-                .avgMemberInProject(totalMember*1.0/totalProject)
-                .avgTimeOfProject(totalTimeOfProject*1.0/totalProject)
-                .numOfItemBorrowed(totalItemBorrowed)
-                .numOfMemberBorrowed(totalMemberBorrowed)
-                .build();
-        return response;
+        long numOfLab = values.get(StatisticMetricEnum.LABORATORY);
+        long numOfProject = values.get(StatisticMetricEnum.PROJECT);
+        long numOfMember = values.get(StatisticMetricEnum.MEMBER);
+        snapshot.set(GetStatisticsResponse.builder()
+                .numOfLab((int) numOfLab)
+                .numOfProject((int) numOfProject)
+                .numOfMaterial(values.get(StatisticMetricEnum.MATERIAL).intValue())
+                .avgProjectInLab(average(numOfProject, numOfLab))
+                .avgMemberInLab(average(numOfMember, numOfLab))
+                .avgMemberInProject(average(numOfMember, numOfProject))
+                .avgTimeOfProject(average(values.get(StatisticMetricEnum.PROJECT_HOURS), numOfProject))
+                .numOfItemBorrowed(values.get(StatisticMetricEnum.MATERIAL_BORROWED).intValue())
+                .numOfMemberBorrowed(numOfMemberBorrowed)
+                .build());
+    }
+
+    private void validateRange(LocalDate from, LocalDate to) {
+        if (Objects.isNull(from) || Objects.isNull(to) || to.isBefore(from)) {
+            throw new BusinessException(ResponseStatusEnum.VALIDATION_ERROR, "Date range is invalid");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+            throw new BusinessException(ResponseStatusEnum.VALIDATION_ERROR, "Date range must not exceed " + MAX_RANGE_DAYS + " days");
+        }
+    }
+
+    private long getLong(Document document, String field) {
+        Object value = document.get(field);
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    private Double average(long total, long count) {
+        return count == 0 ? 0.0 : total * 1.0 / count;
     }
 }
@@ -1,5 +1,6 @@
 package vn.edu.fpt.laboratory.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import lombok.RequiredArgsConstructor;
@@ -11,10 +12,13 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Service;
+import vn.edu.fpt.laboratory.dto.cache.VerifiedToken;
 import vn.edu.fpt.laboratory.service._TokenService;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -30,14 +34,28 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class TokenServiceImpl implements _TokenService {
 
+    private final Cache<String, VerifiedToken> verifiedTokenCache;
+
     private static String SECRET_KEY;
+    private JwtParser jwtParser;
+
     @Value("${app.security.secret-key}")
     private void setSecretKey(String secretKey){
         SECRET_KEY = secretKey;
+        jwtParser = Jwts
+                .parserBuilder()
+                .setSigningKey(getSigningKey())
+                .build();
     }
 
     @Override
     public Optional<Authentication> getAuthenticationFromToken(String token) {
+        String tokenHash = hash(token);
+        VerifiedToken verifiedToken = verifiedTokenCache.getIfPresent(tokenHash);
+        if (Objects.nonNull(verifiedToken) && verifiedToken.getExpiresAt() > System.currentTimeMillis()) {
+            return Optional.of(verifiedToken.getAuthentication());
+        }
+
         Jws<Claims> jwsClaims = validateToken(token);
         if (jwsClaims == null) {
             return Optional.empty();
@@ -61,7 +79,9 @@ public class TokenServiceImpl implements _TokenService {
         Collection<? extends GrantedAuthority> grantedAuthorities = convertToAuthority(authorities);
 
         User principal = new User(id, "", grantedAuthorities);
-        return Optional.of(new UsernamePasswordAuthenticationToken(principal, token, grantedAuthorities));
+        Authentication authentication = new UsernamePasswordAuthenticationToken(principal, token, grantedAuthorities);
+        verifiedTokenCache.put(tokenHash, new VerifiedToken(authentication, claims.get(Claims.EXPIRATION, Long.class)));
+        return Optional.of(authentication);
 
     }
 
@@ -98,7 +118,7 @@ public class TokenServiceImpl implements _TokenService {
 
     private Jws<Claims> validateToken(String token) {
         try {
-            return getJwtParser().parseClaimsJws(token);
+            return jwtParser.parseClaimsJws(token);
         }catch (Exception ex){
             return null;
         }
@@ -109,10 +129,12 @@ public class TokenServiceImpl implements _TokenService {
         return Keys.hmacShaKeyFor(keyBytes);
     }
 
-    private static JwtParser getJwtParser(){
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build();
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
     }
 }
@@ -0,0 +1,155 @@
+package vn.edu.fpt.laboratory.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import vn.edu.fpt.laboratory.dto.response.material.GetTrendingMaterialResponse;
+import vn.edu.fpt.laboratory.entity.Material;
+import vn.edu.fpt.laboratory.entity.TrendingMaterialCheckpoint;
+import vn.edu.fpt.laboratory.repository.TrendingMaterialCheckpointRepository;
+import vn.edu.fpt.laboratory.service.TrendingMaterialService;
+import vn.edu.fpt.laboratory.utils.CountMinSketch;
+import vn.edu.fpt.laboratory.utils.TopKTracker;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TrendingMaterialServiceImpl implements TrendingMaterialService {
+
+    private static final String GLOBAL_SCOPE = "global";
+    // counters are scaled so decaying a single order does not truncate it to zero
+    private static final long ORDER_WEIGHT = 1000L;
+
+    private final TrendingMaterialCheckpointRepository trendingMaterialCheckpointRepository;
+    private final MongoTemplate mongoTemplate;
+    private final Map<String, TopKTracker> trackers = new ConcurrentHashMap<>();
+    private final Map<String, String> materialNames = new ConcurrentHashMap<>();
+
+    @Value("${app.trending.size:10}")
+    private Integer size;
+    @Value("${app.trending.sketch-width:512}")
+    private Integer sketchWidth;
+    @Value("${app.trending.sketch-depth:4}")
+    private Integer sketchDepth;
+    @Value("${app.trending.decay:0.98}")
+    private Double decay;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        try {
+            for (TrendingMaterialCheckpoint checkpoint : trendingMaterialCheckpointRepository.findAll()) {
+                if (!sketchWidth.equals(checkpoint.getWidth()) || !sketchDepth.equals(checkpoint.getDepth())
+                        || Objects.isNull(checkpoint.getCounts()) || checkpoint.getCounts().size() != sketchWidth * sketchDepth) {
+                    log.warn("Skip trending checkpoint {} saved with another sketch dimension", checkpoint.getScope());
+                    continue;
+                }
+                long[] counts = checkpoint.getCounts().stream().mapToLong(Long::longValue).toArray();
+                TopKTracker tracker = new TopKTracker(size, CountMinSketch.restore(sketchWidth, sketchDepth, counts));
+                tracker.restore(Objects.requireNonNullElse(checkpoint.getLeaders(), List.of()));
+                trackers.put(checkpoint.getScope(), tracker);
+            }
+            resolveMaterialNames(trackers.values().stream()
+                    .flatMap(v -> v.top().stream())
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toSet()));
+            log.info("Restore {} trending material trackers", trackers.size());
+        } catch (Exception ex) {
+            log.error("Can't restore trending materials: {}", ex.getMessage());
+        }
+    }
+
+    @Override
+    public void recordApproval(String laboratoryId, String materialId) {
+        if (Objects.isNull(materialId)) {
+            return;
+        }
+        getTracker(GLOBAL_SCOPE).add(materialId, ORDER_WEIGHT);
+        if (Objects.nonNull(laboratoryId)) {
+            getTracker(laboratoryId).add(materialId, ORDER_WEIGHT);
+        }
+    }
+
+    @Override
+    public List<GetTrendingMaterialResponse> getTrendingMaterials(String laboratoryId) {
+        TopKTracker tracker = trackers.get(Objects.requireNonNullElse(laboratoryId, GLOBAL_SCOPE));
+        if (Objects.isNull(tracker)) {
+            return List.of();
+        }
+        List<Map.Entry<String, Long>> top = tracker.top();
+        // a material that just entered the top has its name read here, once, instead of on the approval
+        resolveMaterialNames(top.stream().map(Map.Entry::getKey).collect(Collectors.toList()));
+        return top.stream()
+                .map(v -> GetTrendingMaterialResponse.builder()
+                        .materialId(v.getKey())
+                        .materialName(materialNames.get(v.getKey()))
+                        .trendingScore(v.getValue() * 1.0 / ORDER_WEIGHT)
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.trending.checkpoint-interval:300000}", initialDelayString = "${app.trending.checkpoint-interval:300000}")
+    public void checkpoint() {
+        if (trackers.isEmpty()) {
+            return;
+        }
+        List<TrendingMaterialCheckpoint> checkpoints = new ArrayList<>();
+        for (Map.Entry<String, TopKTracker> entry : trackers.entrySet()) {
+            TopKTracker tracker = entry.getValue();
+            tracker.decay(decay);
+            CountMinSketch sketch = tracker.snapshotSketch();
+            checkpoints.add(TrendingMaterialCheckpoint.builder()
+                    .scope(entry.getKey())
+                    .width(sketch.getWidth())
+                    .depth(sketch.getDepth())
+                    .counts(Arrays.stream(sketch.getCounts()).boxed().collect(Collectors.toList()))
+                    .leaders(tracker.top().stream().map(Map.Entry::getKey).collect(Collectors.toList()))
+                    .lastModifiedDate(LocalDateTime.now())
+                    .build());
+        }
+        try {
+            trendingMaterialCheckpointRepository.saveAll(checkpoints);
+        } catch (Exception ex) {
+            log.error("Can't save trending material checkpoint: {}", ex.getMessage());
+        }
+        Set<String> leaders = checkpoints.stream().flatMap(v -> v.getLeaders().stream()).collect(Collectors.toSet());
+        materialNames.keySet().retainAll(leaders);
+        resolveMaterialNames(leaders);
+    }
+
+    private TopKTracker getTracker(String scope) {
+        return trackers.computeIfAbsent(scope, v -> new TopKTracker(size, new CountMinSketch(sketchWidth, sketchDepth)));
+    }
+
+    private void resolveMaterialNames(Collection<String> materialIds) {
+        List<ObjectId> missing = materialIds.stream()
+                .filter(v -> !materialNames.containsKey(v))
+                .filter(ObjectId::isValid)
+                .distinct()
+                .map(ObjectId::new)
+                .collect(Collectors.toList());
+        if (missing.isEmpty()) {
+            return;
+        }
+        Query query = Query.query(Criteria.where("_id").in(missing));
+        query.fields().include("material_name");
+        try {
+            mongoTemplate.find(query, Material.class).forEach(v -> materialNames.put(v.getMaterialId(), Objects.requireNonNullElse(v.getMaterialName(), "")));
+        } catch (Exception ex) {
+            log.error("Can't resolve trending material names: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package vn.edu.fpt.laboratory.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import vn.edu.fpt.laboratory.constant.ResponseStatusEnum;
+import vn.edu.fpt.laboratory.constant.TypeaheadTypeEnum;
+import vn.edu.fpt.laboratory.dto.request.search.GetTypeaheadRequest;
+import vn.edu.fpt.laboratory.dto.response.search.GetTypeaheadResponse;
+import vn.edu.fpt.laboratory.entity.Laboratory;
+import vn.edu.fpt.laboratory.entity.Material;
+import vn.edu.fpt.laboratory.entity.Project;
+import vn.edu.fpt.laboratory.exception.BusinessException;
+import vn.edu.fpt.laboratory.service.TypeaheadService;
+import vn.edu.fpt.laboratory.utils.PrefixIndex;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TypeaheadServiceImpl implements TypeaheadService {
+
+    private static final int DEFAULT_SIZE = 10;
+    private static final int MAX_SIZE = 50;
+
+    private final MongoTemplate mongoTemplate;
+    private volatile Map<TypeaheadTypeEnum, PrefixIndex> indexes = emptyIndexes();
+
+    @Override
+    public List<GetTypeaheadResponse> getTypeahead(GetTypeaheadRequest request) {
+        TypeaheadTypeEnum type = Arrays.stream(TypeaheadTypeEnum.values())
+                .filter(v -> v.getType().equalsIgnoreCase(Objects.requireNonNullElse(request.getType(), TypeaheadTypeEnum.LABORATORY.getType())))
+                .findFirst()
+                .orElseThrow(() -> new BusinessException(ResponseStatusEnum.VALIDATION_ERROR, "Type must be LABORATORY, MATERIAL or PROJECT"));
+        int size = Objects.isNull(request.getSize()) || request.getSize() <= 0 ? DEFAULT_SIZE : Math.min(request.getSize(), MAX_SIZE);
+        return indexes.get(type).search(request.getKeyword(), request.getLaboratoryId(), size).stream()
+                .map(v -> GetTypeaheadResponse.builder()
+                        .id(v.getId())
+                        .name(v.getName())
+                        .laboratoryId(v.getScopeId())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void put(TypeaheadTypeEnum type, String id, String name, String laboratoryId) {
+        indexes.get(type).put(id, name, laboratoryId);
+    }
+
+    @Override
+    public void remove(TypeaheadTypeEnum type, String id) {
+        indexes.get(type).remove(id);
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    /**
+     * Writes of other instances only reach this index on the next rebuild, the interval bounds how stale it gets.
+     */
+    @Override
+    @Scheduled(initialDelayString = "${app.typeahead.refresh-interval:600000}", fixedDelayString = "${app.typeahead.refresh-interval:600000}")
+    public void rebuild() {
+        try {
+            Map<TypeaheadTypeEnum, PrefixIndex> rebuilt = emptyIndexes();
+            load(rebuilt.get(TypeaheadTypeEnum.LABORATORY), new Query(), "laboratory_name", null, Laboratory.class);
+            load(rebuilt.get(TypeaheadTypeEnum.MATERIAL), Query.query(Criteria.where("is_delete").ne(true)), "material_name", "laboratory_id", Material.class);
+            load(rebuilt.get(TypeaheadTypeEnum.PROJECT), new Query(), "project_name", "laboratory_id", Project.class);
+            indexes = rebuilt;
+            log.info("Rebuild typeahead index: {} laboratories, {} materials, {} projects",
+                    rebuilt.get(TypeaheadTypeEnum.LABORATORY).size(),
+                    rebuilt.get(TypeaheadTypeEnum.MATERIAL).size(),
+                    rebuilt.get(TypeaheadTypeEnum.PROJECT).size());
+        } catch (Exception ex) {
+            log.error("Can't rebuild typeahead index: {}", ex.getMessage());
+        }
+    }
+
+    private void load(PrefixIndex index, Query query, String nameField, String laboratoryField, Class<?> entityClass) {
+        query.fields().include(nameField);
+        if (Objects.nonNull(laboratoryField)) {
+            query.fields().include(laboratoryField);
+        }
+        // raw documents, mapping the entities would resolve their references for nothing
+        try (CloseableIterator<Document> documents = mongoTemplate.stream(query, Document.class, mongoTemplate.getCollectionName(entityClass))) {
+            documents.forEachRemaining(v -> index.put(v.get("_id").toString(), v.getString(nameField),
+                    Objects.isNull(laboratoryField) ? v.get("_id").toString() : Objects.toString(v.get(laboratoryField), null)));
+        }
+    }
+
+    private static Map<TypeaheadTypeEnum, PrefixIndex> emptyIndexes() {
+        Map<TypeaheadTypeEnum, PrefixIndex> indexes = new EnumMap<>(TypeaheadTypeEnum.class);
+        for (TypeaheadTypeEnum type : TypeaheadTypeEnum.values()) {
+            indexes.put(type, new PrefixIndex());
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,46 @@
+package vn.edu.fpt.laboratory.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.annotation.RequestScope;
+import vn.edu.fpt.laboratory.dto.cache.UserInfo;
+import vn.edu.fpt.laboratory.service.UserInfoLoader;
+import vn.edu.fpt.laboratory.service.UserInfoService;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+@RequestScope
+@RequiredArgsConstructor
+public class UserInfoLoaderImpl implements UserInfoLoader {
+
+    private final UserInfoService userInfoService;
+    private final Map<String, UserInfo> loaded = new HashMap<>();
+
+    @Override
+    public void prime(Collection<String> accountIds) {
+        List<String> missing = accountIds.stream()
+                .filter(Objects::nonNull)
+                .filter(v -> !loaded.containsKey(v))
+                .distinct()
+                .collect(Collectors.toList());
+        if (missing.isEmpty()) {
+            return;
+        }
+        Map<String, UserInfo> userInfos = userInfoService.getUserInfo(missing);
+        // Unknown accounts are remembered as null so they are not fetched again in this request
+        missing.forEach(v -> loaded.put(v, userInfos.get(v)));
+    }
+
+    @Override
+    public UserInfo load(String accountId) {
+        if (Objects.isNull(accountId)) {
+            return null;
+        }
+        if (!loaded.containsKey(accountId)) {
+            prime(List.of(accountId));
+        }
+        return loaded.get(accountId);
+    }
+}
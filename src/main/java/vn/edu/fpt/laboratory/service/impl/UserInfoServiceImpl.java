@@ -1,6 +1,7 @@
 package vn.edu.fpt.laboratory.service.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -13,7 +14,8 @@ import vn.edu.fpt.laboratory.dto.cache.UserInfo;
 import vn.edu.fpt.laboratory.exception.BusinessException;
 import vn.edu.fpt.laboratory.service.UserInfoService;
 
-import java.util.Optional;
+import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * @author : Hoang Lam
@@ -29,18 +31,74 @@ public class UserInfoServiceImpl implements UserInfoService {
 
     private final RedisTemplate<String, String> redisTemplate;
     private final ObjectMapper objectMapper;
+    private final Cache<String, UserInfo> userInfoCache;
 
     @Override
     public UserInfo getUserInfo(String accountId) {
+        if (Objects.isNull(accountId)) {
+            return null;
+        }
+        UserInfo cached = userInfoCache.getIfPresent(accountId);
+        if (Objects.nonNull(cached)) {
+            return cached;
+        }
         try {
-            String userInfoStr = redisTemplate.opsForValue().get(String.format("userinfo:%s", accountId));
-            return objectMapper.readValue(userInfoStr, UserInfo.class);
+            String userInfoStr = redisTemplate.opsForValue().get(getUserInfoKey(accountId));
+            UserInfo userInfo = objectMapper.readValue(userInfoStr, UserInfo.class);
+            userInfoCache.put(accountId, userInfo);
+            return userInfo;
         }catch (Exception ex){
             log.error("Can't get userinfo in redis: {}", ex.getMessage());
             return null;
         }
     }
 
+    @Override
+    public Map<String, UserInfo> getUserInfo(Collection<String> accountIds) {
+        Map<String, UserInfo> userInfos = new HashMap<>(userInfoCache.getAllPresent(accountIds.stream().filter(Objects::nonNull).collect(Collectors.toSet())));
+        List<String> ids = accountIds.stream()
+                .filter(Objects::nonNull)
+                .filter(v -> !userInfos.containsKey(v))
+                .distinct()
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return userInfos;
+        }
+        List<String> userInfoStrs;
+        try {
+            userInfoStrs = redisTemplate.opsForValue().multiGet(ids.stream().map(this::getUserInfoKey).collect(Collectors.toList()));
+        } catch (Exception ex) {
+            log.error("Can't get userinfo in redis: {}", ex.getMessage());
+            return userInfos;
+        }
+        if (Objects.isNull(userInfoStrs)) {
+            return userInfos;
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            String userInfoStr = userInfoStrs.get(i);
+            if (Objects.isNull(userInfoStr)) {
+                continue;
+            }
+            try {
+                UserInfo userInfo = objectMapper.readValue(userInfoStr, UserInfo.class);
+                userInfoCache.put(ids.get(i), userInfo);
+                userInfos.put(ids.get(i), userInfo);
+            } catch (Exception ex) {
+                log.error("Can't parse userinfo of {}: {}", ids.get(i), ex.getMessage());
+            }
+        }
+        return userInfos;
+    }
+
+    @Override
+    public void evictUserInfo(String accountId) {
+        userInfoCache.invalidate(accountId);
+    }
+
+    private String getUserInfoKey(String accountId) {
+        return String.format("userinfo:%s", accountId);
+    }
+
     @Override
     public String getAccountId() {
         return Optional.ofNullable(SecurityContextHolder.getContext())
@@ -0,0 +1,84 @@
+package vn.edu.fpt.laboratory.utils;
+
+import java.util.Arrays;
+
+/**
+ * Count-min sketch of string keys. Estimates never undercount, they overcount by at most
+ * total / width with probability 1 - 2^-depth. Not thread safe, callers synchronize.
+ */
+public class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final long[] counts;
+
+    public CountMinSketch(int width, int depth) {
+        this(width, depth, new long[width * depth]);
+    }
+
+    private CountMinSketch(int width, int depth, long[] counts) {
+        if (width <= 0 || depth <= 0 || counts.length != width * depth) {
+            throw new IllegalArgumentException("Invalid sketch dimension");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counts = counts;
+    }
+
+    public static CountMinSketch restore(int width, int depth, long[] counts) {
+        return new CountMinSketch(width, depth, Arrays.copyOf(counts, counts.length));
+    }
+
+    /**
+     * Add the count to the key and return the new estimate of the key.
+     */
+    public long add(String key, long count) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + bucket(key, row);
+            counts[index] += count;
+            estimate = Math.min(estimate, counts[index]);
+        }
+        return estimate;
+    }
+
+    public long estimate(String key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts[row * width + bucket(key, row)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Multiply every counter by the factor, older counts weigh less than recent ones after each decay.
+     */
+    public void decay(double factor) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = (long) (counts[i] * factor);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long[] getCounts() {
+        return Arrays.copyOf(counts, counts.length);
+    }
+
+    private int bucket(String key, int row) {
+        // murmur3 finalizer over the string hash, salted per row
+        long hash = key.hashCode() * 0x9E3779B97F4A7C15L + (row + 1) * 0xC2B2AE3D27D4EB4FL;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return (int) Math.floorMod(hash, (long) width);
+    }
+}
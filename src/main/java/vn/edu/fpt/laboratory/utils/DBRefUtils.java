@@ -0,0 +1,33 @@
+package vn.edu.fpt.laboratory.utils;
+
+import com.mongodb.DBRef;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class DBRefUtils {
+
+    /**
+     * Read the ids of a DBRef array from a raw document without resolving the referenced documents.
+     */
+    public static List<Object> getReferenceIds(Document document, String field) {
+        List<Object> ids = new ArrayList<>();
+        Object value = document.get(field);
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (item instanceof DBRef) {
+                    ids.add(((DBRef) item).getId());
+                }
+            }
+        } else if (value instanceof DBRef) {
+            ids.add(((DBRef) value).getId());
+        }
+        ids.removeIf(Objects::isNull);
+        return ids;
+    }
+}
@@ -0,0 +1,103 @@
+package vn.edu.fpt.laboratory.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Thread safe prefix index over names. Every name is stored under its normalized form and under the
+ * suffix starting at each following word, in a skip list sorted by key, so the names starting with a
+ * prefix or having a word starting with it are one range scan in O(log n + k).
+ */
+public class PrefixIndex {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final char NAME_RANK = '0';
+    private static final char WORD_RANK = '1';
+    private static final char ID_SEPARATOR = '\u0000';
+    private static final char MAX_CHAR = '\uffff';
+
+    private final ConcurrentSkipListMap<String, Entry> index = new ConcurrentSkipListMap<>();
+    private final Map<String, List<String>> keysById = new ConcurrentHashMap<>();
+
+    /**
+     * Insert or replace the name of an id.
+     */
+    public synchronized void put(String id, String name, String scopeId) {
+        remove(id);
+        String normalized = normalize(name);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        Entry entry = new Entry(id, name, scopeId);
+        List<String> keys = new ArrayList<>();
+        keys.add(NAME_RANK + normalized + ID_SEPARATOR + id);
+        for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+            keys.add(WORD_RANK + normalized.substring(i + 1) + ID_SEPARATOR + id);
+        }
+        keys.forEach(v -> index.put(v, entry));
+        keysById.put(id, keys);
+    }
+
+    public synchronized void remove(String id) {
+        List<String> keys = keysById.remove(id);
+        if (Objects.nonNull(keys)) {
+            keys.forEach(index::remove);
+        }
+    }
+
+    /**
+     * At most limit entries of the scope, null for every scope, whose name starts with the prefix first
+     * and then those having a word starting with it, each group in alphabetical order.
+     */
+    public List<Entry> search(String prefix, String scopeId, int limit) {
+        String normalized = normalize(prefix);
+        Map<String, Entry> result = new LinkedHashMap<>();
+        if (normalized.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        for (char rank : new char[]{NAME_RANK, WORD_RANK}) {
+            String from = rank + normalized;
+            for (Entry entry : index.subMap(from, true, from + MAX_CHAR, true).values()) {
+                if (result.size() >= limit) {
+                    return new ArrayList<>(result.values());
+                }
+                if (Objects.isNull(scopeId) || scopeId.equals(entry.getScopeId())) {
+                    result.putIfAbsent(entry.getId(), entry);
+                }
+            }
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    public int size() {
+        return keysById.size();
+    }
+
+    /**
+     * Lower case without diacritics and with single spaces, so accented vietnamese names match what is typed without accents.
+     */
+    public static String normalize(String value) {
+        if (Objects.isNull(value)) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(value.toLowerCase(Locale.ROOT), Normalizer.Form.NFD)
+                .replace('\u0111', 'd');
+        normalized = COMBINING_MARKS.matcher(normalized).replaceAll("");
+        return SPACES.matcher(normalized.trim()).replaceAll(" ");
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+        private final String id;
+        private final String name;
+        private final String scopeId;
+    }
+}
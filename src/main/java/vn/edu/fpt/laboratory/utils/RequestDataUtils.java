@@ -6,7 +6,10 @@ import org.bson.types.ObjectId;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * @author : Hoang Lam
@@ -27,12 +30,27 @@ public class RequestDataUtils {
 
     public static String convertSearchableData(String data) {
         if (Objects.nonNull(data)) {
-            return "^.*" + data + ".*$";
+            // quoted so the input is matched literally instead of being run as a regex
+            return "^.*" + Pattern.quote(data) + ".*$";
         } else {
             return null;
         }
     }
 
+    /**
+     * Words of a full text search with the text search operators (phrases and negation) removed, null if none is left.
+     */
+    public static String convertKeywordData(String data) {
+        if (Objects.isNull(data)) {
+            return null;
+        }
+        String keyword = Arrays.stream(data.replace("\"", " ").split("\\s+"))
+                .map(v -> v.replaceFirst("^-+", ""))
+                .filter(v -> !v.isBlank())
+                .collect(Collectors.joining(" "));
+        return keyword.isEmpty() ? null : keyword;
+    }
+
     public static Boolean convertSearchableData(Boolean bool) {
         if (Objects.nonNull(bool)) {
             return bool;
@@ -0,0 +1,221 @@
+package vn.edu.fpt.laboratory.utils;
+
+import vn.edu.fpt.laboratory.entity.BorrowTime;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Max segment tree over the reservations of one material. Reservation boundaries are
+ * compressed to the elementary slots between them, every slot holds the amount reserved during it,
+ * so the peak over any half-open range [from, to) is answered in O(log n).
+ * A tree built by {@link #of(Collection)} is never changed and can be shared, one built with pending
+ * reservations is owned by its caller and takes them in one by one with {@link #add(BorrowTime)}.
+ */
+public class ReservationSegmentTree {
+
+    private static final ReservationSegmentTree EMPTY = new ReservationSegmentTree(new long[0], new int[0]);
+
+    private final long[] bounds;
+    private final int[] tree;
+    private final int[] pending;
+    private final int height;
+    private final int slots;
+
+    private ReservationSegmentTree(long[] bounds, int[] loads) {
+        this.bounds = bounds;
+        this.slots = loads.length;
+        this.tree = new int[Math.max(1, 2 * slots)];
+        this.pending = new int[Math.max(1, slots)];
+        this.height = 32 - Integer.numberOfLeadingZeros(slots);
+        System.arraycopy(loads, 0, tree, slots, slots);
+        for (int i = slots - 1; i > 0; i--) {
+            tree[i] = Math.max(tree[2 * i], tree[2 * i + 1]);
+        }
+    }
+
+    public static ReservationSegmentTree of(Collection<BorrowTime> borrowTimes) {
+        return of(borrowTimes, null);
+    }
+
+    /**
+     * Tree over the reserved borrow times whose slots also cover the boundaries of the pending ones,
+     * so each of them can be added later without building the tree again.
+     */
+    public static ReservationSegmentTree of(Collection<BorrowTime> borrowTimes, Collection<BorrowTime> pendingBorrowTimes) {
+        Collection<BorrowTime> valid = valid(borrowTimes);
+        Collection<BorrowTime> validPending = valid(pendingBorrowTimes);
+        if (valid.isEmpty() && validPending.isEmpty()) {
+            return EMPTY;
+        }
+
+        long[] bounds = Stream.concat(valid.stream(), validPending.stream())
+                .flatMap(v -> Stream.of(toEpoch(v.getFromDate()), toEpoch(v.getReturnDate())))
+                .mapToLong(Long::longValue)
+                .sorted()
+                .distinct()
+                .toArray();
+
+        int[] diff = new int[bounds.length];
+        for (BorrowTime borrowTime : valid) {
+            diff[Arrays.binarySearch(bounds, toEpoch(borrowTime.getFromDate()))] += borrowTime.getAmount();
+            diff[Arrays.binarySearch(bounds, toEpoch(borrowTime.getReturnDate()))] -= borrowTime.getAmount();
+        }
+        int[] loads = new int[bounds.length - 1];
+        int running = 0;
+        for (int i = 0; i < loads.length; i++) {
+            running += diff[i];
+            loads[i] = running;
+        }
+        return new ReservationSegmentTree(bounds, loads);
+    }
+
+    /**
+     * Add a reservation in O(log n), its boundaries must have been passed as pending when the tree was built.
+     */
+    public void add(BorrowTime borrowTime) {
+        if (!isValid(borrowTime)) {
+            return;
+        }
+        int from = Arrays.binarySearch(bounds, toEpoch(borrowTime.getFromDate()));
+        int to = Arrays.binarySearch(bounds, toEpoch(borrowTime.getReturnDate()));
+        if (from < 0 || to < 0) {
+            throw new IllegalArgumentException("Borrow time is not pending in this tree");
+        }
+        int l0 = from + slots;
+        int r0 = to - 1 + slots;
+        for (int l = l0, r = to + slots; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                apply(l++, borrowTime.getAmount());
+            }
+            if ((r & 1) == 1) {
+                apply(--r, borrowTime.getAmount());
+            }
+        }
+        pull(l0);
+        pull(r0);
+    }
+
+    /**
+     * Highest amount reserved at the same time anywhere in [from, to).
+     */
+    public int peak(LocalDateTime from, LocalDateTime to) {
+        long start = toEpoch(from);
+        long end = toEpoch(to);
+        if (slots == 0 || start >= end || end <= bounds[0] || start >= bounds[slots]) {
+            return 0;
+        }
+        int lo = Math.max(0, upperBound(start) - 1);
+        int hi = Math.min(slots - 1, lowerBound(end) - 1);
+        return query(lo, hi);
+    }
+
+    /**
+     * Amount reserved at the given instant.
+     */
+    public int reservedAt(LocalDateTime time) {
+        return peak(time, time.plusSeconds(1));
+    }
+
+    public int size() {
+        return slots;
+    }
+
+    private int query(int lo, int hi) {
+        push(lo + slots);
+        push(hi + slots);
+        int result = 0;
+        for (int l = lo + slots, r = hi + slots + 1; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                result = Math.max(result, tree[l++]);
+            }
+            if ((r & 1) == 1) {
+                result = Math.max(result, tree[--r]);
+            }
+        }
+        return result;
+    }
+
+    private void apply(int node, int amount) {
+        tree[node] += amount;
+        if (node < slots) {
+            pending[node] += amount;
+        }
+    }
+
+    /**
+     * Recompute the ancestors of a leaf after an add, each one keeps the amount added to its whole range on top.
+     */
+    private void pull(int node) {
+        for (node >>= 1; node > 0; node >>= 1) {
+            tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]) + pending[node];
+        }
+    }
+
+    /**
+     * Hand the amounts added to whole ranges down to the path of a leaf before it is read.
+     */
+    private void push(int node) {
+        for (int shift = height; shift > 0; shift--) {
+            int i = node >> shift;
+            if (i > 0 && pending[i] != 0) {
+                apply(2 * i, pending[i]);
+                apply(2 * i + 1, pending[i]);
+                pending[i] = 0;
+            }
+        }
+    }
+
+    private static Collection<BorrowTime> valid(Collection<BorrowTime> borrowTimes) {
+        if (Objects.isNull(borrowTimes)) {
+            return Collections.emptyList();
+        }
+        return borrowTimes.stream()
+                .filter(ReservationSegmentTree::isValid)
+                .collect(Collectors.toList());
+    }
+
+    private static boolean isValid(BorrowTime borrowTime) {
+        return Objects.nonNull(borrowTime)
+                && Objects.nonNull(borrowTime.getFromDate()) && Objects.nonNull(borrowTime.getReturnDate()) && Objects.nonNull(borrowTime.getAmount())
+                && borrowTime.getFromDate().isBefore(borrowTime.getReturnDate());
+    }
+
+    private int upperBound(long key) {
+        int lo = 0;
+        int hi = bounds.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (bounds[mid] <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int lowerBound(long key) {
+        int lo = 0;
+        int hi = bounds.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (bounds[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static long toEpoch(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,76 @@
+package vn.edu.fpt.laboratory.utils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Streaming top-K of the most counted keys: a count-min sketch estimates every key and a min-heap of
+ * size K keeps the current leaders. Reading the top returns the list published by the last write.
+ */
+public class TopKTracker {
+
+    private final int size;
+    private final CountMinSketch sketch;
+    private final Map<String, Long> leaders = new HashMap<>();
+    private final PriorityQueue<Map.Entry<String, Long>> heap = new PriorityQueue<>(Map.Entry.comparingByValue());
+    private volatile List<Map.Entry<String, Long>> top = List.of();
+
+    public TopKTracker(int size, CountMinSketch sketch) {
+        this.size = size;
+        this.sketch = sketch;
+    }
+
+    public synchronized void add(String key, long count) {
+        long estimate = sketch.add(key, count);
+        if (leaders.containsKey(key)) {
+            heap.removeIf(v -> v.getKey().equals(key));
+        } else if (leaders.size() >= size) {
+            if (heap.peek().getValue() >= estimate) {
+                return;
+            }
+            leaders.remove(heap.poll().getKey());
+        }
+        leaders.put(key, estimate);
+        heap.add(new AbstractMap.SimpleImmutableEntry<>(key, estimate));
+        publish();
+    }
+
+    /**
+     * Restore leaders saved with the sketch, their estimates are read back from the sketch.
+     */
+    public synchronized void restore(Collection<String> keys) {
+        for (String key : keys) {
+            long estimate = sketch.estimate(key);
+            if (estimate > 0 && !leaders.containsKey(key)) {
+                leaders.put(key, estimate);
+                heap.add(new AbstractMap.SimpleImmutableEntry<>(key, estimate));
+            }
+        }
+        while (heap.size() > size) {
+            leaders.remove(heap.poll().getKey());
+        }
+        publish();
+    }
+
+    public synchronized void decay(double factor) {
+        sketch.decay(factor);
+        List<String> keys = new ArrayList<>(leaders.keySet());
+        leaders.clear();
+        heap.clear();
+        restore(keys);
+    }
+
+    public List<Map.Entry<String, Long>> top() {
+        return top;
+    }
+
+    public synchronized CountMinSketch snapshotSketch() {
+        return CountMinSketch.restore(sketch.getWidth(), sketch.getDepth(), sketch.getCounts());
+    }
+
+    private void publish() {
+        top = heap.stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .collect(Collectors.toUnmodifiableList());
+    }
+}
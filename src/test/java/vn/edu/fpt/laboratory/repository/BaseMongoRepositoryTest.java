@@ -0,0 +1,199 @@
+package vn.edu.fpt.laboratory.repository;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import vn.edu.fpt.laboratory.dto.common.CursorPage;
+import vn.edu.fpt.laboratory.dto.common.PageableRequest;
+import vn.edu.fpt.laboratory.dto.common.SortableRequest;
+import vn.edu.fpt.laboratory.exception.BusinessException;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BaseMongoRepositoryTest {
+
+    // score 7, 5, 5, 5, 3 and two without a score, the duplicates are only told apart by _id
+    private static final List<Document> DOCUMENTS = List.of(
+            document(1, 5, "b"),
+            document(2, null, "a"),
+            document(3, 5, "a"),
+            document(4, 7, null),
+            new Document("_id", id(5)).append("name", "b"),
+            document(6, 3, "a"),
+            document(7, 5, "b"));
+
+    @Test
+    void descendingSortWithNullsAndDuplicatesNeitherSkipsNorRepeats() {
+        // null sorts before every value, so it comes last in a descending sort
+        List<Integer> expected = List.of(4, 1, 3, 7, 6, 2, 5);
+        for (int size = 1; size <= DOCUMENTS.size() + 1; size++) {
+            assertEquals(expected, readAllPages(size, new SortableRequest("score", Sort.Direction.DESC)), "page size " + size);
+        }
+    }
+
+    @Test
+    void ascendingSortWithNullsAndDuplicatesNeitherSkipsNorRepeats() {
+        List<Integer> expected = List.of(2, 5, 6, 1, 3, 7, 4);
+        for (int size = 1; size <= DOCUMENTS.size() + 1; size++) {
+            assertEquals(expected, readAllPages(size, new SortableRequest("score", Sort.Direction.ASC)), "page size " + size);
+        }
+    }
+
+    @Test
+    void mixedDirectionsOnSeveralKeysNeitherSkipNorRepeat() {
+        List<Integer> expected = List.of(4, 3, 6, 2, 1, 7, 5);
+        for (int size = 1; size <= DOCUMENTS.size() + 1; size++) {
+            assertEquals(expected, readAllPages(size,
+                    new SortableRequest("name", Sort.Direction.ASC),
+                    new SortableRequest("score", Sort.Direction.DESC)), "page size " + size);
+        }
+    }
+
+    @Test
+    void withoutSortPagesByIdDescending() {
+        assertEquals(List.of(7, 6, 5, 4, 3, 2, 1), readAllPages(3));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        PageableRequest request = request(DOCUMENTS.size());
+        CursorPage<Document> page = BaseMongoRepository.toCursorPage(new ArrayList<>(DOCUMENTS), request,
+                BaseMongoRepository.getCursorOrders(request, UnaryOperator.identity()), UnaryOperator.identity(), UnaryOperator.identity());
+
+        assertEquals(DOCUMENTS.size(), page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void rejectsCursorOfAnotherSort() {
+        PageableRequest request = request(2, new SortableRequest("score", Sort.Direction.DESC));
+        List<Sort.Order> orders = BaseMongoRepository.getCursorOrders(request, UnaryOperator.identity());
+        String cursor = BaseMongoRepository.toCursorPage(new ArrayList<>(DOCUMENTS), request, orders, UnaryOperator.identity(), UnaryOperator.identity())
+                .getNextCursor();
+
+        List<Sort.Order> otherOrders = BaseMongoRepository.getCursorOrders(request(2), UnaryOperator.identity());
+        assertThrows(BusinessException.class, () -> BaseMongoRepository.afterCursor(cursor, otherOrders));
+        assertThrows(BusinessException.class, () -> BaseMongoRepository.afterCursor("not-a-cursor", orders));
+        assertNull(BaseMongoRepository.afterCursor("", orders));
+    }
+
+    /**
+     * Walk every page the way findWithCursor does against a collection held in memory.
+     */
+    private static List<Integer> readAllPages(int size, SortableRequest... sortBy) {
+        PageableRequest request = request(size, sortBy);
+        List<Sort.Order> orders = BaseMongoRepository.getCursorOrders(request, UnaryOperator.identity());
+        List<Integer> ids = new ArrayList<>();
+        String cursor = "";
+        do {
+            request.setCursor(cursor);
+            Criteria after = BaseMongoRepository.afterCursor(cursor, orders);
+            List<Document> items = DOCUMENTS.stream()
+                    .filter(v -> Objects.isNull(after) || matches(v, after.getCriteriaObject()))
+                    .sorted(comparator(orders))
+                    .limit(size + 1L)
+                    .collect(Collectors.toList());
+            CursorPage<Document> page = BaseMongoRepository.toCursorPage(items, request, orders, UnaryOperator.identity(), UnaryOperator.identity());
+            page.getItems().forEach(v -> ids.add(Integer.parseInt(v.getObjectId("_id").toHexString(), 16)));
+            cursor = page.getNextCursor();
+            assertTrue(ids.size() <= DOCUMENTS.size(), "pages never end");
+        } while (Objects.nonNull(cursor));
+        return ids;
+    }
+
+    private static PageableRequest request(int size, SortableRequest... sortBy) {
+        PageableRequest request = new PageableRequest() {
+        };
+        request.setSize(size);
+        request.setSortBy(sortBy.length == 0 ? null : List.of(sortBy));
+        return request;
+    }
+
+    /**
+     * Order of mongo, null and missing values sort before every other value.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Document> comparator(List<Sort.Order> orders) {
+        return (first, second) -> {
+            for (Sort.Order order : orders) {
+                Comparable a = (Comparable) first.get(order.getProperty());
+                Comparable b = (Comparable) second.get(order.getProperty());
+                int result = Objects.isNull(a) ? (Objects.isNull(b) ? 0 : -1) : (Objects.isNull(b) ? 1 : a.compareTo(b));
+                if (result != 0) {
+                    return order.isAscending() ? result : -result;
+                }
+            }
+            return 0;
+        };
+    }
+
+    /**
+     * Evaluate the operators the cursor criteria are built from: $and, $or, $gt, $lt, $ne, $in and equality.
+     */
+    private static boolean matches(Document document, Document criteria) {
+        for (Map.Entry<String, Object> entry : criteria.entrySet()) {
+            List<?> branches = entry.getValue() instanceof List ? (List<?>) entry.getValue() : List.of();
+            boolean matched;
+            switch (entry.getKey()) {
+                case "$and":
+                    matched = branches.stream().allMatch(v -> matches(document, (Document) v));
+                    break;
+                case "$or":
+                    matched = branches.stream().anyMatch(v -> matches(document, (Document) v));
+                    break;
+                default:
+                    matched = matchesField(document.get(entry.getKey()), entry.getValue());
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static boolean matchesField(Object actual, Object condition) {
+        if (!(condition instanceof Document)) {
+            return Objects.equals(actual, condition);
+        }
+        for (Map.Entry<String, Object> operator : ((Document) condition).entrySet()) {
+            Object value = operator.getValue();
+            boolean matched;
+            switch (operator.getKey()) {
+                case "$gt":
+                    matched = Objects.nonNull(actual) && ((Comparable) actual).compareTo(value) > 0;
+                    break;
+                case "$lt":
+                    matched = Objects.nonNull(actual) && ((Comparable) actual).compareTo(value) < 0;
+                    break;
+                case "$ne":
+                    matched = !Objects.equals(actual, value);
+                    break;
+                case "$in":
+                    matched = ((Collection<?>) value).contains(actual);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unexpected operator " + operator.getKey());
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Document document(int id, Integer score, String name) {
+        Document document = new Document("_id", id(id)).append("score", score);
+        return Objects.isNull(name) ? document : document.append("name", name);
+    }
+
+    private static ObjectId id(int id) {
+        return new ObjectId(String.format("%024x", id));
+    }
+}
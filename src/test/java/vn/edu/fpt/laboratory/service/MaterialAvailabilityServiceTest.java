@@ -0,0 +1,147 @@
+package vn.edu.fpt.laboratory.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+import vn.edu.fpt.laboratory.entity.BorrowTime;
+import vn.edu.fpt.laboratory.entity.Material;
+import vn.edu.fpt.laboratory.exception.BusinessException;
+import vn.edu.fpt.laboratory.repository.MaterialUpdateRepository;
+import vn.edu.fpt.laboratory.service.impl.MaterialAvailabilityServiceImpl;
+import vn.edu.fpt.laboratory.utils.ReservationSegmentTree;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.mock;
+
+class MaterialAvailabilityServiceTest {
+
+    private static final String MATERIAL_ID = "638c4d4e2ea0d55e3bfd3a01";
+    private static final LocalDateTime FROM = LocalDateTime.of(2022, 12, 1, 8, 0);
+    private static final LocalDateTime TO = FROM.plusHours(4);
+
+    @Test
+    void concurrentReserveNeverOverbooks() throws Exception {
+        int stock = 10;
+        int threads = 64;
+        InMemoryMaterialUpdateRepository repository = new InMemoryMaterialUpdateRepository(stock);
+        MaterialAvailabilityService service = new MaterialAvailabilityServiceImpl(asRepository(repository), Caffeine.newBuilder().build());
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            // half of the orders only partly overlap the others to exercise the interval check
+            LocalDateTime from = i % 2 == 0 ? FROM : FROM.plusHours(2);
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    service.reserve(MATERIAL_ID, BorrowTime.builder().fromDate(from).returnDate(from.plusHours(4)).amount(1).build());
+                    succeeded.incrementAndGet();
+                } catch (BusinessException ex) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        Material material = repository.findReservationState(MATERIAL_ID);
+        assertEquals(stock, succeeded.get());
+        assertEquals(threads - stock, rejected.get());
+        assertEquals(0, material.getAmount());
+        assertEquals(stock, material.getVersion());
+        assertEquals(stock, material.getBorrowTime().size());
+        assertTrue(ReservationSegmentTree.of(material.getBorrowTime()).peak(FROM, TO.plusHours(2)) <= stock);
+    }
+
+    @Test
+    void reserveRejectsWhenWindowIsFullyBooked() {
+        InMemoryMaterialUpdateRepository repository = new InMemoryMaterialUpdateRepository(2);
+        MaterialAvailabilityService service = new MaterialAvailabilityServiceImpl(asRepository(repository), Caffeine.newBuilder().build());
+
+        service.reserve(MATERIAL_ID, BorrowTime.builder().fromDate(FROM).returnDate(TO).amount(2).build());
+
+        assertThrows(BusinessException.class,
+                () -> service.reserve(MATERIAL_ID, BorrowTime.builder().fromDate(FROM.plusHours(1)).returnDate(TO).amount(1).build()));
+        assertEquals(2, service.peakReserved(MATERIAL_ID, FROM, TO));
+        assertEquals(0, service.peakReserved(MATERIAL_ID, TO, TO.plusHours(1)));
+    }
+
+    @Test
+    void reserveAllKeepsOrderAndWritesOnce() {
+        InMemoryMaterialUpdateRepository repository = new InMemoryMaterialUpdateRepository(3);
+        MaterialAvailabilityService service = new MaterialAvailabilityServiceImpl(asRepository(repository), Caffeine.newBuilder().build());
+        BorrowTime first = BorrowTime.builder().fromDate(FROM).returnDate(TO).amount(2).build();
+        BorrowTime second = BorrowTime.builder().fromDate(FROM).returnDate(TO).amount(2).build();
+        BorrowTime third = BorrowTime.builder().fromDate(FROM).returnDate(TO).amount(1).build();
+
+        List<BorrowTime> accepted = service.reserveAll(MATERIAL_ID, List.of(first, second, third));
+
+        assertEquals(List.of(first, third), accepted);
+        Material material = repository.findReservationState(MATERIAL_ID);
+        assertEquals(0, material.getAmount());
+        assertEquals(1, material.getVersion());
+    }
+
+    private static MaterialUpdateRepository asRepository(InMemoryMaterialUpdateRepository repository) {
+        return mock(MaterialUpdateRepository.class, delegatesTo(repository));
+    }
+
+    /**
+     * Stand-in for the materials collection with the same compare-and-set semantics as the findAndModify.
+     * Only the reads and writes of a reservation are covered.
+     */
+    private static class InMemoryMaterialUpdateRepository {
+
+        private final int totalAmount;
+        private int amount;
+        private long version;
+        private final List<BorrowTime> borrowTimes = new ArrayList<>();
+
+        InMemoryMaterialUpdateRepository(int totalAmount) {
+            this.totalAmount = totalAmount;
+            this.amount = totalAmount;
+        }
+
+        public synchronized Material findReservationState(String materialId) {
+            return snapshot();
+        }
+
+        public synchronized Material reserve(String materialId, Long expectedVersion, List<BorrowTime> reserved) {
+            int reservedAmount = reserved.stream().mapToInt(BorrowTime::getAmount).sum();
+            if (expectedVersion != version || amount < reservedAmount) {
+                return null;
+            }
+            amount -= reservedAmount;
+            borrowTimes.addAll(reserved);
+            version++;
+            return snapshot();
+        }
+
+        private Material snapshot() {
+            return Material.builder()
+                    .materialId(MATERIAL_ID)
+                    .amount(amount)
+                    .totalAmount(totalAmount)
+                    .version(version)
+                    .borrowTime(new ArrayList<>(borrowTimes))
+                    .build();
+        }
+    }
+}
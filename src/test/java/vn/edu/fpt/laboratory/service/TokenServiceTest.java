@@ -0,0 +1,76 @@
+package vn.edu.fpt.laboratory.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Header;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+import vn.edu.fpt.laboratory.service.impl.TokenServiceImpl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenServiceTest {
+
+    private static final String SECRET_KEY = "secret-key-of-the-token-service-test";
+
+    private _TokenService tokenService;
+
+    @BeforeEach
+    void setUp() {
+        tokenService = new TokenServiceImpl(Caffeine.newBuilder().build());
+        ReflectionTestUtils.invokeMethod(tokenService, "setSecretKey", SECRET_KEY);
+    }
+
+    @Test
+    void reusedTokenReturnsCachedAuthentication() {
+        String token = token(SECRET_KEY, System.currentTimeMillis() + 60_000);
+
+        Authentication first = tokenService.getAuthenticationFromToken(token).orElseThrow();
+        Authentication second = tokenService.getAuthenticationFromToken(token).orElseThrow();
+
+        assertSame(first, second);
+        assertEquals("ADMIN,USER", first.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.joining(",")));
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        assertTrue(tokenService.getAuthenticationFromToken(token(SECRET_KEY, System.currentTimeMillis() - 1_000)).isEmpty());
+    }
+
+    @Test
+    void tokenSignedWithAnotherKeyIsRejected() {
+        String token = token("another-secret-key-of-the-token-service", System.currentTimeMillis() + 60_000);
+
+        assertTrue(tokenService.getAuthenticationFromToken(token).isEmpty());
+    }
+
+    @Test
+    void cacheHitSkipsSignatureVerification() {
+        String token = token(SECRET_KEY, System.currentTimeMillis() + 60_000);
+        Authentication verified = tokenService.getAuthenticationFromToken(token).orElseThrow();
+
+        // a parser with another key rejects the token, so only a cache hit can still return it
+        ReflectionTestUtils.invokeMethod(tokenService, "setSecretKey", "another-secret-key-of-the-token-service");
+
+        assertSame(verified, tokenService.getAuthenticationFromToken(token).orElseThrow());
+        assertTrue(tokenService.getAuthenticationFromToken(token(SECRET_KEY, System.currentTimeMillis() + 60_000)).isEmpty());
+    }
+
+    private static String token(String secretKey, long expiresAt) {
+        return Jwts.builder()
+                .setHeaderParam(Header.TYPE, Header.JWT_TYPE)
+                .setId(UUID.randomUUID().toString())
+                .claim("authorities", "ADMIN,USER")
+                .claim("exp", expiresAt)
+                .signWith(Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+}
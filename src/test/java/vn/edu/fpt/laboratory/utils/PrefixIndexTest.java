@@ -0,0 +1,53 @@
+package vn.edu.fpt.laboratory.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixIndexTest {
+
+    @Test
+    void ranksNamePrefixBeforeWordPrefix() {
+        PrefixIndex index = new PrefixIndex();
+        index.put("1", "Robotics Lab", "lab-1");
+        index.put("2", "Applied Robotics", "lab-1");
+        index.put("3", "Chemistry", "lab-2");
+
+        assertEquals(List.of("1", "2"), ids(index.search("robo", null, 10)));
+        assertEquals(List.of("3"), ids(index.search("CHEM", null, 10)));
+        assertTrue(index.search("lab x", null, 10).isEmpty());
+    }
+
+    @Test
+    void matchesWithoutAccentsAndFiltersByScope() {
+        PrefixIndex index = new PrefixIndex();
+        index.put("1", "Ph\u00f2ng th\u00ed nghi\u1ec7m \u0110i\u1ec7n", "lab-1");
+        index.put("2", "Phong thi nghiem Hoa", "lab-2");
+
+        assertEquals(List.of("1", "2"), ids(index.search("phong thi", null, 10)));
+        assertEquals(List.of("1"), ids(index.search("dien", null, 10)));
+        assertEquals(List.of("2"), ids(index.search("phong", "lab-2", 10)));
+        assertEquals(1, index.search("phong", null, 1).size());
+    }
+
+    @Test
+    void replacesAndRemovesNames() {
+        PrefixIndex index = new PrefixIndex();
+        index.put("1", "Microscope", "lab-1");
+        index.put("1", "Telescope", "lab-1");
+
+        assertTrue(index.search("micro", null, 10).isEmpty());
+        assertEquals(List.of("1"), ids(index.search("tele", null, 10)));
+
+        index.remove("1");
+        assertTrue(index.search("tele", null, 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    private List<String> ids(List<PrefixIndex.Entry> entries) {
+        return entries.stream().map(PrefixIndex.Entry::getId).collect(Collectors.toList());
+    }
+}
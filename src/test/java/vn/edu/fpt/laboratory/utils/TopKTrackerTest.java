@@ -0,0 +1,55 @@
+package vn.edu.fpt.laboratory.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKTrackerTest {
+
+    @Test
+    void keepsHeavyHittersAmongManyRareKeys() {
+        TopKTracker tracker = new TopKTracker(3, new CountMinSketch(256, 4));
+        for (int round = 0; round < 50; round++) {
+            tracker.add("microscope", 5);
+            tracker.add("oscilloscope", 3);
+            tracker.add("centrifuge", 2);
+            // a long tail seen once each must not push the leaders out
+            tracker.add("tail-" + round, 1);
+        }
+
+        List<String> top = tracker.top().stream().map(Map.Entry::getKey).collect(Collectors.toList());
+        assertEquals(List.of("microscope", "oscilloscope", "centrifuge"), top);
+        assertTrue(tracker.top().get(0).getValue() >= 250);
+    }
+
+    @Test
+    void restoresLeadersFromSketch() {
+        TopKTracker tracker = new TopKTracker(2, new CountMinSketch(128, 4));
+        tracker.add("a", 10);
+        tracker.add("b", 20);
+        tracker.add("c", 30);
+
+        CountMinSketch sketch = tracker.snapshotSketch();
+        TopKTracker restored = new TopKTracker(2, CountMinSketch.restore(sketch.getWidth(), sketch.getDepth(), sketch.getCounts()));
+        restored.restore(List.of("a", "b", "c"));
+
+        assertEquals(List.of("c", "b"), restored.top().stream().map(Map.Entry::getKey).collect(Collectors.toList()));
+    }
+
+    @Test
+    void decayKeepsOrderAndShrinksCounts() {
+        TopKTracker tracker = new TopKTracker(2, new CountMinSketch(128, 4));
+        tracker.add("a", 1000);
+        tracker.add("b", 2000);
+
+        tracker.decay(0.5);
+
+        assertEquals("b", tracker.top().get(0).getKey());
+        assertEquals(1000L, tracker.top().get(0).getValue());
+        assertEquals(500L, tracker.top().get(1).getValue());
+    }
+}